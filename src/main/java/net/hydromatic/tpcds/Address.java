@@ -0,0 +1,195 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Street address, the block of columns that {@code customer_address},
+ * {@code store}, {@code warehouse}, {@code call_center} and
+ * {@code web_site} have in common.
+ *
+ * <p>The block has {@link #COLUMN_COUNT} columns, in this order: street
+ * number, street name, street type, suite number, city, county, state, zip,
+ * country and GMT offset. Each draws from the stream of its own column;
+ * {@link #SEEDS} is the number of seeds per row of each.
+ *
+ * <p>An address is a reusable record. The city, county, state and zip come
+ * from tables that are compiled from the {@code cities}, {@code fips_county}
+ * and {@code street_*} distributions when this class is loaded, and every
+ * value is a shared string except the zip, which is written into a buffer
+ * that the record owns. So generating an address allocates nothing; like a
+ * row buffer, its values are valid until the next call to
+ * {@link #generate}.
+ */
+final class Address {
+  /** Number of columns in an address block. */
+  static final int COLUMN_COUNT = 10;
+
+  /** Seeds per row of the stream of each column of an address block. The
+   * state and GMT offset are those of the county, and the country is
+   * constant. */
+  static final int[] SEEDS = {1, 1, 1, 1, 1, 1, 0, 1, 0, 0};
+
+  private static final int STREET_NUMBER = 0;
+  private static final int STREET_NAME = 1;
+  private static final int STREET_TYPE = 2;
+  private static final int SUITE_NUMBER = 3;
+  private static final int CITY = 4;
+  private static final int COUNTY = 5;
+  private static final int STATE = 6;
+  private static final int ZIP = 7;
+  private static final int COUNTRY = 8;
+  private static final int GMT_OFFSET = 9;
+
+  private static final String COUNTRY_NAME = "United States";
+
+  /** Street numbers "1" to "1000". */
+  private static final String[] STREET_NUMBERS = new String[1000];
+
+  /** Suites "Suite 0" to "Suite 990" in steps of 10, then "Suite A" to
+   * "Suite Y". */
+  private static final String[] SUITES = new String[125];
+
+  private static final String[] STREET_NAMES =
+      Distribution.get("street_names").values(1);
+  private static final String[] STREET_TYPES =
+      Distribution.get("street_type").values(1);
+  private static final String[] CITIES =
+      Distribution.get("cities").values(1);
+
+  private static final Distribution FIPS = Distribution.get("fips_county");
+  private static final int POPULATION = FIPS.weightSet("population");
+  private static final String[] COUNTIES = new String[FIPS.size()];
+  private static final String[] STATES = new String[FIPS.size()];
+  private static final int[] ZIP_PREFIXES = new int[FIPS.size()];
+  private static final int[] GMT_OFFSETS = new int[FIPS.size()];
+
+  static {
+    for (int i = 0; i < STREET_NUMBERS.length; i++) {
+      STREET_NUMBERS[i] = Integer.toString(i + 1);
+    }
+    for (int i = 0; i < 100; i++) {
+      SUITES[i] = "Suite " + i * 10;
+    }
+    for (int i = 0; i < 25; i++) {
+      SUITES[100 + i] = "Suite " + (char) ('A' + i);
+    }
+    for (int i = 0; i < COUNTIES.length; i++) {
+      COUNTIES[i] = FIPS.getValue(i + 1, 2);
+      STATES[i] = FIPS.getValue(i + 1, 3);
+      ZIP_PREFIXES[i] = FIPS.getIntValue(i + 1, 5);
+      GMT_OFFSETS[i] = FIPS.getIntValue(i + 1, 6);
+    }
+  }
+
+  String streetNumber;
+  String streetName;
+  String streetType;
+  String suiteNumber;
+  String city;
+  String county;
+  String state;
+  final Digits zip = new Digits(5);
+  final String country = COUNTRY_NAME;
+  /** GMT offset, in hours. */
+  int gmtOffset;
+
+  /** Generates an address, drawing from the streams of the columns of an
+   * address block that starts at a given ordinal. */
+  void generate(RandomStreams streams, int column) {
+    streetNumber = STREET_NUMBERS[
+        streams.get(column + STREET_NUMBER).nextInt(1, 1000) - 1];
+    streetName = STREET_NAMES[streams.get(column + STREET_NAME)
+        .nextInt(0, STREET_NAMES.length - 1)];
+    streetType = STREET_TYPES[streams.get(column + STREET_TYPE)
+        .nextInt(0, STREET_TYPES.length - 1)];
+    // As in dsdgen, half of suites are numbered and half are lettered.
+    final int suite = streams.get(column + SUITE_NUMBER).nextInt(0, 199);
+    suiteNumber = SUITES[suite < 100 ? suite : 100 + suite % 25];
+    city = CITIES[streams.get(column + CITY).nextInt(0, CITIES.length - 1)];
+    final int c =
+        FIPS.pick(POPULATION, streams.get(column + COUNTY)) - 1;
+    county = COUNTIES[c];
+    state = STATES[c];
+    gmtOffset = GMT_OFFSETS[c];
+    zip.set(ZIP_PREFIXES[c] * 1000
+        + streams.get(column + ZIP).nextInt(0, 999));
+  }
+
+  /** Writes this address into the columns of a buffer, starting at a given
+   * ordinal. */
+  void set(RowBuffer buffer, int column) {
+    buffer.setString(column + STREET_NUMBER, streetNumber);
+    buffer.setString(column + STREET_NAME, streetName);
+    buffer.setString(column + STREET_TYPE, streetType);
+    buffer.setString(column + SUITE_NUMBER, suiteNumber);
+    buffer.setString(column + CITY, city);
+    buffer.setString(column + COUNTY, county);
+    buffer.setString(column + STATE, state);
+    buffer.setString(column + ZIP, zip);
+    buffer.setString(column + COUNTRY, country);
+    buffer.setDecimal(column + GMT_OFFSET, gmtOffset * 100);
+  }
+
+  /** Reusable buffer that holds a non-negative number as a fixed number of
+   * decimal digits, with leading zeros. */
+  static final class Digits implements CharSequence {
+    private final char[] chars;
+
+    Digits(int width) {
+      this.chars = new char[width];
+    }
+
+    /** Sets the contents to the digits of a number, and returns this. */
+    Digits set(int n) {
+      for (int i = chars.length - 1; i >= 0; i--) {
+        chars[i] = (char) ('0' + n % 10);
+        n /= 10;
+      }
+      return this;
+    }
+
+    public int length() {
+      return chars.length;
+    }
+
+    public char charAt(int index) {
+      return chars[index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+      return new String(chars, start, end - start);
+    }
+
+    @Override public String toString() {
+      return new String(chars);
+    }
+  }
+
+  /** Streams of a table that has an address; they also hold the address
+   * and a business key that are reused for every row. */
+  static class Streams extends RandomStreams {
+    final Address address = new Address();
+    final BusinessKey.Buffer id = new BusinessKey.Buffer();
+
+    Streams(int firstColumn, int... seedsPerRow) {
+      super(firstColumn, seedsPerRow);
+    }
+  }
+}
+
+// End Address.java
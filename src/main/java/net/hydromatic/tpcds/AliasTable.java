@@ -0,0 +1,110 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Table for sampling from a discrete weighted distribution in constant time,
+ * using Walker's alias method (with Vose's construction).
+ *
+ * <p>Each of the {@code n} slots has a threshold and an alias. To sample,
+ * scale a uniform number {@code u} in [0, 1) by {@code n}; the integer part
+ * chooses a slot, and the fractional part chooses between the slot itself
+ * and its alias. So a sample costs one uniform number and no search, however
+ * many values the distribution has.
+ */
+public final class AliasTable {
+  private final double[] thresholds;
+  private final int[] aliases;
+
+  private AliasTable(double[] thresholds, int[] aliases) {
+    this.thresholds = thresholds;
+    this.aliases = aliases;
+  }
+
+  /** Creates an alias table for a list of non-negative weights, not all
+   * zero. */
+  public static AliasTable of(int[] weights) {
+    final int n = weights.length;
+    long total = 0;
+    for (int weight : weights) {
+      checkArgument(weight >= 0, "negative weight");
+      total += weight;
+    }
+    checkArgument(total > 0, "all weights are zero");
+    final double[] thresholds = new double[n];
+    final int[] aliases = new int[n];
+    final int[] small = new int[n];
+    final int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      thresholds[i] = (double) weights[i] * n / total;
+      aliases[i] = i;
+      if (thresholds[i] < 1d) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      final int s = small[--smallCount];
+      final int l = large[largeCount - 1];
+      aliases[s] = l;
+      thresholds[l] -= 1d - thresholds[s];
+      if (thresholds[l] < 1d) {
+        --largeCount;
+        small[smallCount++] = l;
+      }
+    }
+    // Whatever remains is full, up to rounding error.
+    while (largeCount > 0) {
+      thresholds[large[--largeCount]] = 1d;
+    }
+    int positive = 0;
+    while (weights[positive] == 0) {
+      ++positive;
+    }
+    while (smallCount > 0) {
+      final int s = small[--smallCount];
+      if (weights[s] > 0) {
+        thresholds[s] = 1d;
+      } else {
+        thresholds[s] = 0d;
+        aliases[s] = positive;
+      }
+    }
+    return new AliasTable(thresholds, aliases);
+  }
+
+  /** Returns the number of values. */
+  public int size() {
+    return thresholds.length;
+  }
+
+  /** Returns the index (from 0) of a value, chosen with probability
+   * proportional to its weight, given a uniform number in [0, 1). */
+  public int sample(double u) {
+    final double x = u * thresholds.length;
+    final int i = (int) x;
+    return x - i < thresholds[i] ? i : aliases[i];
+  }
+}
+
+// End AliasTable.java
@@ -0,0 +1,31 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Cursor that generates the rows of a table a batch at a time.
+ *
+ * <p>A batch cursor is not thread-safe; each thread should use its own.
+ */
+public interface BatchCursor {
+  /** Fills a batch with up to {@link ColumnBatch#capacity} rows; returns
+   * false, leaving the batch empty, if there are no more rows. */
+  boolean next(ColumnBatch batch);
+}
+
+// End BatchCursor.java
@@ -0,0 +1,165 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Business keys, such as {@code d_date_id}.
+ *
+ * <p>As in dsdgen's {@code mk_bkey}, a key is 16 characters, each encoding
+ * 4 bits as one of the letters 'A' to 'P'. Characters 0 to 7 hold the high
+ * 32 bits of the number, and characters 8 to 15 the low 32 bits, least
+ * significant digit first. For example, 2415022 (hex 24D9AE) is
+ * "AAAAAAAAOKJNECAA".
+ *
+ * <p>The encoding is a bijection, so a key can be written straight into a
+ * caller's {@code char[]}, {@code byte[]} or {@link ByteBuffer} without
+ * creating a {@code String}, and decoded back to its number. A loader can
+ * check that keys are unique by setting the decoded numbers in a bit set,
+ * rather than by hashing the strings.
+ */
+public final class BusinessKey {
+  /** Number of characters in a business key. */
+  public static final int LENGTH = 16;
+
+  private BusinessKey() {}
+
+  /** Returns the business key of a number. */
+  public static String of(long n) {
+    final char[] chars = new char[LENGTH];
+    encode(n, chars, 0);
+    return new String(chars);
+  }
+
+  /** Writes the business key of a number into 16 elements of a char
+   * array, starting at {@code offset}. */
+  public static void encode(long n, char[] dest, int offset) {
+    int high = (int) (n >>> 32);
+    int low = (int) n;
+    for (int i = 0; i < 8; i++) {
+      dest[offset + i] = (char) ('A' + (high & 0xF));
+      dest[offset + 8 + i] = (char) ('A' + (low & 0xF));
+      high >>>= 4;
+      low >>>= 4;
+    }
+  }
+
+  /** Writes the business key of a number, as ASCII, into 16 elements of a
+   * byte array, starting at {@code offset}. */
+  public static void encode(long n, byte[] dest, int offset) {
+    int high = (int) (n >>> 32);
+    int low = (int) n;
+    for (int i = 0; i < 8; i++) {
+      dest[offset + i] = (byte) ('A' + (high & 0xF));
+      dest[offset + 8 + i] = (byte) ('A' + (low & 0xF));
+      high >>>= 4;
+      low >>>= 4;
+    }
+  }
+
+  /** Writes the business key of a number, as ASCII, at the current position
+   * of a buffer, and advances the position by 16. */
+  public static void encode(long n, ByteBuffer dest) {
+    final int position = dest.position();
+    if (dest.hasArray()) {
+      encode(n, dest.array(), dest.arrayOffset() + position);
+    } else {
+      int high = (int) (n >>> 32);
+      int low = (int) n;
+      for (int i = 0; i < 8; i++) {
+        dest.put(position + i, (byte) ('A' + (high & 0xF)));
+        dest.put(position + 8 + i, (byte) ('A' + (low & 0xF)));
+        high >>>= 4;
+        low >>>= 4;
+      }
+    }
+    dest.position(position + LENGTH);
+  }
+
+  /** Returns the number whose business key is {@code key}.
+   *
+   * @throws IllegalArgumentException if {@code key} is not a business key
+   */
+  public static long decode(CharSequence key) {
+    if (key.length() != LENGTH) {
+      throw new IllegalArgumentException("not a business key: " + key);
+    }
+    long high = 0;
+    long low = 0;
+    for (int i = 7; i >= 0; i--) {
+      high = high << 4 | digit(key.charAt(i), key);
+      low = low << 4 | digit(key.charAt(8 + i), key);
+    }
+    return high << 32 | low;
+  }
+
+  /** Returns the number whose business key, as ASCII, is in 16 elements of
+   * a byte array, starting at {@code offset}.
+   *
+   * @throws IllegalArgumentException if the bytes are not a business key
+   */
+  public static long decode(byte[] src, int offset) {
+    long high = 0;
+    long low = 0;
+    for (int i = 7; i >= 0; i--) {
+      high = high << 4 | digit((char) src[offset + i], null);
+      low = low << 4 | digit((char) src[offset + 8 + i], null);
+    }
+    return high << 32 | low;
+  }
+
+  private static int digit(char c, CharSequence key) {
+    if (c < 'A' || c > 'P') {
+      throw new IllegalArgumentException("not a business key: "
+          + (key == null ? "invalid character " + c : key));
+    }
+    return c - 'A';
+  }
+
+  /** Reusable business key, for generators that do not want to create a
+   * {@code String} per row. */
+  public static final class Buffer implements CharSequence {
+    private final char[] chars = new char[LENGTH];
+
+    /** Sets the contents to the business key of a number, and returns
+     * this. */
+    public Buffer set(long n) {
+      encode(n, chars, 0);
+      return this;
+    }
+
+    public int length() {
+      return LENGTH;
+    }
+
+    public char charAt(int index) {
+      return chars[index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+      return new String(chars, start, end - start);
+    }
+
+    @Override public String toString() {
+      return new String(chars);
+    }
+  }
+}
+
+// End BusinessKey.java
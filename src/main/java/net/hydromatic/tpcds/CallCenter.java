@@ -18,8 +18,6 @@
 package net.hydromatic.tpcds;
 
 import java.sql.Date;
-import java.util.Collections;
-import java.util.Iterator;
 
 import static java.util.Locale.ENGLISH;
 
@@ -171,16 +169,6 @@ public class CallCenter implements TpcdsEntity {
       return type;
     }
   }
-
-  /** Value generator. */
-  public static class Generator implements Iterable<CallCenter> {
-    public Generator(double scaleFactor, int part, int partCount) {
-    }
-
-    public Iterator<CallCenter> iterator() {
-      return Collections.emptyIterator();
-    }
-  }
 }
 
 // End CallCenter.java
@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code catalog_returns} TPC-DS table. */
 public class CatalogReturn implements TpcdsEntity {
@@ -54,8 +52,8 @@ public class CatalogReturn implements TpcdsEntity {
   public final Integer warehouseSk;
   // cr_reason_sk              integer
   public final Integer reasonSk;
-  // cr_order_number           integer               not null
-  public final int orderNumber;
+  // cr_order_number           bigint                not null
+  public final long orderNumber;
   // cr_return_quantity        integer
   public final Integer returnQuantity;
   // cr_return_amount          decimal(7,2)
@@ -84,7 +82,7 @@ public class CatalogReturn implements TpcdsEntity {
       Integer returningCustomerSk, Integer returningCdemoSk,
       Integer returningHdemoSk, Integer returningAddrSk, Integer callCenterSk,
       Integer catalogPageSk, Integer shipModeSk, Integer warehouseSk,
-      Integer reasonSk, int orderNumber, Integer returnQuantity,
+      Integer reasonSk, long orderNumber, Integer returnQuantity,
       Float returnAmount, Float returnTax, Float returnAmtIncTax, Float fee,
       Float returnShipCost, Float refundedCash, Float reversedCharge,
       Float storeCredit, Float netLoss) {
@@ -118,8 +116,37 @@ public class CatalogReturn implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(returnedDateSk, returnedTimeSk, itemSk,
+        refundedCustomerSk, refundedCdemoSk, refundedHdemoSk, refundedAddrSk,
+        returningCustomerSk, returningCdemoSk, returningHdemoSk,
+        returningAddrSk, callCenterSk, catalogPageSk, shipModeSk, warehouseSk,
+        reasonSk, orderNumber, returnQuantity, returnAmount, returnTax,
+        returnAmtIncTax, fee, returnShipCost, refundedCash, reversedCharge,
+        storeCredit, netLoss);
+  }
+
+  /** Value generator. Each row is derived from a row of
+   * {@code catalog_sales}. */
+  public static class Generator extends ReturnsGenerator<CatalogReturn> {
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(
+          new CatalogSale.Generator(scaleFactor, 0,
+              TpcdsTable.CATALOG_SALES.getRowCount(scaleFactor)),
+          firstRow, rowCount);
+    }
+
+    protected CatalogReturn toEntity(RowBuffer buffer) {
+      return new CatalogReturn(buffer.getInteger(0), buffer.getInteger(1),
+          buffer.getInt(2), buffer.getInteger(3), buffer.getInteger(4),
+          buffer.getInteger(5), buffer.getInteger(6), buffer.getInteger(7),
+          buffer.getInteger(8), buffer.getInteger(9), buffer.getInteger(10),
+          buffer.getInteger(11), buffer.getInteger(12), buffer.getInteger(13),
+          buffer.getInteger(14), buffer.getInteger(15), buffer.getLong(16),
+          buffer.getInteger(17), buffer.getFloat(18), buffer.getFloat(19),
+          buffer.getFloat(20), buffer.getFloat(21), buffer.getFloat(22),
+          buffer.getFloat(23), buffer.getFloat(24), buffer.getFloat(25),
+          buffer.getFloat(26));
+    }
   }
 }
 
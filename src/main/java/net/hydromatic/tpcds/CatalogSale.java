@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code catalog_sales} TPC-DS table. */
 public class CatalogSale implements TpcdsEntity {
@@ -56,8 +54,8 @@ public class CatalogSale implements TpcdsEntity {
   public final int itemSk;
   // cs_promo_sk               integer
   public final Integer promoSk;
-  // cs_order_number           integer               not null
-  public final int orderNumber;
+  // cs_order_number           bigint                not null
+  public final long orderNumber;
   // cs_quantity               integer
   public final Integer quantity;
   // cs_wholesale_cost         decimal(7,2)
@@ -97,7 +95,7 @@ public class CatalogSale implements TpcdsEntity {
       Integer billAddrSk, Integer shipCustomerSk, Integer shipCdemoSk,
       Integer shipHdemoSk, Integer shipAddrSk, Integer callCenterSk,
       Integer catalogPageSk, Integer shipModeSk, Integer warehouseSk,
-      int itemSk, Integer promoSk, int orderNumber, Integer quantity,
+      int itemSk, Integer promoSk, long orderNumber, Integer quantity,
       Float wholesaleCost, Float listPrice, Float salesPrice,
       Float extDiscountAmt, Float extSalesPrice, Float extWholesaleCost,
       Float extListPrice, Float extTax, Float couponAmt, Float extShipCost,
@@ -140,8 +138,154 @@ public class CatalogSale implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(soldDateSk, soldTimeSk, shipDateSk, billCustomerSk,
+        billCdemoSk, billHdemoSk, billAddrSk, shipCustomerSk, shipCdemoSk,
+        shipHdemoSk, shipAddrSk, callCenterSk, catalogPageSk, shipModeSk,
+        warehouseSk, itemSk, promoSk, orderNumber, quantity, wholesaleCost,
+        listPrice, salesPrice, extDiscountAmt, extSalesPrice, extWholesaleCost,
+        extListPrice, extTax, couponAmt, extShipCost, netPaid, netPaidIncTax,
+        netPaidIncShip, netPaidIncShipTax, netProfit);
+  }
+
+  /** Value generator.
+   *
+   * <p>Each order has between 4 and 14 line items, all ordered at the same
+   * time, by the same customer, through the same call center. Line items
+   * may be shipped on different dates, from different warehouses. */
+  public static class Generator extends SalesGenerator<CatalogSale> {
+    static final Tickets TICKETS = new Tickets(4, 14);
+
+    private static final int SOLD_DATE_SK = 0;
+    private static final int SOLD_TIME_SK = 1;
+    private static final int SHIP_DATE_SK = 2;
+    private static final int BILL_CUSTOMER_SK = 3;
+    private static final int SHIP_CUSTOMER_SK = 7;
+    private static final int CALL_CENTER_SK = 11;
+    private static final int CATALOG_PAGE_SK = 12;
+    private static final int SHIP_MODE_SK = 13;
+    private static final int WAREHOUSE_SK = 14;
+    private static final int ITEM_SK = 15;
+    private static final int PROMO_SK = 16;
+    private static final int ORDER_NUMBER = 17;
+    private static final int QUANTITY = 18;
+
+    private static final int RETURNED_DATE_SK = 0;
+    private static final int RETURNED_TIME_SK = 1;
+    private static final int RETURN_ITEM_SK = 2;
+    private static final int REFUNDED_CUSTOMER_SK = 3;
+    private static final int RETURN_CALL_CENTER_SK = 11;
+    private static final int REASON_SK = 15;
+    private static final int RETURN_ORDER_NUMBER = 16;
+    private static final int RETURN_QUANTITY = 17;
+
+    private final int callCenterCount;
+    private final int catalogPageCount;
+    private final int shipModeCount;
+    private final int warehouseCount;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, TpcdsTable.CATALOG_SALES,
+          TpcdsTable.CATALOG_RETURNS, TICKETS, ITEM_SK, QUANTITY, true);
+      this.callCenterCount = count("call_center");
+      this.catalogPageCount = count("catalog_page");
+      this.shipModeCount = count("ship_mode");
+      this.warehouseCount = count("warehouse");
+    }
+
+    protected int[] ticketSeeds() {
+      return new int[] {
+        1, 1, 0, 1, 1, 1, 1, 2, 1, 1, 1, 1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
+      };
+    }
+
+    protected int[] lineSeeds() {
+      return new int[] {
+        0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 0, 1, 0, PRICING_SEEDS,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
+      };
+    }
+
+    protected int[] returnSeeds() {
+      return new int[] {
+        2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0,
+        RETURN_PRICING_SEEDS, 0, 0, 0, 0, 0, 0, 0, 0, 0
+      };
+    }
+
+    protected long lineColumnMask() {
+      return mask(SHIP_DATE_SK, CATALOG_PAGE_SK, SHIP_MODE_SK, WAREHOUSE_SK,
+          ITEM_SK, PROMO_SK) | maskFrom(QUANTITY);
+    }
+
+    protected void generateTicket(long ticket, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(SOLD_DATE_SK, soldDateSk(streams.get(SOLD_DATE_SK)));
+      buffer.setInt(SOLD_TIME_SK,
+          streams.get(SOLD_TIME_SK).nextInt(0, LAST_TIME_SK));
+      generateCustomer(streams, buffer, BILL_CUSTOMER_SK);
+      generateShipCustomer(streams, buffer, BILL_CUSTOMER_SK,
+          SHIP_CUSTOMER_SK);
+      buffer.setInt(CALL_CENTER_SK,
+          streams.get(CALL_CENTER_SK).nextInt(1, callCenterCount));
+      // The item column holds the order's base item until generateLine
+      // replaces it.
+      buffer.setInt(ITEM_SK, streams.get(ITEM_SK).nextInt(0, itemCount - 1));
+      buffer.setLong(ORDER_NUMBER, ticket);
+    }
+
+    protected void generateLine(long row, int line, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(SHIP_DATE_SK, buffer.getInt(SOLD_DATE_SK)
+          + streams.get(SHIP_DATE_SK).nextInt(2, 90));
+      buffer.setInt(CATALOG_PAGE_SK,
+          streams.get(CATALOG_PAGE_SK).nextInt(1, catalogPageCount));
+      buffer.setInt(SHIP_MODE_SK,
+          streams.get(SHIP_MODE_SK).nextInt(1, shipModeCount));
+      buffer.setInt(WAREHOUSE_SK,
+          streams.get(WAREHOUSE_SK).nextInt(1, warehouseCount));
+      buffer.setInt(ITEM_SK, itemSk(buffer.getInt(ITEM_SK), line));
+      buffer.setInt(PROMO_SK,
+          streams.get(PROMO_SK).nextInt(1, promotionCount));
+    }
+
+    protected void generateReturn(RowBuffer sale, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(RETURNED_DATE_SK, sale.getInt(SHIP_DATE_SK)
+          + streams.get(RETURNED_DATE_SK).nextInt(1, 90));
+      buffer.setInt(RETURNED_TIME_SK,
+          streams.get(RETURNED_TIME_SK).nextInt(0, LAST_TIME_SK));
+      buffer.setInt(RETURN_ITEM_SK, sale.getInt(ITEM_SK));
+      // The refunded customer is the one who paid; the returning customer
+      // is the one to whom the order was shipped.
+      for (int i = 0; i < 8; i++) {
+        buffer.setInt(REFUNDED_CUSTOMER_SK + i,
+            sale.getInt(BILL_CUSTOMER_SK + i));
+      }
+      for (int i = 0; i < 4; i++) {
+        buffer.setInt(RETURN_CALL_CENTER_SK + i,
+            sale.getInt(CALL_CENTER_SK + i));
+      }
+      buffer.setInt(REASON_SK, streams.get(REASON_SK).nextInt(1, reasonCount));
+      buffer.setLong(RETURN_ORDER_NUMBER, sale.getLong(ORDER_NUMBER));
+      generateReturnPricing(streams.get(RETURN_QUANTITY), sale, QUANTITY,
+          true, buffer, RETURN_QUANTITY);
+    }
+
+    protected CatalogSale toEntity(RowBuffer buffer) {
+      return new CatalogSale(buffer.getInteger(0), buffer.getInteger(1),
+          buffer.getInteger(2), buffer.getInteger(3), buffer.getInteger(4),
+          buffer.getInteger(5), buffer.getInteger(6), buffer.getInteger(7),
+          buffer.getInteger(8), buffer.getInteger(9), buffer.getInteger(10),
+          buffer.getInteger(11), buffer.getInteger(12), buffer.getInteger(13),
+          buffer.getInteger(14), buffer.getInt(15), buffer.getInteger(16),
+          buffer.getLong(17), buffer.getInteger(18), buffer.getFloat(19),
+          buffer.getFloat(20), buffer.getFloat(21), buffer.getFloat(22),
+          buffer.getFloat(23), buffer.getFloat(24), buffer.getFloat(25),
+          buffer.getFloat(26), buffer.getFloat(27), buffer.getFloat(28),
+          buffer.getFloat(29), buffer.getFloat(30), buffer.getFloat(31),
+          buffer.getFloat(32), buffer.getFloat(33));
+    }
   }
 }
 
@@ -0,0 +1,174 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.ImmutableList;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch of rows of a table, stored as one vector per column.
+ *
+ * <p>Integer and date columns are stored in an {@code int[]}; decimal
+ * columns in a {@code long[]} of unscaled values (in hundredths); character
+ * columns in a {@code String[]}. Each column has a null bitmap: bit
+ * {@code i % 64} of word {@code i / 64} is set if row {@code i} is null.
+ *
+ * <p>A batch is filled by a {@link BatchCursor}, and may be reused for the
+ * next batch.
+ */
+public class ColumnBatch {
+  public final int capacity;
+  public final ImmutableList<Kind> kinds;
+  private final Object[] vectors;
+  private final long[][] nulls;
+  private int size;
+  private long firstRow;
+
+  private ColumnBatch(int capacity, ImmutableList<Kind> kinds) {
+    this.capacity = capacity;
+    this.kinds = kinds;
+    this.vectors = new Object[kinds.size()];
+    this.nulls = new long[kinds.size()][(capacity + 63) / 64];
+    for (int i = 0; i < kinds.size(); i++) {
+      switch (kinds.get(i)) {
+      case INT:
+        vectors[i] = new int[capacity];
+        break;
+      case LONG:
+      case DECIMAL:
+        vectors[i] = new long[capacity];
+        break;
+      default:
+        vectors[i] = new String[capacity];
+      }
+    }
+  }
+
+  /** Creates a batch for a table's columns. */
+  public static ColumnBatch of(List<? extends TpcdsColumn<?>> columns,
+      int capacity) {
+    final ImmutableList.Builder<Kind> kinds = ImmutableList.builder();
+    for (TpcdsColumn<?> column : columns) {
+      kinds.add(Kind.of(column.getType()));
+    }
+    return new ColumnBatch(capacity, kinds.build());
+  }
+
+  /** Returns the number of valid rows. */
+  public int getSize() {
+    return size;
+  }
+
+  /** Returns the row number of the first row in the batch. */
+  public long getFirstRow() {
+    return firstRow;
+  }
+
+  /** Prepares the batch to receive {@code size} rows, starting at row
+   * {@code firstRow}, and marks them all not null. */
+  public void reset(long firstRow, int size) {
+    this.firstRow = firstRow;
+    this.size = size;
+    final int words = (size + 63) / 64;
+    for (long[] bits : nulls) {
+      Arrays.fill(bits, 0, words, 0L);
+    }
+  }
+
+  /** Returns the vector of an {@link Kind#INT} column. */
+  public int[] getInts(int column) {
+    return (int[]) vectors[column];
+  }
+
+  /** Returns the vector of a {@link Kind#LONG} column. */
+  public long[] getLongs(int column) {
+    return (long[]) vectors[column];
+  }
+
+  /** Returns the vector of a {@link Kind#DECIMAL} column; each value is
+   * unscaled, in hundredths. */
+  public long[] getDecimals(int column) {
+    return (long[]) vectors[column];
+  }
+
+  /** Returns the vector of a {@link Kind#STRING} column. */
+  public String[] getStrings(int column) {
+    return (String[]) vectors[column];
+  }
+
+  /** Returns the null bitmap of a column. */
+  public long[] getNulls(int column) {
+    return nulls[column];
+  }
+
+  public boolean isNull(int column, int row) {
+    return (nulls[column][row >>> 6] & (1L << row)) != 0;
+  }
+
+  public void setNull(int column, int row) {
+    nulls[column][row >>> 6] |= 1L << row;
+  }
+
+  /** Copies a row from a buffer into position {@code row} of this batch. */
+  public void set(int row, RowBuffer buffer) {
+    for (int i = 0; i < vectors.length; i++) {
+      if (buffer.isNull(i)) {
+        setNull(i, row);
+        continue;
+      }
+      switch (kinds.get(i)) {
+      case INT:
+        ((int[]) vectors[i])[row] = buffer.getInt(i);
+        break;
+      case LONG:
+      case DECIMAL:
+        ((long[]) vectors[i])[row] = buffer.getLong(i);
+        break;
+      default:
+        ((String[]) vectors[i])[row] = buffer.getString(i).toString();
+      }
+    }
+  }
+
+  /** How a column's values are stored. */
+  public enum Kind {
+    INT, LONG, DECIMAL, STRING;
+
+    /** Returns the kind of vector that holds values of a given Java
+     * type. Dates are stored as julian day numbers. */
+    public static Kind of(Class<?> type) {
+      if (type == int.class || type == Integer.class
+          || type == Date.class) {
+        return INT;
+      }
+      if (type == long.class || type == Long.class) {
+        return LONG;
+      }
+      if (type == float.class || type == Float.class
+          || type == double.class || type == Double.class) {
+        return DECIMAL;
+      }
+      return STRING;
+    }
+  }
+}
+
+// End ColumnBatch.java
@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code customer_address} TPC-DS table. */
 public class CustomerAddress implements TpcdsEntity {
@@ -70,8 +68,55 @@ public class CustomerAddress implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(addressSk, addressId, streetNumber, streetName,
+        streetType, suiteNumber, city, county, state, zip, country, gmtOffset,
+        locationType);
+  }
+
+  /** Value generator.
+   *
+   * <p>At large scale factors this is one of the largest dimension tables,
+   * so each row is generated without allocating: the address comes from the
+   * shared {@link Address} generator, and the business key is encoded into
+   * a reused buffer. */
+  public static class Generator extends RowGenerator<CustomerAddress> {
+    private static final int ADDRESS = 2;
+    private static final int LOCATION_TYPE = ADDRESS + Address.COLUMN_COUNT;
+
+    private static final Distribution LOCATION_TYPES =
+        Distribution.get("location_type");
+    private static final String[] LOCATION_TYPE_VALUES =
+        Distribution.get("location_type").values(1);
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, LOCATION_TYPE + 1);
+    }
+
+    protected RandomStreams createStreams() {
+      // Columns: sk, id, the address block, location type.
+      return new Address.Streams(TpcdsTable.CUSTOMER_ADDRESS.nFirstColumn,
+          0, 0, 1, 1, 1, 1, 1, 1, 0, 1, 0, 0, 1);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      final Address.Streams addressStreams = (Address.Streams) streams;
+      buffer.setInt(0, (int) (row + 1));
+      buffer.setString(1, addressStreams.id.set(row + 1));
+      addressStreams.address.generate(streams, ADDRESS);
+      addressStreams.address.set(buffer, ADDRESS);
+      buffer.setString(LOCATION_TYPE,
+          LOCATION_TYPE_VALUES[
+              LOCATION_TYPES.pick(1, streams.get(LOCATION_TYPE)) - 1]);
+    }
+
+    protected CustomerAddress toEntity(RowBuffer buffer) {
+      return new CustomerAddress(buffer.getInt(0), string(buffer, 1),
+          string(buffer, 2), string(buffer, 3), string(buffer, 4),
+          string(buffer, 5), string(buffer, 6), string(buffer, 7),
+          string(buffer, 8), string(buffer, 9), string(buffer, 10),
+          buffer.getFloat(11), string(buffer, 12));
+    }
   }
 }
 
@@ -17,7 +17,7 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
+import static com.google.common.base.Preconditions.checkArgument;
 
 /** Entity corresponding to a row in the
  * {@code customer_demographics} TPC-DS table. */
@@ -57,8 +57,133 @@ public class CustomerDemographic implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(demoSk, gender, maritalStatus, educationStatus,
+        purchaseEstimate, creditRating, depCount, depEmployedCount,
+        depCollegeCount);
+  }
+
+  /** Value generator.
+   *
+   * <p>As in dsdgen, the table is the cross product of its attributes, and
+   * has no random columns. Row <i>n</i> is the number <i>n</i> written in a
+   * mixed radix whose digits are gender (varying fastest), marital status,
+   * education, purchase estimate, credit rating, and the three dependent
+   * counts. So any row can be decoded directly from its number; see
+   * {@link #get(int)}. */
+  public static class Generator extends RowGenerator<CustomerDemographic> {
+    private static final String[] GENDERS =
+        Distribution.get("gender").values(1);
+    private static final String[] MARITAL_STATUSES =
+        Distribution.get("marital_status").values(1);
+    private static final String[] EDUCATIONS =
+        Distribution.get("education").values(1);
+    private static final int PURCHASE_BANDS =
+        Distribution.get("purchase_band").size();
+    private static final String[] CREDIT_RATINGS =
+        Distribution.get("credit_rating").values(1);
+
+    /** Number of values of each dependent count, 0 to 6. */
+    private static final int DEPENDENTS = 7;
+
+    /** Purchase estimate step; band <i>i</i> is 500 &times; (<i>i</i> +
+     * 1). */
+    private static final int PURCHASE_STEP = 500;
+
+    /** Number of rows; the product of the radixes. */
+    public static final int ROW_COUNT = GENDERS.length
+        * MARITAL_STATUSES.length * EDUCATIONS.length * PURCHASE_BANDS
+        * CREDIT_RATINGS.length * DEPENDENTS * DEPENDENTS * DEPENDENTS;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, 9);
+    }
+
+    protected RandomStreams createStreams() {
+      return new RandomStreams(TpcdsTable.CUSTOMER_DEMOGRAPHICS.nFirstColumn,
+          0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      int n = (int) row;
+      buffer.setInt(0, n + 1);
+      buffer.setString(1, GENDERS[n % GENDERS.length]);
+      n /= GENDERS.length;
+      buffer.setString(2, MARITAL_STATUSES[n % MARITAL_STATUSES.length]);
+      n /= MARITAL_STATUSES.length;
+      buffer.setString(3, EDUCATIONS[n % EDUCATIONS.length]);
+      n /= EDUCATIONS.length;
+      buffer.setInt(4, (n % PURCHASE_BANDS + 1) * PURCHASE_STEP);
+      n /= PURCHASE_BANDS;
+      buffer.setString(5, CREDIT_RATINGS[n % CREDIT_RATINGS.length]);
+      n /= CREDIT_RATINGS.length;
+      buffer.setInt(6, n % DEPENDENTS);
+      n /= DEPENDENTS;
+      buffer.setInt(7, n % DEPENDENTS);
+      n /= DEPENDENTS;
+      buffer.setInt(8, n % DEPENDENTS);
+    }
+
+    @Override protected void generateBatch(long row, int count,
+        RandomStreams streams, ColumnBatch batch) {
+      // Decode the first row, then count up like an odometer.
+      final int[] digits = new int[8];
+      final int[] radixes = {
+        GENDERS.length, MARITAL_STATUSES.length, EDUCATIONS.length,
+        PURCHASE_BANDS, CREDIT_RATINGS.length, DEPENDENTS, DEPENDENTS,
+        DEPENDENTS
+      };
+      int n = (int) row;
+      for (int d = 0; d < digits.length; d++) {
+        digits[d] = n % radixes[d];
+        n /= radixes[d];
+      }
+      final int[] demoSks = batch.getInts(0);
+      final String[] genders = batch.getStrings(1);
+      final String[] maritalStatuses = batch.getStrings(2);
+      final String[] educations = batch.getStrings(3);
+      final int[] purchaseEstimates = batch.getInts(4);
+      final String[] creditRatings = batch.getStrings(5);
+      final int[] depCounts = batch.getInts(6);
+      final int[] depEmployedCounts = batch.getInts(7);
+      final int[] depCollegeCounts = batch.getInts(8);
+      for (int i = 0; i < count; i++) {
+        demoSks[i] = (int) row + i + 1;
+        genders[i] = GENDERS[digits[0]];
+        maritalStatuses[i] = MARITAL_STATUSES[digits[1]];
+        educations[i] = EDUCATIONS[digits[2]];
+        purchaseEstimates[i] = (digits[3] + 1) * PURCHASE_STEP;
+        creditRatings[i] = CREDIT_RATINGS[digits[4]];
+        depCounts[i] = digits[5];
+        depEmployedCounts[i] = digits[6];
+        depCollegeCounts[i] = digits[7];
+        for (int d = 0; d < digits.length && ++digits[d] == radixes[d];
+            d++) {
+          digits[d] = 0;
+        }
+      }
+    }
+
+    protected CustomerDemographic toEntity(RowBuffer buffer) {
+      return new CustomerDemographic(buffer.getInt(0),
+          buffer.getString(1).toString(), buffer.getString(2).toString(),
+          buffer.getString(3).toString(), buffer.getInteger(4),
+          buffer.getString(5).toString(), buffer.getInteger(6),
+          buffer.getInteger(7), buffer.getInteger(8));
+    }
+
+    /** Returns the row with a given surrogate key, in constant time.
+     *
+     * @throws IllegalArgumentException if the key is not between 1 and
+     *   {@link #ROW_COUNT} */
+    public static CustomerDemographic get(int demoSk) {
+      checkArgument(demoSk >= 1 && demoSk <= ROW_COUNT,
+          "key %s out of range 1..%s", demoSk, ROW_COUNT);
+      final Generator generator = new Generator(1, demoSk - 1, 1);
+      final RowBuffer buffer = new RowBuffer(generator.columnCount);
+      generator.generateRow(demoSk - 1, null, buffer);
+      return generator.toEntity(buffer);
+    }
   }
 }
 
@@ -19,8 +19,6 @@ package net.hydromatic.tpcds;
 
 import java.sql.Date;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code date_dim} TPC-DS table. */
 public class DateDim implements TpcdsEntity {
@@ -121,10 +119,360 @@ public class DateDim implements TpcdsEntity {
     this.currentYear = currentYear;
   }
 
-
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(dateSk, dateId, date, monthSeq, weekSeq, quarterSeq,
+        year, dow, moy, dom, qoy, fyYear, fyQuarterSeq, fyWeekSeq, dayName,
+        quarterName, holiday, weekend, followingHoliday, firstDom, lastDom,
+        sameDayLy, sameDayLq, currentDay, currentWeek, currentMonth,
+        currentQuarter, currentYear);
+  }
+
+  /** Value generator.
+   *
+   * <p>The table is the same at every scale factor: one row per day from
+   * 1900-01-02 to 2100-01-01, whose surrogate key is the julian day number.
+   * It has no random columns. The whole table is computed once per JVM,
+   * the first time it is needed, into one array per column; after that,
+   * generating rows, or looking up an attribute of a date (see
+   * {@link #getInt(int, int)}), is an array access, and generating a batch
+   * is a copy. */
+  public static class Generator extends RowGenerator<DateDim> {
+    /** Julian day number of 1900-01-02, the first date. */
+    public static final int FIRST_DATE_SK = 2415022;
+
+    /** Number of rows. */
+    public static final int ROW_COUNT = 73049;
+
+    /** Number of characters in the ISO 8601 text of a date, such as
+     * "1998-01-02". */
+    public static final int DATE_LENGTH = 10;
+
+    /** Julian day number of 2003-01-08, the date that is considered
+     * "today" by the {@code d_current_xxx} columns. */
+    public static final int CURRENT_DATE_SK = 2452648;
+
+    static final int DATE_SK = 0;
+    static final int DATE_ID = 1;
+    static final int DATE = 2;
+    public static final int MONTH_SEQ = 3;
+    public static final int WEEK_SEQ = 4;
+    public static final int QUARTER_SEQ = 5;
+    public static final int YEAR = 6;
+    public static final int DOW = 7;
+    public static final int MOY = 8;
+    public static final int DOM = 9;
+    public static final int QOY = 10;
+    public static final int FY_YEAR = 11;
+    public static final int FY_QUARTER_SEQ = 12;
+    public static final int FY_WEEK_SEQ = 13;
+    static final int DAY_NAME = 14;
+    static final int QUARTER_NAME = 15;
+    static final int HOLIDAY = 16;
+    static final int WEEKEND = 17;
+    static final int FOLLOWING_HOLIDAY = 18;
+    public static final int FIRST_DOM = 19;
+    public static final int LAST_DOM = 20;
+    public static final int SAME_DAY_LY = 21;
+    public static final int SAME_DAY_LQ = 22;
+    static final int CURRENT_DAY = 23;
+    static final int CURRENT_YEAR = 27;
+    static final int COLUMN_COUNT = 28;
+
+    private static final String[] DAY_NAMES = {
+      "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
+      "Saturday"
+    };
+
+    /** Holidays, as (month, day) pairs. As in dsdgen's {@code calendar}
+     * distribution, they fall on the same date every year. */
+    private static final int[] HOLIDAYS = {
+      1, 1, 1, 15, 2, 15, 5, 30, 7, 4, 9, 1, 10, 12, 11, 11, 11, 25, 12, 25
+    };
+
+    private static final int[] DAYS_IN_MONTH = {
+      0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31
+    };
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, COLUMN_COUNT);
+    }
+
+    protected RandomStreams createStreams() {
+      return new RandomStreams(TpcdsTable.DATE_DIM.nFirstColumn,
+          new int[COLUMN_COUNT]);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      final int r = (int) row;
+      for (int i = 0; i < COLUMN_COUNT; i++) {
+        final int[] ints = Data.INTS[i];
+        if (ints != null) {
+          buffer.setInt(i, ints[r]);
+        } else {
+          buffer.setString(i, Data.STRINGS[i][r]);
+        }
+      }
+    }
+
+    @Override protected void generateBatch(long row, int count,
+        RandomStreams streams, ColumnBatch batch) {
+      for (int i = 0; i < COLUMN_COUNT; i++) {
+        final int[] ints = Data.INTS[i];
+        if (ints != null) {
+          System.arraycopy(ints, (int) row, batch.getInts(i), 0, count);
+        } else {
+          System.arraycopy(Data.STRINGS[i], (int) row, batch.getStrings(i),
+              0, count);
+        }
+      }
+    }
+
+    protected DateDim toEntity(RowBuffer buffer) {
+      final Integer[] ints = new Integer[COLUMN_COUNT];
+      final String[] strings = new String[COLUMN_COUNT];
+      for (int i = 0; i < COLUMN_COUNT; i++) {
+        if (Data.INTS[i] != null) {
+          ints[i] = buffer.getInt(i);
+        } else {
+          strings[i] = buffer.getString(i).toString();
+        }
+      }
+      return new DateDim(ints[DATE_SK], strings[DATE_ID],
+          toDate(ints[DATE]), ints[MONTH_SEQ], ints[WEEK_SEQ],
+          ints[QUARTER_SEQ], ints[YEAR], ints[DOW], ints[MOY], ints[DOM],
+          ints[QOY], ints[FY_YEAR], ints[FY_QUARTER_SEQ], ints[FY_WEEK_SEQ],
+          strings[DAY_NAME], strings[QUARTER_NAME], strings[HOLIDAY],
+          strings[WEEKEND], strings[FOLLOWING_HOLIDAY], ints[FIRST_DOM],
+          ints[LAST_DOM], ints[SAME_DAY_LY], ints[SAME_DAY_LQ],
+          strings[CURRENT_DAY], strings[CURRENT_DAY + 1],
+          strings[CURRENT_DAY + 2], strings[CURRENT_DAY + 3],
+          strings[CURRENT_YEAR]);
+    }
+
+    /** Returns the value of an integer column, such as {@link #YEAR}, for
+     * a date, in constant time. */
+    public static int getInt(int column, int dateSk) {
+      return Data.INTS[column][dateSk - FIRST_DATE_SK];
+    }
+
+    /** Returns the row of a date, in constant time. */
+    public static DateDim get(int dateSk) {
+      final Generator generator =
+          new Generator(1, dateSk - FIRST_DATE_SK, 1);
+      final RowBuffer buffer = new RowBuffer(COLUMN_COUNT);
+      generator.generateRow(dateSk - FIRST_DATE_SK, null, buffer);
+      return generator.toEntity(buffer);
+    }
+
+    /** Converts a julian day number to a date. For building entities;
+     * generators represent dates as julian day numbers. */
+    static Date toDate(int julian) {
+      return Date.valueOf(formatDate(julian));
+    }
+
+    /** Returns the ISO 8601 text of a julian day number, such as
+     * "1998-01-02". */
+    public static String formatDate(int julian) {
+      final char[] chars = new char[DATE_LENGTH];
+      formatDate(julian, chars, 0);
+      return new String(chars);
+    }
+
+    /** Writes the ISO 8601 text of a julian day number, as
+     * {@link #DATE_LENGTH} ASCII bytes, into an array starting at
+     * {@code offset}. Dates in the range of the table are copied from a
+     * precomputed table, so this is a single array copy. */
+    public static void formatDate(int julian, byte[] dest, int offset) {
+      final int r = julian - FIRST_DATE_SK;
+      if (r >= 0 && r < ROW_COUNT) {
+        System.arraycopy(Iso.BYTES, r * DATE_LENGTH, dest, offset,
+            DATE_LENGTH);
+      } else {
+        final int[] ymd = ymd(julian);
+        Iso.format(ymd[0], ymd[1], ymd[2], dest, offset);
+      }
+    }
+
+    /** Writes the ISO 8601 text of a julian day number, as
+     * {@link #DATE_LENGTH} characters, into an array starting at
+     * {@code offset}. */
+    public static void formatDate(int julian, char[] dest, int offset) {
+      final int r = julian - FIRST_DATE_SK;
+      if (r >= 0 && r < ROW_COUNT) {
+        final byte[] bytes = Iso.BYTES;
+        final int start = r * DATE_LENGTH;
+        for (int i = 0; i < DATE_LENGTH; i++) {
+          dest[offset + i] = (char) bytes[start + i];
+        }
+      } else {
+        final byte[] bytes = new byte[DATE_LENGTH];
+        final int[] ymd = ymd(julian);
+        Iso.format(ymd[0], ymd[1], ymd[2], bytes, 0);
+        for (int i = 0; i < DATE_LENGTH; i++) {
+          dest[offset + i] = (char) bytes[i];
+        }
+      }
+    }
+
+    /** Converts a julian day number to {year, month, day}. (Algorithm of
+     * Fliegel and Van Flandern.) */
+    static int[] ymd(int julian) {
+      int l = julian + 68569;
+      final int n = 4 * l / 146097;
+      l = l - (146097 * n + 3) / 4;
+      final int i = 4000 * (l + 1) / 1461001;
+      l = l - 1461 * i / 4 + 31;
+      final int j = 80 * l / 2447;
+      final int d = l - 2447 * j / 80;
+      l = j / 11;
+      final int m = j + 2 - 12 * l;
+      final int y = 100 * (n - 49) + i + l;
+      return new int[] {y, m, d};
+    }
+
+    /** Converts a year, month and day to a julian day number. */
+    static int julian(int y, int m, int d) {
+      return (1461 * (y + 4800 + (m - 14) / 12)) / 4
+          + (367 * (m - 2 - 12 * ((m - 14) / 12))) / 12
+          - (3 * ((y + 4900 + (m - 14) / 12) / 100)) / 4
+          + d - 32075;
+    }
+
+    static int daysInMonth(int y, int m) {
+      if (m == 2 && y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) {
+        return 29;
+      }
+      return DAYS_IN_MONTH[m];
+    }
+
+    private static boolean isHoliday(int m, int d) {
+      for (int i = 0; i < HOLIDAYS.length; i += 2) {
+        if (HOLIDAYS[i] == m && HOLIDAYS[i + 1] == d) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Holds the ISO 8601 text of every date in the table; computed when
+     * first used, which may be before or without {@link Data}. */
+    private static class Iso {
+      /** Text of row {@code r} is at {@code r * DATE_LENGTH}. */
+      static final byte[] BYTES = new byte[ROW_COUNT * DATE_LENGTH];
+
+      static {
+        final int[] ymd = ymd(FIRST_DATE_SK);
+        int y = ymd[0];
+        int m = ymd[1];
+        int d = ymd[2];
+        for (int r = 0; r < ROW_COUNT; r++) {
+          format(y, m, d, BYTES, r * DATE_LENGTH);
+          if (++d > daysInMonth(y, m)) {
+            d = 1;
+            if (++m > 12) {
+              m = 1;
+              ++y;
+            }
+          }
+        }
+      }
+
+      /** Writes "yyyy-mm-dd" as ASCII bytes. Years are four digits. */
+      static void format(int y, int m, int d, byte[] dest, int offset) {
+        dest[offset] = (byte) ('0' + y / 1000 % 10);
+        dest[offset + 1] = (byte) ('0' + y / 100 % 10);
+        dest[offset + 2] = (byte) ('0' + y / 10 % 10);
+        dest[offset + 3] = (byte) ('0' + y % 10);
+        dest[offset + 4] = '-';
+        dest[offset + 5] = (byte) ('0' + m / 10);
+        dest[offset + 6] = (byte) ('0' + m % 10);
+        dest[offset + 7] = '-';
+        dest[offset + 8] = (byte) ('0' + d / 10);
+        dest[offset + 9] = (byte) ('0' + d % 10);
+      }
+    }
+
+    /** Holds the contents of the table; computed when first used. */
+    private static class Data {
+      /** Values of integer (and date) columns, indexed by column then row;
+       * null for character columns. */
+      static final int[][] INTS = new int[COLUMN_COUNT][];
+      /** Values of character columns. Flags and names are shared
+       * instances. */
+      static final String[][] STRINGS = new String[COLUMN_COUNT][];
+
+      static {
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+          if (c == DATE_ID || c >= DAY_NAME && c <= FOLLOWING_HOLIDAY
+              || c >= CURRENT_DAY) {
+            STRINGS[c] = new String[ROW_COUNT];
+          } else {
+            INTS[c] = new int[ROW_COUNT];
+          }
+        }
+        final int[] current = ymd(CURRENT_DATE_SK);
+        final int currentWeekSeq =
+            (CURRENT_DATE_SK - FIRST_DATE_SK) / 7 + 1;
+        final String[] quarterNames = new String[4];
+        int quarterNameYear = -1;
+        for (int r = 0; r < ROW_COUNT; r++) {
+          final int julian = FIRST_DATE_SK + r;
+          final int[] ymd = ymd(julian);
+          final int y = ymd[0];
+          final int m = ymd[1];
+          final int d = ymd[2];
+          final int qoy = (m - 1) / 3 + 1;
+          final int weekSeq = r / 7 + 1;
+          final int dow = (julian + 1) % 7;
+          final int[] prev = ymd(julian - 1);
+          INTS[DATE_SK][r] = julian;
+          INTS[DATE][r] = julian;
+          INTS[MONTH_SEQ][r] = (y - 1900) * 12 + m - 1;
+          INTS[WEEK_SEQ][r] = weekSeq;
+          INTS[QUARTER_SEQ][r] = (y - 1900) * 4 + qoy;
+          INTS[YEAR][r] = y;
+          INTS[DOW][r] = dow;
+          INTS[MOY][r] = m;
+          INTS[DOM][r] = d;
+          INTS[QOY][r] = qoy;
+          INTS[FY_YEAR][r] = y;
+          INTS[FY_QUARTER_SEQ][r] = INTS[QUARTER_SEQ][r];
+          INTS[FY_WEEK_SEQ][r] = weekSeq;
+          INTS[FIRST_DOM][r] = julian - d + 1;
+          INTS[LAST_DOM][r] = julian - d + daysInMonth(y, m);
+          INTS[SAME_DAY_LY][r] =
+              julian(y - 1, m, Math.min(d, daysInMonth(y - 1, m)));
+          final int lqYear = m > 3 ? y : y - 1;
+          final int lqMonth = m > 3 ? m - 3 : m + 9;
+          INTS[SAME_DAY_LQ][r] = julian(lqYear, lqMonth,
+              Math.min(d, daysInMonth(lqYear, lqMonth)));
+          STRINGS[DATE_ID][r] = BusinessKey.of(julian);
+          STRINGS[DAY_NAME][r] = DAY_NAMES[dow];
+          if (y != quarterNameYear) {
+            quarterNameYear = y;
+            for (int q = 0; q < 4; q++) {
+              quarterNames[q] = y + "Q" + (q + 1);
+            }
+          }
+          STRINGS[QUARTER_NAME][r] = quarterNames[qoy - 1];
+          STRINGS[HOLIDAY][r] = flag(isHoliday(m, d));
+          STRINGS[WEEKEND][r] = flag(dow == 0 || dow == 6);
+          STRINGS[FOLLOWING_HOLIDAY][r] = flag(isHoliday(prev[1], prev[2]));
+          STRINGS[CURRENT_DAY][r] = flag(julian == CURRENT_DATE_SK);
+          STRINGS[CURRENT_DAY + 1][r] = flag(weekSeq == currentWeekSeq);
+          STRINGS[CURRENT_DAY + 2][r] =
+              flag(y == current[0] && m == current[1]);
+          STRINGS[CURRENT_DAY + 3][r] =
+              flag(y == current[0] && qoy == (current[1] - 1) / 3 + 1);
+          STRINGS[CURRENT_YEAR][r] = flag(y == current[0]);
+        }
+      }
+
+      private static String flag(boolean b) {
+        return b ? "Y" : "N";
+      }
+    }
   }
 }
 
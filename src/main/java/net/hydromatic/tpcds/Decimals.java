@@ -0,0 +1,120 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Arithmetic and formatting of decimal values, such as
+ * {@code decimal(7,2)} prices, held as {@code long}s of hundredths.
+ *
+ * <p>Generators compute amounts in cents (see
+ * {@link RowBuffer#setDecimal(int, long)} and
+ * {@link ColumnBatch#getDecimals(int)}), so the pricing arithmetic of the
+ * fact tables is exact and creates no objects. Floating point is used only
+ * to build entities, whose decimal fields are {@link Float}s.
+ */
+public final class Decimals {
+  /** Maximum number of characters that {@link #format} writes: a sign, 19
+   * digits and a point. */
+  public static final int MAX_LENGTH = 21;
+
+  private Decimals() {}
+
+  /** Returns {@code percent}% of a non-negative amount, rounded to the
+   * nearest hundredth. */
+  public static long percent(long amount, int percent) {
+    return (amount * percent + 50) / 100;
+  }
+
+  /** Returns the share {@code numerator / denominator} of an amount,
+   * truncated to a hundredth; for example, the part of a line item's net
+   * paid that is returned. */
+  public static long fraction(long amount, int numerator, int denominator) {
+    return amount * numerator / denominator;
+  }
+
+  /** Writes a value as ASCII, with two digits after the point (for example
+   * 1234 as "12.34", and -5 as "-0.05"), into an array starting at
+   * {@code offset}. Returns the number of bytes written, at most
+   * {@link #MAX_LENGTH}. */
+  public static int format(long unscaledValue, byte[] dest, int offset) {
+    final int length = length(unscaledValue);
+    // Work with a non-positive value, so that Long.MIN_VALUE does not
+    // overflow.
+    long v = unscaledValue < 0 ? unscaledValue : -unscaledValue;
+    int i = offset + length;
+    for (int digit = 0; digit < 2 || v != 0; digit++) {
+      if (digit == 2) {
+        dest[--i] = '.';
+      }
+      dest[--i] = (byte) ('0' - v % 10);
+      v /= 10;
+      if (digit == 1 && v == 0) {
+        dest[--i] = '.';
+        dest[--i] = '0';
+        break;
+      }
+    }
+    if (unscaledValue < 0) {
+      dest[--i] = '-';
+    }
+    return length;
+  }
+
+  /** Writes a value, as {@link #format(long, byte[], int)} does, into a
+   * char array. */
+  public static int format(long unscaledValue, char[] dest, int offset) {
+    final int length = length(unscaledValue);
+    long v = unscaledValue < 0 ? unscaledValue : -unscaledValue;
+    int i = offset + length;
+    for (int digit = 0; digit < 2 || v != 0; digit++) {
+      if (digit == 2) {
+        dest[--i] = '.';
+      }
+      dest[--i] = (char) ('0' - v % 10);
+      v /= 10;
+      if (digit == 1 && v == 0) {
+        dest[--i] = '.';
+        dest[--i] = '0';
+        break;
+      }
+    }
+    if (unscaledValue < 0) {
+      dest[--i] = '-';
+    }
+    return length;
+  }
+
+  /** Returns a value as a string, such as "12.34". */
+  public static String toString(long unscaledValue) {
+    final char[] chars = new char[MAX_LENGTH];
+    return new String(chars, 0, format(unscaledValue, chars, 0));
+  }
+
+  /** Returns the number of characters needed to format a value. */
+  private static int length(long unscaledValue) {
+    // At least three digits ("0.05"), plus the point.
+    int digits = 3;
+    long v = unscaledValue < 0 ? unscaledValue : -unscaledValue;
+    for (v /= 1000; v != 0; v /= 10) {
+      ++digits;
+    }
+    return digits + 1 + (unscaledValue < 0 ? 1 : 0);
+  }
+}
+
+// End Decimals.java
@@ -0,0 +1,253 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of the rows of dimension tables, for use by the generators of fact
+ * tables.
+ *
+ * <p>Rows are cached in pages of {@link #pageSize} consecutive rows. Each
+ * page is a {@link ColumnBatch}, so values are stored in primitive arrays,
+ * and is generated the first time one of its rows is needed. The cache is
+ * thread-safe, and if several threads need the same page at the same time,
+ * only one generates it.
+ *
+ * <p>The total size of the cached pages is limited by a memory budget; when
+ * the budget is exceeded, the least recently used pages are evicted. An
+ * evicted page is regenerated if it is needed again; since rows are a
+ * function of their row number, the result is the same.
+ *
+ * <p>Rows are identified by surrogate key; the row with surrogate key
+ * <i>k</i> is row <i>k</i> &minus; 1 of the table, as it is in every
+ * dimension table except {@code date_dim} and {@code time_dim} (see
+ * {@link TpcdsTable#getKeyOffset()}), which the cache rejects. (Those two
+ * tables are precomputed; see {@link DateDim.Generator#getInt}.)
+ *
+ * <p>Sales generators read the prices of their line items' items through
+ * {@link #shared()}.
+ *
+ * <p>{@link #shared()} returns a cache that is shared by all generators in
+ * the JVM.
+ */
+public class DimensionCache {
+  /** Default number of rows in a page. */
+  public static final int DEFAULT_PAGE_SIZE = 4096;
+
+  /** Default memory budget of the shared cache, in bytes. */
+  public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+  /** Name of the system property that sets the memory budget of the shared
+   * cache, in bytes. */
+  public static final String MAX_BYTES_PROPERTY =
+      "net.hydromatic.tpcds.dimensionCacheBytes";
+
+  public final int pageSize;
+  public final long maxBytes;
+  private final LoadingCache<PageKey, ColumnBatch> cache;
+
+  private DimensionCache(long maxBytes, int pageSize) {
+    checkArgument(maxBytes >= 0, "negative memory budget");
+    checkArgument(pageSize > 0, "page size must be positive");
+    this.maxBytes = maxBytes;
+    this.pageSize = pageSize;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(
+            new Weigher<PageKey, ColumnBatch>() {
+              public int weigh(PageKey key, ColumnBatch batch) {
+                return byteSize(batch);
+              }
+            })
+        .recordStats()
+        .build(
+            new CacheLoader<PageKey, ColumnBatch>() {
+              public ColumnBatch load(PageKey key) {
+                return generate(key);
+              }
+            });
+  }
+
+  /** Creates a cache with a given memory budget, in bytes, and the default
+   * page size. */
+  public static DimensionCache create(long maxBytes) {
+    return new DimensionCache(maxBytes, DEFAULT_PAGE_SIZE);
+  }
+
+  /** Creates a cache with a given memory budget, in bytes, and page size,
+   * in rows. */
+  public static DimensionCache create(long maxBytes, int pageSize) {
+    return new DimensionCache(maxBytes, pageSize);
+  }
+
+  /** Returns the cache shared by all generators in this JVM. Its memory
+   * budget is {@link #DEFAULT_MAX_BYTES} unless the system property
+   * {@link #MAX_BYTES_PROPERTY} is set. */
+  public static DimensionCache shared() {
+    return Shared.INSTANCE;
+  }
+
+  /** Returns the page that contains the row with a given surrogate key,
+   * generating it if it is not cached. The row is at position
+   * {@code key - 1 - page.getFirstRow()} of the page.
+   *
+   * @throws IllegalArgumentException if the key is out of range, or if
+   *   the table's surrogate keys are not row numbers plus one */
+  public ColumnBatch getPage(TpcdsTable<?> table, double scaleFactor,
+      long key) {
+    checkArgument(table.getKeyOffset() == 1,
+        "table %s is not keyed by row number", table.name);
+    final long row = key - 1;
+    checkArgument(row >= 0 && row < table.getRowCount(scaleFactor),
+        "key %s out of range for table %s", key, table.name);
+    return cache.getUnchecked(
+        new PageKey(checkNotNull(table), scaleFactor, row / pageSize));
+  }
+
+  /** Returns whether a column of a row is null. */
+  public boolean isNull(TpcdsTable<?> table, double scaleFactor, long key,
+      int column) {
+    final ColumnBatch page = getPage(table, scaleFactor, key);
+    return page.isNull(column, (int) (key - 1 - page.getFirstRow()));
+  }
+
+  /** Returns the value of an integer or date column of a row. */
+  public int getInt(TpcdsTable<?> table, double scaleFactor, long key,
+      int column) {
+    final ColumnBatch page = getPage(table, scaleFactor, key);
+    return page.getInts(column)[(int) (key - 1 - page.getFirstRow())];
+  }
+
+  /** Returns the value of a long column of a row. */
+  public long getLong(TpcdsTable<?> table, double scaleFactor, long key,
+      int column) {
+    final ColumnBatch page = getPage(table, scaleFactor, key);
+    return page.getLongs(column)[(int) (key - 1 - page.getFirstRow())];
+  }
+
+  /** Returns the unscaled value (in hundredths) of a decimal column of a
+   * row. */
+  public long getDecimal(TpcdsTable<?> table, double scaleFactor, long key,
+      int column) {
+    final ColumnBatch page = getPage(table, scaleFactor, key);
+    return page.getDecimals(column)[(int) (key - 1 - page.getFirstRow())];
+  }
+
+  /** Returns the value of a character column of a row. */
+  public String getString(TpcdsTable<?> table, double scaleFactor, long key,
+      int column) {
+    final ColumnBatch page = getPage(table, scaleFactor, key);
+    return page.getStrings(column)[(int) (key - 1 - page.getFirstRow())];
+  }
+
+  /** Returns the number of cached pages. */
+  public long getPageCount() {
+    return cache.size();
+  }
+
+  /** Returns statistics: hits, misses (pages generated), evictions. */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /** Discards every cached page. */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  private ColumnBatch generate(PageKey key) {
+    final long rowCount = key.table.getRowCount(key.scaleFactor);
+    final long firstRow = key.page * pageSize;
+    final int count = (int) Math.min(pageSize, rowCount - firstRow);
+    final ColumnBatch batch = key.table.createBatch(count);
+    key.table.createBatchCursor(key.scaleFactor, firstRow, count)
+        .next(batch);
+    return batch;
+  }
+
+  /** Estimates the number of bytes used by a batch. Strings are counted as
+   * if none were shared. */
+  static int byteSize(ColumnBatch batch) {
+    long bytes = 0;
+    for (int i = 0; i < batch.kinds.size(); i++) {
+      bytes += batch.getNulls(i).length * 8L;
+      switch (batch.kinds.get(i)) {
+      case INT:
+        bytes += batch.capacity * 4L;
+        break;
+      case LONG:
+      case DECIMAL:
+        bytes += batch.capacity * 8L;
+        break;
+      default:
+        final String[] strings = batch.getStrings(i);
+        bytes += strings.length * 8L;
+        for (int j = 0; j < batch.getSize(); j++) {
+          if (strings[j] != null) {
+            bytes += 40 + 2L * strings[j].length();
+          }
+        }
+      }
+    }
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+
+  /** Identifies a page. */
+  private static class PageKey {
+    final TpcdsTable<?> table;
+    final double scaleFactor;
+    final long page;
+
+    PageKey(TpcdsTable<?> table, double scaleFactor, long page) {
+      this.table = table;
+      this.scaleFactor = scaleFactor;
+      this.page = page;
+    }
+
+    @Override public int hashCode() {
+      final long bits = Double.doubleToLongBits(scaleFactor);
+      int h = System.identityHashCode(table);
+      h = h * 31 + (int) (bits ^ (bits >>> 32));
+      return h * 31 + (int) (page ^ (page >>> 32));
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj == this
+          || obj instanceof PageKey
+          && table == ((PageKey) obj).table
+          && scaleFactor == ((PageKey) obj).scaleFactor
+          && page == ((PageKey) obj).page;
+    }
+  }
+
+  /** Holds the shared cache; created on first use. */
+  private static class Shared {
+    static final DimensionCache INSTANCE =
+        create(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+  }
+}
+
+// End DimensionCache.java
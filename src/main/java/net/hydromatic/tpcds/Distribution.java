@@ -0,0 +1,366 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Weighted distribution of values, as defined in dsdgen's {@code .dst}
+ * files.
+ *
+ * <p>A distribution is a list of rows. Each row has one or more values (one
+ * per <em>value set</em>) and one or more weights (one per <em>weight
+ * set</em>). For example, {@code fips_county} has a value set for the county
+ * name and another for the state, and a weight set for uniform sampling and
+ * another for sampling by population.
+ *
+ * <p>Distributions are loaded once, when this class is initialized, and
+ * compiled into arrays: values are indexed by row, and each weight set has an
+ * {@link AliasTable}. So {@link #getValue} and {@link #pick} take constant
+ * time. As in dsdgen, rows, value sets and weight sets are numbered from 1.
+ *
+ * <p>The distributions are read from the {@code /distributions} directory
+ * on the class path. The files use the syntax of dsdgen's
+ * {@code tpcds.dst}:
+ *
+ * <blockquote><pre>
+ * create gender;
+ * set types = (varchar);
+ * set weights = 1;
+ * add ("M": 1);
+ * add ("F": 1);</pre></blockquote>
+ */
+public final class Distribution {
+  /** Files that hold the distributions. */
+  private static final String[] FILES = {
+    "demographics.dst", "fips.dst", "cities.dst", "items.dst",
+    "english.dst", "streets.dst",
+  };
+
+  private static final ImmutableMap<String, Distribution> MAP = load();
+
+  public final String name;
+  private final String[][] values;
+  private final int[][] intValues;
+  private final int[][] weights;
+  private final AliasTable[] aliasTables;
+  private final ImmutableList<String> weightSetNames;
+
+  private Distribution(String name, String[][] values, int[][] intValues,
+      int[][] weights, ImmutableList<String> weightSetNames) {
+    this.name = name;
+    this.values = values;
+    this.intValues = intValues;
+    this.weights = weights;
+    this.weightSetNames = weightSetNames;
+    this.aliasTables = new AliasTable[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      aliasTables[i] = AliasTable.of(weights[i]);
+    }
+  }
+
+  /** Returns the distribution with a given name; throws if there is
+   * none. */
+  public static Distribution get(String name) {
+    final Distribution distribution = MAP.get(name);
+    checkArgument(distribution != null, "unknown distribution %s", name);
+    return distribution;
+  }
+
+  /** Returns the distribution with a given name, or null. */
+  public static Distribution find(String name) {
+    return MAP.get(name);
+  }
+
+  /** Returns the number of rows. */
+  public int size() {
+    return values[0].length;
+  }
+
+  /** Returns the number of value sets. */
+  public int getValueSetCount() {
+    return values.length;
+  }
+
+  /** Returns the number of weight sets. */
+  public int getWeightSetCount() {
+    return weights.length;
+  }
+
+  /** Returns the value of a row in a value set. (dsdgen's
+   * {@code dist_member}.) */
+  public String getValue(int row, int valueSet) {
+    checkArgument(row >= 1 && row <= size(),
+        "row %s out of range 1..%s in distribution %s", row, size(), name);
+    return values[valueSet - 1][row - 1];
+  }
+
+  /** Returns the values of every row in a value set, in order, as a new
+   * array. */
+  public String[] values(int valueSet) {
+    return values[valueSet - 1].clone();
+  }
+
+  /** Returns the value of a row in an integer value set. */
+  public int getIntValue(int row, int valueSet) {
+    final int[] ints = intValues[valueSet - 1];
+    checkArgument(ints != null, "value set %s of %s is not int", valueSet,
+        name);
+    return ints[row - 1];
+  }
+
+  /** Returns the weight of a row in a weight set. (dsdgen's
+   * {@code dist_weight}.) */
+  public int getWeight(int row, int weightSet) {
+    return weights[weightSet - 1][row - 1];
+  }
+
+  /** Returns the number of a weight set, given its name (such as
+   * "uniform") or its number as a string (such as "2"). */
+  public int weightSet(String nameOrNumber) {
+    final int i = weightSetNames.indexOf(nameOrNumber);
+    if (i >= 0) {
+      return i + 1;
+    }
+    return Integer.parseInt(nameOrNumber);
+  }
+
+  /** Returns the number of the first row whose value in a given value set is
+   * {@code value}, or 0 if there is none. */
+  public int indexOf(String value, int valueSet) {
+    return Arrays.asList(values[valueSet - 1]).indexOf(value) + 1;
+  }
+
+  /** Chooses a row at random, with probability proportional to its weight in
+   * a weight set. (dsdgen's {@code pick_distribution}.)
+   *
+   * @param weightSet Weight set
+   * @param u Uniform random number in [0, 1)
+   * @return Row number, from 1
+   */
+  public int pick(int weightSet, double u) {
+    return aliasTables[weightSet - 1].sample(u) + 1;
+  }
+
+  /** Chooses a row using a random number stream. Consumes one seed. */
+  public int pick(int weightSet, RandomNumberStream stream) {
+    return pick(weightSet, stream.nextDouble());
+  }
+
+  /** Chooses a row at random and returns its value in a value set. */
+  public String pickValue(int valueSet, int weightSet, double u) {
+    return values[valueSet - 1][pick(weightSet, u) - 1];
+  }
+
+  private static ImmutableMap<String, Distribution> load() {
+    final Map<String, Distribution> map =
+        new LinkedHashMap<String, Distribution>();
+    for (String file : FILES) {
+      final String path = "/distributions/" + file;
+      final InputStream stream = Distribution.class.getResourceAsStream(path);
+      if (stream == null) {
+        throw new IllegalStateException("distribution file not found: "
+            + path);
+      }
+      try {
+        new Parser(path, map).parse(stream);
+      } catch (IOException e) {
+        throw new RuntimeException("error reading " + path, e);
+      }
+    }
+    return ImmutableMap.copyOf(map);
+  }
+
+  /** Parses a {@code .dst} file. */
+  private static class Parser {
+    private final String path;
+    private final Map<String, Distribution> map;
+    private String name;
+    private List<Boolean> intTypes = new ArrayList<Boolean>();
+    private int weightCount;
+    private List<String> weightSetNames = ImmutableList.of();
+    private final List<String[]> rowValues = new ArrayList<String[]>();
+    private final List<int[]> rowWeights = new ArrayList<int[]>();
+
+    Parser(String path, Map<String, Distribution> map) {
+      this.path = path;
+      this.map = map;
+    }
+
+    void parse(InputStream stream) throws IOException {
+      final BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(stream, StandardCharsets.UTF_8));
+      final StringBuilder buf = new StringBuilder();
+      for (;;) {
+        String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+        final int comment = line.indexOf("--");
+        if (comment >= 0) {
+          line = line.substring(0, comment);
+        }
+        buf.append(line).append(' ');
+        int semicolon;
+        while ((semicolon = statementEnd(buf)) >= 0) {
+          final String statement = buf.substring(0, semicolon).trim();
+          buf.delete(0, semicolon + 1);
+          if (!statement.isEmpty()) {
+            statement(statement);
+          }
+        }
+      }
+      reader.close();
+      flush();
+    }
+
+    /** Returns the position of the first semicolon not in quotes, or -1. */
+    private static int statementEnd(CharSequence s) {
+      boolean quoted = false;
+      for (int i = 0; i < s.length(); i++) {
+        switch (s.charAt(i)) {
+        case '"':
+          quoted = !quoted;
+          break;
+        case ';':
+          if (!quoted) {
+            return i;
+          }
+        }
+      }
+      return -1;
+    }
+
+    private void statement(String s) {
+      if (s.startsWith("create ")) {
+        flush();
+        name = s.substring("create ".length()).trim();
+      } else if (s.matches("set +types *=.*")) {
+        intTypes = new ArrayList<Boolean>();
+        for (String type : list(s.substring(s.indexOf('=') + 1))) {
+          intTypes.add(type.equals("int"));
+        }
+      } else if (s.matches("set +weights *=.*")) {
+        weightCount =
+            Integer.parseInt(s.substring(s.indexOf('=') + 1).trim());
+      } else if (s.matches("set +names *=.*")) {
+        final String names = s.substring(s.indexOf('=') + 1);
+        weightSetNames = list(names.substring(names.indexOf(':') + 1));
+      } else if (s.startsWith("add ")) {
+        final String body = s.substring("add ".length());
+        final int colon = body.lastIndexOf(':');
+        final List<String> values = list(body.substring(0, colon));
+        final List<String> weights = list(body.substring(colon + 1));
+        if (values.size() != intTypes.size()
+            || weights.size() != weightCount) {
+          throw new IllegalArgumentException("wrong number of values or "
+              + "weights in " + path + ", distribution " + name + ": " + s);
+        }
+        final int[] w = new int[weightCount];
+        for (int i = 0; i < weightCount; i++) {
+          w[i] = Integer.parseInt(weights.get(i));
+        }
+        rowValues.add(values.toArray(new String[values.size()]));
+        rowWeights.add(w);
+      } else {
+        throw new IllegalArgumentException("invalid statement in " + path
+            + ": " + s);
+      }
+    }
+
+    /** Splits a comma-separated list, optionally in parentheses, removing
+     * quotes. */
+    private static List<String> list(String s) {
+      s = s.trim();
+      if (s.startsWith("(")) {
+        s = s.substring(1);
+      }
+      if (s.endsWith(")")) {
+        s = s.substring(0, s.length() - 1);
+      }
+      final List<String> list = new ArrayList<String>();
+      final StringBuilder buf = new StringBuilder();
+      boolean quoted = false;
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (c == ',' && !quoted) {
+          list.add(buf.toString().trim());
+          buf.setLength(0);
+        } else if (quoted || c != ' ') {
+          buf.append(c);
+        }
+      }
+      list.add(buf.toString().trim());
+      return list;
+    }
+
+    /** Builds the current distribution, if any. */
+    private void flush() {
+      if (name == null) {
+        return;
+      }
+      final int rowCount = rowValues.size();
+      final int valueSetCount = intTypes.size();
+      final String[][] values = new String[valueSetCount][rowCount];
+      final int[][] intValues = new int[valueSetCount][];
+      final int[][] weights = new int[weightCount][rowCount];
+      for (int v = 0; v < valueSetCount; v++) {
+        if (intTypes.get(v)) {
+          intValues[v] = new int[rowCount];
+        }
+        for (int r = 0; r < rowCount; r++) {
+          values[v][r] = rowValues.get(r)[v];
+          if (intValues[v] != null) {
+            intValues[v][r] = Integer.parseInt(values[v][r]);
+          }
+        }
+      }
+      for (int w = 0; w < weightCount; w++) {
+        for (int r = 0; r < rowCount; r++) {
+          weights[w][r] = rowWeights.get(r)[w];
+        }
+      }
+      map.put(name,
+          new Distribution(name, values, intValues, weights,
+              ImmutableList.copyOf(weightSetNames)));
+      name = null;
+      weightSetNames = ImmutableList.of();
+      rowValues.clear();
+      rowWeights.clear();
+    }
+  }
+}
+
+// End Distribution.java
@@ -17,7 +17,7 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
+import static com.google.common.base.Preconditions.checkArgument;
 
 /** Entity corresponding to a row in the
  * {@code household_demographics} TPC-DS table. */
@@ -44,8 +44,73 @@ public class HouseholdDemographic implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(demoSk, incomeBandSk, buyPotential, depCount,
+        vehicleCount);
+  }
+
+  /** Value generator.
+   *
+   * <p>As in dsdgen, the table is the cross product of its attributes, and
+   * has no random columns. Row <i>n</i> is the number <i>n</i> written in a
+   * mixed radix whose digits are income band (varying fastest), buy
+   * potential, dependent count and vehicle count. So any row can be decoded
+   * directly from its number; see {@link #get(int)}. */
+  public static class Generator extends RowGenerator<HouseholdDemographic> {
+    private static final int INCOME_BANDS =
+        Distribution.get("income_band").size();
+    private static final String[] BUY_POTENTIALS =
+        Distribution.get("buy_potential").values(1);
+
+    /** Number of values of the dependent count, 0 to 9. */
+    private static final int DEPENDENTS = 10;
+
+    /** Number of values of the vehicle count, -1 to 4. */
+    private static final int VEHICLES = 6;
+
+    /** Number of rows; the product of the radixes. */
+    public static final int ROW_COUNT =
+        INCOME_BANDS * BUY_POTENTIALS.length * DEPENDENTS * VEHICLES;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, 5);
+    }
+
+    protected RandomStreams createStreams() {
+      return new RandomStreams(
+          TpcdsTable.HOUSEHOLD_DEMOGRAPHICS.nFirstColumn, 0, 0, 0, 0, 0);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      int n = (int) row;
+      buffer.setInt(0, n + 1);
+      buffer.setInt(1, n % INCOME_BANDS + 1);
+      n /= INCOME_BANDS;
+      buffer.setString(2, BUY_POTENTIALS[n % BUY_POTENTIALS.length]);
+      n /= BUY_POTENTIALS.length;
+      buffer.setInt(3, n % DEPENDENTS);
+      n /= DEPENDENTS;
+      buffer.setInt(4, n % VEHICLES - 1);
+    }
+
+    protected HouseholdDemographic toEntity(RowBuffer buffer) {
+      return new HouseholdDemographic(buffer.getInt(0), buffer.getInteger(1),
+          buffer.getString(2).toString(), buffer.getInteger(3),
+          buffer.getInteger(4));
+    }
+
+    /** Returns the row with a given surrogate key, in constant time.
+     *
+     * @throws IllegalArgumentException if the key is not between 1 and
+     *   {@link #ROW_COUNT} */
+    public static HouseholdDemographic get(int demoSk) {
+      checkArgument(demoSk >= 1 && demoSk <= ROW_COUNT,
+          "key %s out of range 1..%s", demoSk, ROW_COUNT);
+      final Generator generator = new Generator(1, demoSk - 1, 1);
+      final RowBuffer buffer = new RowBuffer(generator.columnCount);
+      generator.generateRow(demoSk - 1, null, buffer);
+      return generator.toEntity(buffer);
+    }
   }
 }
 
@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code inventory} TPC-DS table. */
 public class Inventory implements TpcdsEntity {
@@ -40,10 +38,187 @@ public class Inventory implements TpcdsEntity {
     this.quantityOnHand = quantityOnHand;
   }
 
-
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(dateSk, itemSk, warehouseSk, quantityOnHand);
+  }
+
+  /** Column definition. */
+  public enum Column implements TpcdsColumn<Inventory> {
+    DATE_SK("dateSk", int.class),
+    ITEM_SK("itemSk", int.class),
+    WAREHOUSE_SK("warehouseSk", int.class),
+    QUANTITY_ON_HAND("quantityOnHand", Integer.class);
+
+    private final String columnName;
+    private final Class<?> type;
+
+    Column(String columnName, Class<?> type) {
+      this.columnName = columnName;
+      this.type = type;
+    }
+
+    public String getString(Inventory inventory) {
+      if (this == QUANTITY_ON_HAND && inventory.quantityOnHand == null) {
+        return null;
+      }
+      return String.valueOf(getLong(inventory));
+    }
+
+    public double getDouble(Inventory inventory) {
+      return getLong(inventory);
+    }
+
+    public long getLong(Inventory inventory) {
+      switch (this) {
+      case DATE_SK:
+        return inventory.dateSk;
+      case ITEM_SK:
+        return inventory.itemSk;
+      case WAREHOUSE_SK:
+        return inventory.warehouseSk;
+      default:
+        // Nullable; like a cursor, returns 0 for null.
+        return inventory.quantityOnHand == null
+            ? 0L
+            : inventory.quantityOnHand;
+      }
+    }
+
+    public String getColumnName() {
+      return columnName;
+    }
+
+    public Class<?> getType() {
+      return type;
+    }
+  }
+
+  /** Value generator.
+   *
+   * <p>As in dsdgen, row <i>n</i> is decoded into an item id (varying
+   * fastest), a warehouse and a week; the quantity is the only random
+   * column. So each column of any row can be computed directly, without
+   * generating the rows before it; see {@link #getDateSk(long)},
+   * {@link #getQuantityOnHand(long)} and
+   * {@link #isQuantityOnHandNull(long)}. */
+  public static class Generator extends RowGenerator<Inventory> {
+    /** Julian day number of 1998-01-01, the first day of inventory. */
+    static final int FIRST_DATE_SK = 2450815;
+
+    private static final int DATE_SK = Column.DATE_SK.ordinal();
+    private static final int ITEM_SK = Column.ITEM_SK.ordinal();
+    private static final int WAREHOUSE_SK = Column.WAREHOUSE_SK.ordinal();
+    private static final int QUANTITY_ON_HAND =
+        Column.QUANTITY_ON_HAND.ordinal();
+
+    private static final int QUANTITY_MIN = 0;
+    private static final int QUANTITY_MAX = 1000;
+
+    /** Start dates of item revisions; see {@link ScdGenerator}. */
+    private static final int[] ITEM_START_DATES =
+        ScdGenerator.startDates(Item.Generator.TABLE_NUMBER);
+
+    private final long itemIdCount;
+    private final long warehouseCount;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, Column.values().length);
+      this.itemIdCount = Scaling.rowCount("item", scaleFactor) / 2;
+      this.warehouseCount = Scaling.rowCount("warehouse", scaleFactor);
+    }
+
+    protected RandomStreams createStreams() {
+      return new RandomStreams(TpcdsTable.INVENTORY.nFirstColumn, 0, 0, 0, 1);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      long n = row;
+      final long itemId = n % itemIdCount + 1;
+      n /= itemIdCount;
+      final int warehouseSk = (int) (n % warehouseCount) + 1;
+      n /= warehouseCount;
+      final int dateSk = FIRST_DATE_SK + (int) n * 7;
+      buffer.setInt(DATE_SK, dateSk);
+      buffer.setInt(ITEM_SK, itemSk(itemId, dateSk));
+      buffer.setInt(WAREHOUSE_SK, warehouseSk);
+      buffer.setInt(QUANTITY_ON_HAND,
+          streams.get(QUANTITY_ON_HAND).nextInt(QUANTITY_MIN, QUANTITY_MAX));
+    }
+
+    @Override protected void generateBatch(long row, int count,
+        RandomStreams streams, ColumnBatch batch) {
+      final int[] dateSks = batch.getInts(DATE_SK);
+      final int[] itemSks = batch.getInts(ITEM_SK);
+      final int[] warehouseSks = batch.getInts(WAREHOUSE_SK);
+      long itemId = row % itemIdCount + 1;
+      long n = row / itemIdCount;
+      int warehouseSk = (int) (n % warehouseCount) + 1;
+      int dateSk = FIRST_DATE_SK + (int) (n / warehouseCount) * 7;
+      for (int i = 0; i < count; i++) {
+        dateSks[i] = dateSk;
+        itemSks[i] = itemSk(itemId, dateSk);
+        warehouseSks[i] = warehouseSk;
+        if (++itemId > itemIdCount) {
+          itemId = 1;
+          if (++warehouseSk > warehouseCount) {
+            warehouseSk = 1;
+            dateSk += 7;
+          }
+        }
+      }
+      streams.get(QUANTITY_ON_HAND).fillInts(batch.getInts(QUANTITY_ON_HAND),
+          0, count, QUANTITY_MIN, QUANTITY_MAX);
+    }
+
+    /** Returns the date of a row. */
+    public int getDateSk(long row) {
+      return FIRST_DATE_SK + (int) (row / itemIdCount / warehouseCount) * 7;
+    }
+
+    /** Returns the item of a row. */
+    public int getItemSk(long row) {
+      return itemSk(row % itemIdCount + 1, getDateSk(row));
+    }
+
+    /** Returns the warehouse of a row. */
+    public int getWarehouseSk(long row) {
+      return (int) (row / itemIdCount % warehouseCount) + 1;
+    }
+
+    /** Returns whether the quantity on hand of a row of the table is null,
+     * by jumping the table's null stream to the row; see {@link Nulls}. */
+    public boolean isQuantityOnHandNull(long row) {
+      final Nulls nulls = Nulls.of(TpcdsTable.INVENTORY);
+      final RandomNumberStream stream = nulls.createStream(row);
+      return stream != null
+          && (nulls.next(stream) & (1L << QUANTITY_ON_HAND)) != 0;
+    }
+
+    /** Returns the quantity on hand of a row, or 0 if it is null (see
+     * {@link #isQuantityOnHandNull(long)}). Jumps the random number
+     * streams to the row, in O(log row) steps. */
+    public int getQuantityOnHand(long row) {
+      if (isQuantityOnHandNull(row)) {
+        return 0;
+      }
+      final RandomNumberStream stream = RandomNumberStream.forColumn(
+          TpcdsTable.INVENTORY.nFirstColumn + QUANTITY_ON_HAND, 1);
+      stream.skipRows(row);
+      return stream.nextInt(QUANTITY_MIN, QUANTITY_MAX);
+    }
+
+    protected Inventory toEntity(RowBuffer buffer) {
+      return new Inventory(buffer.getInt(DATE_SK), buffer.getInt(ITEM_SK),
+          buffer.getInt(WAREHOUSE_SK), buffer.getInteger(QUANTITY_ON_HAND));
+    }
+
+    /** Returns the surrogate key of the revision of an item that is current
+     * on a date; see {@link ScdGenerator}. */
+    static int itemSk(long itemId, int dateSk) {
+      return (int) ScdGenerator.currentRowOfKey(itemId, dateSk,
+          ITEM_START_DATES) + 1;
+    }
   }
 }
 
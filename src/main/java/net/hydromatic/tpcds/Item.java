@@ -19,8 +19,6 @@ package net.hydromatic.tpcds;
 
 import java.sql.Date;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code item} TPC-DS table. */
 public class Item implements TpcdsEntity {
@@ -101,8 +99,146 @@ public class Item implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(itemSk, itemId, recStartDate, recEndDate, itemDesc,
+        currentPrice, wholesaleCost, brandId, brand, classId, itemClass,
+        categoryId, category, manufactId, manufact, size, formulation, color,
+        units, container, managerId, productName);
+  }
+
+  /** Value generator.
+   *
+   * <p>Items are revisions of a business key; see {@link ScdGenerator}. The
+   * product name spells out the business key, so it is the same in every
+   * revision. The brand id encodes the category, class and brand number;
+   * the wholesale cost is between 30% and 90% of the current price. */
+  public static class Generator extends ScdGenerator<Item> {
+    private static final int ITEM_DESC = 4;
+    static final int CURRENT_PRICE = 5;
+    static final int WHOLESALE_COST = 6;
+    private static final int BRAND_ID = 7;
+    private static final int BRAND = 8;
+    private static final int CLASS_ID = 9;
+    private static final int ITEM_CLASS = 10;
+    private static final int CATEGORY_ID = 11;
+    private static final int CATEGORY = 12;
+    private static final int MANUFACT_ID = 13;
+    private static final int MANUFACT = 14;
+    private static final int SIZE = 15;
+    private static final int FORMULATION = 16;
+    private static final int COLOR = 17;
+    private static final int UNITS = 18;
+    private static final int CONTAINER = 19;
+    private static final int MANAGER_ID = 20;
+    private static final int PRODUCT_NAME = 21;
+
+    /** dsdgen's number for the {@code item} table. */
+    static final int TABLE_NUMBER = 11;
+
+    private static final int DESC_MAX_LENGTH = 200;
+    private static final int MIN_PRICE = 9;
+    private static final int MAX_PRICE = 9999;
+    private static final int MANUFACT_MAX = 1000;
+    private static final int BRANDS_PER_CLASS = 10;
+    private static final int SIZED_SIZES = 6;
+    private static final String UNSIZED = "N/A";
+    private static final String CONTAINER_VALUE = "Unknown";
+
+    private static final Distribution CATEGORIES =
+        Distribution.get("categories");
+    private static final Distribution[] CLASSES =
+        new Distribution[CATEGORIES.size()];
+    private static final String[] SIZES =
+        Distribution.get("sizes").values(1);
+    private static final Distribution COLORS = Distribution.get("colors");
+    private static final Distribution UNIT_NAMES = Distribution.get("units");
+    private static final Distribution MANAGERS =
+        Distribution.get("i_manager_id");
+
+    static {
+      for (int i = 0; i < CLASSES.length; i++) {
+        CLASSES[i] = Distribution.get(CATEGORIES.getValue(i + 1, 2));
+      }
+    }
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, TpcdsTable.ITEM.nFirstColumn,
+          TABLE_NUMBER,
+          new int[] {0, 1, 0, 0, Text.seeds(DESC_MAX_LENGTH), 1, 1, 1, 0, 1,
+            0, 1, 0, 1, 0, 1, 1, 1, 1, 0, 2, 0},
+          mask(ITEM_DESC), mask(CURRENT_PRICE, WHOLESALE_COST),
+          mask(BRAND_ID, BRAND, CLASS_ID, ITEM_CLASS, CATEGORY_ID, CATEGORY,
+              SIZE),
+          mask(MANUFACT_ID, MANUFACT), mask(FORMULATION, COLOR),
+          mask(UNITS), mask(MANAGER_ID));
+    }
+
+    protected void generateColumns(long row, long key,
+        RandomStreams streams, RowBuffer buffer) {
+      final Text.Buffer desc =
+          textBuffer(streams, ITEM_DESC, row, DESC_MAX_LENGTH);
+      Text.generate(streams.get(ITEM_DESC), 1, DESC_MAX_LENGTH, desc);
+      buffer.setString(ITEM_DESC, desc);
+
+      final int price =
+          streams.get(CURRENT_PRICE).nextInt(MIN_PRICE, MAX_PRICE);
+      buffer.setDecimal(CURRENT_PRICE, price);
+      buffer.setDecimal(WHOLESALE_COST,
+          Decimals.fraction(price,
+              streams.get(WHOLESALE_COST).nextInt(30, 90), 100));
+
+      final int categoryId =
+          CATEGORIES.pick(1, streams.get(CATEGORY_ID));
+      final Distribution classes = CLASSES[categoryId - 1];
+      final int classId = classes.pick(1, streams.get(CLASS_ID));
+      final int brand =
+          streams.get(BRAND_ID).nextInt(1, BRANDS_PER_CLASS);
+      buffer.setInt(CATEGORY_ID, categoryId);
+      buffer.setString(CATEGORY, CATEGORIES.getValue(categoryId, 1));
+      buffer.setInt(CLASS_ID, classId);
+      buffer.setString(ITEM_CLASS, classes.getValue(classId, 1));
+      buffer.setInt(BRAND_ID, categoryId * 1000000 + classId * 1000 + brand);
+      buffer.setString(BRAND,
+          Words.of(categoryId * 100 + classId) + " #" + brand);
+      final int size = streams.get(SIZE).nextInt(1, SIZED_SIZES);
+      buffer.setString(SIZE,
+          CATEGORIES.getIntValue(categoryId, 3) == 1
+              ? SIZES[size - 1]
+              : UNSIZED);
+
+      final int manufactId =
+          streams.get(MANUFACT_ID).nextInt(1, MANUFACT_MAX);
+      buffer.setInt(MANUFACT_ID, manufactId);
+      buffer.setString(MANUFACT, Words.of(manufactId));
+
+      final String color =
+          COLORS.getValue(COLORS.pick(1, streams.get(COLOR)), 1);
+      buffer.setString(COLOR, color);
+      buffer.setString(FORMULATION,
+          streams.get(FORMULATION).nextInt(1, 999999999) + color);
+      buffer.setString(UNITS,
+          UNIT_NAMES.getValue(UNIT_NAMES.pick(1, streams.get(UNITS)), 1));
+      buffer.setString(CONTAINER, CONTAINER_VALUE);
+      final RandomNumberStream managerStream = streams.get(MANAGER_ID);
+      final int range = MANAGERS.pick(1, managerStream);
+      buffer.setInt(MANAGER_ID,
+          managerStream.nextInt(MANAGERS.getIntValue(range, 2),
+              MANAGERS.getIntValue(range, 3)));
+      buffer.setString(PRODUCT_NAME, Words.of(key));
+    }
+
+    protected Item toEntity(RowBuffer buffer) {
+      return new Item(buffer.getInt(SK), buffer.getString(ID).toString(),
+          date(buffer, REC_START_DATE), date(buffer, REC_END_DATE),
+          string(buffer, ITEM_DESC), buffer.getFloat(CURRENT_PRICE),
+          buffer.getFloat(WHOLESALE_COST), buffer.getInteger(BRAND_ID),
+          string(buffer, BRAND), buffer.getInteger(CLASS_ID),
+          string(buffer, ITEM_CLASS), buffer.getInteger(CATEGORY_ID),
+          string(buffer, CATEGORY), buffer.getInteger(MANUFACT_ID),
+          string(buffer, MANUFACT), string(buffer, SIZE),
+          string(buffer, FORMULATION), string(buffer, COLOR),
+          string(buffer, UNITS), string(buffer, CONTAINER),
+          buffer.getInteger(MANAGER_ID), string(buffer, PRODUCT_NAME));
+    }
   }
 }
 
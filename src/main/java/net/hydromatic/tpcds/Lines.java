@@ -0,0 +1,46 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Formats entities as lines of a {@code .dat} file, in the format that
+ * dsdgen writes.
+ */
+final class Lines {
+  private Lines() {}
+
+  /** Formats a list of values, each followed by a '|'. Null values are
+   * empty; decimal values have two digits after the point. */
+  static String join(Object... values) {
+    final StringBuilder buf = new StringBuilder();
+    for (Object value : values) {
+      if (value instanceof Float || value instanceof Double) {
+        // Decimal fields hold hundredths; recover them exactly.
+        buf.append(
+            Decimals.toString(
+                Math.round(((Number) value).doubleValue() * 100d)));
+      } else if (value != null) {
+        buf.append(value);
+      }
+      buf.append('|');
+    }
+    return buf.toString();
+  }
+}
+
+// End Lines.java
@@ -0,0 +1,102 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Injection of nulls into the rows of a table, as in dsdgen's
+ * {@code nullSet} and {@code nullCheck}.
+ *
+ * <p>Each row consumes one seed of the table's null stream (see
+ * {@link RandomNumberStream#forNulls}). If the seed modulo 10,000 is less
+ * than the table's {@link TpcdsTable#nNullPct}, the row has nulls: the seed
+ * is scrambled into a 64-bit mask, and each column whose bit is set in both
+ * that mask and {@link TpcdsTable#kNullBitMap} is null. Most rows have no
+ * nulls, and cost one draw and one comparison.
+ *
+ * <p>Nulls are set in the row's {@link RowBuffer} or {@link ColumnBatch}
+ * after the row is generated, so the generators themselves never see them;
+ * for example, a return is derived from the line item as it was before
+ * nulls were injected into it.
+ */
+final class Nulls {
+  /** Injects no nulls. */
+  static final Nulls NONE = new Nulls(0, 0, 0L);
+
+  private final int firstColumn;
+  private final int threshold;
+  private final long columnMask;
+
+  private Nulls(int firstColumn, int threshold, long columnMask) {
+    this.firstColumn = firstColumn;
+    this.threshold = threshold;
+    this.columnMask = columnMask;
+  }
+
+  /** Returns the nulls of a table. */
+  static Nulls of(TpcdsTable<?> table) {
+    if (table.nNullPct <= 0 || table.kNullBitMap == 0L) {
+      return NONE;
+    }
+    return new Nulls(table.nFirstColumn, table.nNullPct, table.kNullBitMap);
+  }
+
+  /** Creates the null stream, positioned at the start of a row; or returns
+   * null if this injects no nulls. */
+  RandomNumberStream createStream(long row) {
+    if (this == NONE) {
+      return null;
+    }
+    final RandomNumberStream stream =
+        RandomNumberStream.forNulls(firstColumn);
+    stream.skipRows(row);
+    return stream;
+  }
+
+  /** Returns the mask of the columns that are null in the next row, and
+   * moves the stream to the following row. */
+  long next(RandomNumberStream stream) {
+    final int seed = stream.next();
+    stream.rowStop();
+    if (seed % 10000 >= threshold) {
+      return 0L;
+    }
+    return Permutation.mix(seed * 0x9E3779B97F4A7C15L) & columnMask;
+  }
+
+  /** Injects nulls into a row. Does nothing if the stream is null. */
+  void apply(RandomNumberStream stream, RowBuffer buffer) {
+    if (stream != null) {
+      buffer.setNulls(next(stream));
+    }
+  }
+
+  /** Injects nulls into the rows of a batch. Does nothing if the stream is
+   * null. */
+  void apply(RandomNumberStream stream, ColumnBatch batch) {
+    if (stream == null) {
+      return;
+    }
+    for (int i = 0; i < batch.getSize(); i++) {
+      for (long m = next(stream); m != 0; m &= m - 1) {
+        batch.setNull(Long.numberOfTrailingZeros(m), i);
+      }
+    }
+  }
+}
+
+// End Nulls.java
@@ -0,0 +1,394 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Range of rows of a table, materialized in off-heap memory.
+ *
+ * <p>Each row has a fixed-width slot: an 8-byte null mask, then each column
+ * in order. Integer and date columns take 4 bytes (dates as julian day
+ * numbers), long and decimal columns 8 bytes (decimals in hundredths), and
+ * character columns 8 bytes, the position of the string in a side arena.
+ * The arena holds each string as a 2-byte length followed by one byte per
+ * character; TPC-DS data is ASCII, and loading a string that has a
+ * character outside Latin-1 is an error. A string that is the same
+ * {@link String} instance as a recent one, such as a value from a
+ * distribution, is stored once.
+ *
+ * <p>Slots and arena are held in chunks, direct {@link ByteBuffer}s of at
+ * most {@link #CHUNK_BYTES} bytes, so a table may be larger than 2 GB, and
+ * nothing but the buffers' headers is on the Java heap. Arena chunks are
+ * sized from the table's expected row width, so a small table takes
+ * little memory. The memory is
+ * released when the table becomes unreachable.
+ *
+ * <p>Consumers read rows through {@link View}s, flyweight entities that
+ * can be moved from row to row. A table is immutable once built, and
+ * its buffers are held in final fields, so any number of threads may read
+ * it, each using its own views.
+ */
+public final class OffHeapTable {
+  /** Maximum size of a chunk of slots. */
+  static final int CHUNK_BYTES = 1 << 26;
+
+  /** Size of a chunk of the arena; a position in the arena is a chunk
+   * index followed by this many bits of offset. */
+  private static final int ARENA_BITS = 22;
+  private static final int ARENA_CHUNK_BYTES = 1 << ARENA_BITS;
+  private static final int NULLS_BYTES = 8;
+
+  /** Maximum number of strings remembered for sharing. */
+  private static final int SHARED_STRINGS = 1 << 12;
+
+  public final TpcdsTable<?> table;
+  private final PackedRow.Layout layout;
+  /** Offset of each column within a slot. */
+  private final int[] offsets;
+  private final int slotWidth;
+  private final long rowCount;
+  private final int rowsPerChunk;
+  private final ByteBuffer[] slots;
+  private final ByteBuffer[] arena;
+
+  private OffHeapTable(Loader loader) {
+    this.table = loader.table;
+    this.layout = loader.layout;
+    this.offsets = loader.offsets;
+    this.slotWidth = loader.slotWidth;
+    this.rowCount = loader.rowCount;
+    this.rowsPerChunk = loader.rowsPerChunk;
+    this.slots = loader.slots;
+    // Final fields, so that every thread that sees the table sees the
+    // whole of it.
+    this.arena = loader.arena.toArray(new ByteBuffer[loader.arena.size()]);
+  }
+
+  /** Generates a range of rows of a table into off-heap memory. */
+  public static OffHeapTable of(TpcdsTable<?> table, double scaleFactor,
+      long firstRow, long rowCount) {
+    final Loader loader = new Loader(table, scaleFactor, rowCount);
+    loader.load(table.createCursor(scaleFactor, firstRow, rowCount));
+    return new OffHeapTable(loader);
+  }
+
+  private static ByteBuffer allocate(int capacity) {
+    return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+  }
+
+  /** Returns the number of rows. */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the number of bytes of a row's slot. */
+  public int getSlotWidth() {
+    return slotWidth;
+  }
+
+  /** Returns the number of bytes of off-heap memory that the slots and
+   * the arena occupy. */
+  public long getByteCount() {
+    long bytes = rowCount * slotWidth;
+    for (ByteBuffer chunk : arena) {
+      bytes += chunk.capacity();
+    }
+    return bytes;
+  }
+
+  /** Creates a view positioned on a row. */
+  public View get(long row) {
+    return new View().moveTo(row);
+  }
+
+  /** Builds the slots and arena of a table; used only while the table is
+   * being loaded. */
+  private static final class Loader {
+    final TpcdsTable<?> table;
+    final PackedRow.Layout layout;
+    final int[] offsets;
+    final int slotWidth;
+    final long rowCount;
+    final int rowsPerChunk;
+    final ByteBuffer[] slots;
+    final List<ByteBuffer> arena = new ArrayList<ByteBuffer>();
+    /** Expected size of the arena; chunks are no larger than needed to
+     * reach it, and grow if it is too small. */
+    final long expectedArenaBytes;
+    /** Position after the last string in the arena. */
+    long arenaEnd;
+
+    Loader(TpcdsTable<?> table, double scaleFactor, long rowCount) {
+      this.table = table;
+      this.layout = new PackedRow.Layout(table.getColumns());
+      this.offsets = new int[layout.kinds.length];
+      int width = NULLS_BYTES;
+      for (int c = 0; c < offsets.length; c++) {
+        offsets[c] = width;
+        width += layout.kinds[c] == ColumnBatch.Kind.INT ? 4 : 8;
+      }
+      this.slotWidth = width;
+      this.rowCount = rowCount;
+      this.rowsPerChunk = CHUNK_BYTES / slotWidth;
+      this.slots =
+          new ByteBuffer[(int) ((rowCount + rowsPerChunk - 1) / rowsPerChunk)];
+      for (int i = 0; i < slots.length; i++) {
+        final long rows =
+            Math.min(rowsPerChunk, rowCount - (long) i * rowsPerChunk);
+        slots[i] = allocate((int) rows * slotWidth);
+      }
+      // A row's strings take no more than its line in the .dat file, plus
+      // a length for each.
+      final long lineBytes = table.getByteCount(scaleFactor)
+          / Math.max(1, table.getRowCount(scaleFactor));
+      this.expectedArenaBytes = layout.stringCount == 0
+          ? 0
+          : rowCount * (lineBytes + 2 * layout.stringCount);
+    }
+
+    /** Writes the rows of a cursor into consecutive slots. */
+    void load(RowCursor cursor) {
+      final Map<String, Long> shared = new IdentityHashMap<String, Long>();
+      for (long row = 0; row < rowCount; row++) {
+        if (!cursor.advance()) {
+          throw new IllegalStateException("expected " + rowCount
+              + " rows, got " + row);
+        }
+        final ByteBuffer chunk = slots[(int) (row / rowsPerChunk)];
+        final int slot = (int) (row % rowsPerChunk) * slotWidth;
+        long nulls = 0;
+        for (int c = 0; c < offsets.length; c++) {
+          if (cursor.isNull(c)) {
+            nulls |= 1L << c;
+            continue;
+          }
+          final int offset = slot + offsets[c];
+          switch (layout.kinds[c]) {
+          case INT:
+            chunk.putInt(offset, cursor.getInt(c));
+            break;
+          case LONG:
+            chunk.putLong(offset, cursor.getLong(c));
+            break;
+          case DECIMAL:
+            chunk.putLong(offset, cursor.getDecimal(c));
+            break;
+          default:
+            chunk.putLong(offset, putString(cursor.getString(c), shared));
+          }
+        }
+        chunk.putLong(slot, nulls);
+      }
+    }
+
+    /** Appends a string to the arena, or finds it if it is a recently
+     * stored instance, and returns its position.
+     *
+     * @throws IllegalArgumentException if the string is longer than 65,535
+     *   characters or has a character outside Latin-1 */
+    private long putString(CharSequence s, Map<String, Long> shared) {
+      if (s instanceof String) {
+        final Long position = shared.get(s);
+        if (position != null) {
+          return position;
+        }
+      }
+      final int length = s.length();
+      if (length > 0xFFFF) {
+        throw new IllegalArgumentException("string too long: " + length);
+      }
+      final int size = 2 + length;
+      long position = arenaEnd;
+      if ((position & (ARENA_CHUNK_BYTES - 1)) + size > ARENA_CHUNK_BYTES) {
+        // Start the next chunk; a string never spans two chunks.
+        position = ((position >>> ARENA_BITS) + 1) << ARENA_BITS;
+      }
+      final int index = (int) (position >>> ARENA_BITS);
+      final int offset = (int) (position & (ARENA_CHUNK_BYTES - 1));
+      if (index == arena.size()) {
+        final long remaining = expectedArenaBytes - position;
+        arena.add(
+            allocate((int) Math.min(ARENA_CHUNK_BYTES,
+                Math.max(size, remaining))));
+      }
+      ByteBuffer chunk = arena.get(index);
+      if (offset + size > chunk.capacity()) {
+        // The estimate was too small; grow the chunk.
+        final ByteBuffer bigger =
+            allocate(Math.min(ARENA_CHUNK_BYTES,
+                Math.max(offset + size, chunk.capacity() * 2)));
+        chunk.clear();
+        bigger.put(chunk);
+        arena.set(index, bigger);
+        chunk = bigger;
+      }
+      for (int i = 0; i < length; i++) {
+        final char ch = s.charAt(i);
+        if (ch >= 0x100) {
+          throw new IllegalArgumentException("character U+"
+              + Integer.toHexString(ch | 0x10000).substring(1)
+              + " is not Latin-1, in column value '" + s + "'");
+        }
+        chunk.put(offset + 2 + i, (byte) ch);
+      }
+      chunk.putShort(offset, (short) length);
+      arenaEnd = position + size;
+      if (s instanceof String) {
+        if (shared.size() >= SHARED_STRINGS) {
+          shared.clear();
+        }
+        shared.put((String) s, position);
+      }
+      return position;
+    }
+  }
+
+  /** Flyweight entity that reads one row of the table at a time from
+   * off-heap memory. Moving it to another row allocates nothing. */
+  public final class View implements TpcdsEntity {
+    private long row = -1;
+    private ByteBuffer chunk;
+    private int slot;
+
+    private View() {}
+
+    /** Positions this view on a row, and returns it. */
+    public View moveTo(long row) {
+      if (row < 0 || row >= rowCount) {
+        throw new IndexOutOfBoundsException("row " + row + " out of range 0.."
+            + (rowCount - 1));
+      }
+      this.row = row;
+      this.chunk = slots[(int) (row / rowsPerChunk)];
+      this.slot = (int) (row % rowsPerChunk) * slotWidth;
+      return this;
+    }
+
+    /** Returns the number of the row this view is positioned on, within
+     * the table's range. */
+    public long getRowNumber() {
+      return row;
+    }
+
+    /** Returns the null mask; bit {@code i} is set if column {@code i} is
+     * null. */
+    public long getNullMask() {
+      return chunk.getLong(slot);
+    }
+
+    public boolean isNull(int column) {
+      return (getNullMask() & (1L << column)) != 0;
+    }
+
+    /** Returns the value of an integer or date column, or 0 if it is null.
+     * Dates are julian day numbers. */
+    public int getInt(int column) {
+      return isNull(column) ? 0 : chunk.getInt(slot + offsets[column]);
+    }
+
+    /** Returns the value of an integer column as a {@code long}, or 0 if it
+     * is null. */
+    public long getLong(int column) {
+      if (isNull(column)) {
+        return 0L;
+      }
+      return layout.kinds[column] == ColumnBatch.Kind.INT
+          ? chunk.getInt(slot + offsets[column])
+          : chunk.getLong(slot + offsets[column]);
+    }
+
+    /** Returns the unscaled value of a decimal column, in hundredths, or 0
+     * if it is null. */
+    public long getDecimal(int column) {
+      return isNull(column) ? 0L : chunk.getLong(slot + offsets[column]);
+    }
+
+    /** Returns the length of a character column, or -1 if it is null. */
+    public int getStringLength(int column) {
+      if (isNull(column)) {
+        return -1;
+      }
+      final long position = chunk.getLong(slot + offsets[column]);
+      return arena[(int) (position >>> ARENA_BITS)]
+          .getShort((int) (position & (ARENA_CHUNK_BYTES - 1))) & 0xFFFF;
+    }
+
+    /** Appends the value of a character column to a builder, and returns
+     * whether it was not null. Does not create a string. */
+    public boolean appendString(int column, StringBuilder buf) {
+      if (isNull(column)) {
+        return false;
+      }
+      final long position = chunk.getLong(slot + offsets[column]);
+      final ByteBuffer bytes = arena[(int) (position >>> ARENA_BITS)];
+      final int offset = (int) (position & (ARENA_CHUNK_BYTES - 1));
+      final int length = bytes.getShort(offset) & 0xFFFF;
+      for (int i = 0; i < length; i++) {
+        buf.append((char) (bytes.get(offset + 2 + i) & 0xFF));
+      }
+      return true;
+    }
+
+    /** Returns the value of a character column, or null. */
+    public String getString(int column) {
+      final int length = getStringLength(column);
+      if (length < 0) {
+        return null;
+      }
+      final StringBuilder buf = new StringBuilder(length);
+      appendString(column, buf);
+      return buf.toString();
+    }
+
+    /** {@inheritDoc}
+     *
+     * <p>Gives the same line as the table's entity. */
+    public String toLine() {
+      final StringBuilder buf = new StringBuilder();
+      for (int c = 0; c < offsets.length; c++) {
+        if (!isNull(c)) {
+          if (layout.dates[c]) {
+            buf.append(DateDim.Generator.formatDate(getInt(c)));
+          } else {
+            switch (layout.kinds[c]) {
+            case INT:
+            case LONG:
+              buf.append(getLong(c));
+              break;
+            case DECIMAL:
+              buf.append(Decimals.toString(getDecimal(c)));
+              break;
+            default:
+              appendString(c, buf);
+            }
+          }
+        }
+        buf.append('|');
+      }
+      return buf.toString();
+    }
+  }
+}
+
+// End OffHeapTable.java
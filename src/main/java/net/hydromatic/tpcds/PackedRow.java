@@ -0,0 +1,177 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Row of a table held as primitive values plus a null mask, as an
+ * alternative to an entity with a boxed field per nullable column.
+ *
+ * <p>Integer, date and decimal columns are held in one {@code long[]}
+ * (dates as julian day numbers, decimals in hundredths), and character
+ * columns in a {@code String[]}. Bit {@code i} of the null mask is set if
+ * column {@code i} is null. A {@code store_sales} row takes about half the
+ * heap of a {@link StoreSale}, which has an {@link Integer} or
+ * {@link Float} object for every non-null value.
+ *
+ * <p>Columns are identified by their ordinal in
+ * {@link TpcdsTable#getColumns()}; see
+ * {@link TpcdsTable#createPackedGenerator}.
+ */
+public final class PackedRow implements TpcdsEntity {
+  private final Layout layout;
+  private final long nulls;
+  private final long[] values;
+  private final String[] strings;
+
+  private PackedRow(Layout layout, long nulls, long[] values,
+      String[] strings) {
+    this.layout = layout;
+    this.nulls = nulls;
+    this.values = values;
+    this.strings = strings;
+  }
+
+  /** Copies the current row of a cursor. */
+  static PackedRow of(Layout layout, RowCursor cursor) {
+    final long[] values = new long[layout.valueCount];
+    final String[] strings =
+        layout.stringCount == 0 ? null : new String[layout.stringCount];
+    long nulls = 0;
+    for (int c = 0; c < layout.kinds.length; c++) {
+      if (cursor.isNull(c)) {
+        nulls |= 1L << c;
+        continue;
+      }
+      final int slot = layout.slots[c];
+      switch (layout.kinds[c]) {
+      case INT:
+      case LONG:
+        values[slot] = cursor.getLong(c);
+        break;
+      case DECIMAL:
+        values[slot] = cursor.getDecimal(c);
+        break;
+      default:
+        strings[slot] = cursor.getString(c).toString();
+      }
+    }
+    return new PackedRow(layout, nulls, values, strings);
+  }
+
+  /** Returns the number of columns. */
+  public int getColumnCount() {
+    return layout.kinds.length;
+  }
+
+  /** Returns the null mask; bit {@code i} is set if column {@code i} is
+   * null. */
+  public long getNullMask() {
+    return nulls;
+  }
+
+  public boolean isNull(int column) {
+    return (nulls & (1L << column)) != 0;
+  }
+
+  /** Returns the value of an integer or date column, or 0 if it is null.
+   * Dates are julian day numbers. */
+  public int getInt(int column) {
+    return (int) values[layout.slots[column]];
+  }
+
+  /** Returns the value of an integer column as a {@code long}, or 0 if it
+   * is null. */
+  public long getLong(int column) {
+    return values[layout.slots[column]];
+  }
+
+  /** Returns the unscaled value of a decimal column, in hundredths, or 0 if
+   * it is null. */
+  public long getDecimal(int column) {
+    return values[layout.slots[column]];
+  }
+
+  /** Returns the value of a character column, or null. */
+  public String getString(int column) {
+    return isNull(column) ? null : strings[layout.slots[column]];
+  }
+
+  /** {@inheritDoc}
+   *
+   * <p>Gives the same line as the table's entity. */
+  public String toLine() {
+    final StringBuilder buf = new StringBuilder();
+    for (int c = 0; c < layout.kinds.length; c++) {
+      if (!isNull(c)) {
+        if (layout.dates[c]) {
+          buf.append(DateDim.Generator.formatDate(getInt(c)));
+        } else {
+          switch (layout.kinds[c]) {
+          case INT:
+          case LONG:
+            buf.append(getLong(c));
+            break;
+          case DECIMAL:
+            buf.append(Decimals.toString(getDecimal(c)));
+            break;
+          default:
+            buf.append(getString(c));
+          }
+        }
+      }
+      buf.append('|');
+    }
+    return buf.toString();
+  }
+
+  /** How the columns of a table are stored in its packed rows; shared by
+   * all rows of the table. */
+  static final class Layout {
+    final ColumnBatch.Kind[] kinds;
+    /** Whether each column is a date. */
+    final boolean[] dates;
+    /** Index of each column in the {@code values} or {@code strings}
+     * array. */
+    final int[] slots;
+    final int valueCount;
+    final int stringCount;
+
+    Layout(List<? extends TpcdsColumn<?>> columns) {
+      kinds = new ColumnBatch.Kind[columns.size()];
+      dates = new boolean[columns.size()];
+      slots = new int[columns.size()];
+      int valueCount = 0;
+      int stringCount = 0;
+      for (int c = 0; c < kinds.length; c++) {
+        final Class<?> type = columns.get(c).getType();
+        kinds[c] = ColumnBatch.Kind.of(type);
+        dates[c] = type == Date.class;
+        slots[c] = kinds[c] == ColumnBatch.Kind.STRING
+            ? stringCount++
+            : valueCount++;
+      }
+      this.valueCount = valueCount;
+      this.stringCount = stringCount;
+    }
+  }
+}
+
+// End PackedRow.java
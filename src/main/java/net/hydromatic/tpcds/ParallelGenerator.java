@@ -0,0 +1,213 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Generates the rows of a table using several threads.
+ *
+ * <p>The rows are split into chunks of a fixed number of rows, and each chunk
+ * is a task in a {@link ForkJoinPool}. Worker threads that run out of work
+ * steal chunks that have not started yet. The iterator returns the rows in
+ * the same order as a single-threaded generator.
+ *
+ * <p>Only a bounded number of chunks (twice the pool's parallelism) are
+ * generated ahead of the consumer, so memory use does not grow with the size
+ * of the table.
+ *
+ * <p>If the consumer does not need the rows in order, or as entities,
+ * {@link #forEachBatch(BatchSink)} is faster: each chunk is generated into
+ * column vectors and handed to the consumer on the thread that generated
+ * it.
+ *
+ * @param <E> Element type
+ */
+public class ParallelGenerator<E> implements Iterable<E> {
+  /** Default number of rows in a chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 16384;
+
+  public final TpcdsTable<E> table;
+  public final double scaleFactor;
+  public final long firstRow;
+  public final long rowCount;
+  public final int chunkSize;
+  private final ForkJoinPool pool;
+
+  private ParallelGenerator(TpcdsTable<E> table, double scaleFactor,
+      long firstRow, long rowCount, int chunkSize, ForkJoinPool pool) {
+    checkArgument(chunkSize > 0, "chunk size must be positive");
+    this.table = checkNotNull(table);
+    this.scaleFactor = scaleFactor;
+    this.firstRow = firstRow;
+    this.rowCount = rowCount;
+    this.chunkSize = chunkSize;
+    this.pool = checkNotNull(pool);
+  }
+
+  /** Creates a parallel generator for the whole of a table. */
+  public static <E> ParallelGenerator<E> of(TpcdsTable<E> table,
+      double scaleFactor) {
+    return new ParallelGenerator<E>(table, scaleFactor, 0,
+        table.getRowCount(scaleFactor), DEFAULT_CHUNK_SIZE,
+        DefaultPool.INSTANCE);
+  }
+
+  /** Returns a generator that is the same as this but generates only the
+   * {@code part}th of {@code partCount} parts of the table. */
+  public ParallelGenerator<E> withPart(int part, int partCount) {
+    return new ParallelGenerator<E>(table, scaleFactor,
+        table.getPartFirstRow(scaleFactor, part, partCount),
+        table.getPartRowCount(scaleFactor, part, partCount), chunkSize, pool);
+  }
+
+  /** Returns a generator that is the same as this but with a given number of
+   * rows per chunk. */
+  public ParallelGenerator<E> withChunkSize(int chunkSize) {
+    return new ParallelGenerator<E>(table, scaleFactor, firstRow, rowCount,
+        chunkSize, pool);
+  }
+
+  /** Returns a generator that is the same as this but runs its tasks in a
+   * given pool. */
+  public ParallelGenerator<E> withPool(ForkJoinPool pool) {
+    return new ParallelGenerator<E>(table, scaleFactor, firstRow, rowCount,
+        chunkSize, pool);
+  }
+
+  /** Returns the number of chunks. */
+  public long getChunkCount() {
+    return (rowCount + chunkSize - 1) / chunkSize;
+  }
+
+  public Iterator<E> iterator() {
+    return new ChunkIterator();
+  }
+
+  /** Generates the rows in parallel, into column vectors, and passes each
+   * chunk of rows to a sink.
+   *
+   * <p>Chunks are independent stripes of the table, and are generated by
+   * the pool's threads without coordination; the sink receives them in no
+   * particular order, on several threads at once, so it must be
+   * thread-safe. No objects are allocated per row. Returns when every chunk
+   * has been passed to the sink. */
+  public void forEachBatch(BatchSink sink) {
+    final long chunkCount = getChunkCount();
+    if (chunkCount > 0) {
+      pool.invoke(new BatchTask(0, chunkCount, checkNotNull(sink)));
+    }
+  }
+
+  /** Iterator that submits chunks to the pool a few steps ahead of the
+   * consumer, and returns their rows in chunk order. */
+  private class ChunkIterator extends AbstractIterator<E> {
+    private final ArrayDeque<ForkJoinTask<List<E>>> tasks =
+        new ArrayDeque<ForkJoinTask<List<E>>>();
+    private final int window = 2 * pool.getParallelism();
+    private final long chunkCount = getChunkCount();
+    private long nextChunk = 0;
+    private Iterator<E> rows = Collections.emptyIterator();
+
+    protected E computeNext() {
+      while (!rows.hasNext()) {
+        while (tasks.size() < window && nextChunk < chunkCount) {
+          tasks.add(pool.submit(new ChunkTask(nextChunk++)));
+        }
+        final ForkJoinTask<List<E>> task = tasks.poll();
+        if (task == null) {
+          return endOfData();
+        }
+        rows = task.join().iterator();
+      }
+      return rows.next();
+    }
+  }
+
+  /** Task that generates the rows of one chunk. */
+  private class ChunkTask extends RecursiveTask<List<E>> {
+    private final long chunk;
+
+    ChunkTask(long chunk) {
+      this.chunk = chunk;
+    }
+
+    protected List<E> compute() {
+      final long start = chunk * chunkSize;
+      final int count = (int) Math.min(chunkSize, rowCount - start);
+      final List<E> list = new ArrayList<E>(count);
+      for (E e : table.createRangeGenerator(scaleFactor, firstRow + start,
+          count)) {
+        list.add(e);
+      }
+      return list;
+    }
+  }
+
+  /** Task that generates a range of chunks into batches. Splits itself in
+   * two until it has one chunk, so that idle threads can steal half of a
+   * busy thread's work. */
+  private class BatchTask extends RecursiveAction {
+    private final long firstChunk;
+    private final long chunkCount;
+    private final BatchSink sink;
+
+    BatchTask(long firstChunk, long chunkCount, BatchSink sink) {
+      this.firstChunk = firstChunk;
+      this.chunkCount = chunkCount;
+      this.sink = sink;
+    }
+
+    protected void compute() {
+      if (chunkCount > 1) {
+        final long half = chunkCount / 2;
+        invokeAll(new BatchTask(firstChunk, half, sink),
+            new BatchTask(firstChunk + half, chunkCount - half, sink));
+        return;
+      }
+      final long start = firstChunk * chunkSize;
+      final int count = (int) Math.min(chunkSize, rowCount - start);
+      final BatchCursor cursor =
+          table.createBatchCursor(scaleFactor, firstRow + start, count);
+      final ColumnBatch batch = table.createBatch(count);
+      while (cursor.next(batch)) {
+        sink.batch(batch);
+      }
+    }
+  }
+
+  /** Holds the pool used if none is specified; created on first use. */
+  static class DefaultPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool();
+  }
+}
+
+// End ParallelGenerator.java
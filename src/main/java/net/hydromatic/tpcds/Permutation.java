@@ -0,0 +1,125 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pseudo-random permutation of the integers 0 to {@code size - 1}, computed
+ * one element at a time in constant time and memory.
+ *
+ * <p>dsdgen materializes permutations as arrays ({@code makePermutation}),
+ * which at large scale factors costs gigabytes per worker. This is instead
+ * a bijection: a balanced Feistel network on the smallest even number of
+ * bits that can hold {@code size - 1}, and <em>cycle walking</em> to stay
+ * within the range: if the network maps an index outside the range, it is
+ * applied again to the result, until the result is inside. The network's
+ * domain is less than four times the range, so on average it is applied
+ * fewer than four times.
+ *
+ * <p>A permutation is immutable, so any number of threads and partitions
+ * can evaluate it independently; two permutations with the same size and
+ * seed are equal.
+ */
+public final class Permutation {
+  private static final int ROUNDS = 4;
+
+  public final long size;
+  private final int halfBits;
+  private final long halfMask;
+  private final long[] keys = new long[ROUNDS];
+
+  private Permutation(long size, long seed) {
+    checkArgument(size > 0, "size must be positive: %s", size);
+    this.size = size;
+    final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+    checkArgument(bits <= 62, "size too large: %s", size);
+    this.halfBits = (bits + 1) / 2;
+    this.halfMask = (1L << halfBits) - 1;
+    long k = seed;
+    for (int i = 0; i < ROUNDS; i++) {
+      k = mix(k + 0x9E3779B97F4A7C15L);
+      keys[i] = k;
+    }
+  }
+
+  /** Creates a permutation of the integers 0 to {@code size - 1}. */
+  public static Permutation of(long size, long seed) {
+    return new Permutation(size, seed);
+  }
+
+  /** Returns the element at position {@code index} of the permutation.
+   * (dsdgen's {@code getPermutationEntry}.) */
+  public long get(long index) {
+    checkIndex(index);
+    long x = index;
+    do {
+      x = encrypt(x);
+    } while (x >= size);
+    return x;
+  }
+
+  /** Returns the position at which {@code value} occurs in the
+   * permutation; the inverse of {@link #get(long)}. */
+  public long indexOf(long value) {
+    checkIndex(value);
+    long x = value;
+    do {
+      x = decrypt(x);
+    } while (x >= size);
+    return x;
+  }
+
+  private void checkIndex(long index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index
+          + " out of range 0.." + (size - 1));
+    }
+  }
+
+  private long encrypt(long x) {
+    long left = x >>> halfBits;
+    long right = x & halfMask;
+    for (int i = 0; i < ROUNDS; i++) {
+      final long t = right;
+      right = left ^ (mix(right ^ keys[i]) & halfMask);
+      left = t;
+    }
+    return left << halfBits | right;
+  }
+
+  private long decrypt(long x) {
+    long left = x >>> halfBits;
+    long right = x & halfMask;
+    for (int i = ROUNDS - 1; i >= 0; i--) {
+      final long t = left;
+      left = right ^ (mix(left ^ keys[i]) & halfMask);
+      right = t;
+    }
+    return left << halfBits | right;
+  }
+
+  /** Scrambles a 64-bit value (the finalizer of SplitMix64). */
+  static long mix(long h) {
+    h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    return h ^ (h >>> 31);
+  }
+}
+
+// End Permutation.java
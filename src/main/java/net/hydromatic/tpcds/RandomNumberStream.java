@@ -0,0 +1,158 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Stream of pseudo-random numbers for one column of a table.
+ *
+ * <p>Port of dsdgen's {@code genrand.c}. Each stream is a Park-Miller
+ * "minimal standard" linear congruential generator, seed' = seed &times;
+ * 16807 mod (2<sup>31</sup> &minus; 1), and each column of each table has
+ * its own stream.
+ *
+ * <p>Every row consumes a fixed number of seeds, {@code seedsPerRow}, from
+ * the stream. If a row uses fewer, {@link #rowStop()} discards the remainder.
+ * Therefore the seed at the start of row <i>n</i> is the initial seed times
+ * 16807<sup>n &times; seedsPerRow</sup>, and {@link #skipRows(long)} can
+ * compute it by modular exponentiation in O(log n) steps, without drawing
+ * the numbers in between.
+ */
+public class RandomNumberStream {
+  /** Default seed, as in dsdgen. */
+  public static final long DEFAULT_SEED = 19620718L;
+
+  /** Upper bound on the number of columns (streams) in all tables. The
+   * initial seeds of the streams are spread evenly over the range of the
+   * generator. */
+  public static final int MAX_COLUMN = 800;
+
+  static final long MULTIPLIER = 16807L;
+  static final long MODULUS = 2147483647L;
+
+  private final long initialSeed;
+  private final int seedsPerRow;
+  private long seed;
+  private int seedsUsed;
+
+  /** Creates a stream with a given initial seed. */
+  public RandomNumberStream(long initialSeed, int seedsPerRow) {
+    this.initialSeed = initialSeed;
+    this.seedsPerRow = seedsPerRow;
+    this.seed = initialSeed;
+  }
+
+  /** Creates the stream for a column, using the default seed.
+   *
+   * @param column Global column number; see {@link TpcdsTable#nFirstColumn}
+   * @param seedsPerRow Number of seeds each row consumes
+   */
+  public static RandomNumberStream forColumn(int column, int seedsPerRow) {
+    return new RandomNumberStream(
+        DEFAULT_SEED + (long) column * (Integer.MAX_VALUE / MAX_COLUMN),
+        seedsPerRow);
+  }
+
+  /** Creates the stream that decides which values of a table's rows are
+   * null (see {@link Nulls}). It consumes one seed per row. Its initial
+   * seed lies halfway between those of the streams of the table's first
+   * two columns.
+   *
+   * @param firstColumn Global number of the table's first column
+   */
+  public static RandomNumberStream forNulls(int firstColumn) {
+    final long step = Integer.MAX_VALUE / MAX_COLUMN;
+    return new RandomNumberStream(
+        DEFAULT_SEED + firstColumn * step + step / 2, 1);
+  }
+
+  /** Returns {@code seed} &times; 16807<sup>n</sup> mod
+   * (2<sup>31</sup> &minus; 1); that is, the seed after {@code n} draws. */
+  static long jump(long seed, long n) {
+    long z = seed;
+    long m = MULTIPLIER;
+    while (n > 0) {
+      if ((n & 1) != 0) {
+        z = z * m % MODULUS;
+      }
+      n >>>= 1;
+      m = m * m % MODULUS;
+    }
+    return z;
+  }
+
+  /** Positions the stream at the start of a given row (numbered from 0). */
+  public void skipRows(long row) {
+    seed = jump(initialSeed, row * seedsPerRow);
+    seedsUsed = 0;
+  }
+
+  /** Finishes a row, discarding the seeds that the row did not use. */
+  public void rowStop() {
+    if (seedsUsed > seedsPerRow) {
+      throw new IllegalStateException("row used " + seedsUsed
+          + " seeds; only " + seedsPerRow + " are reserved");
+    }
+    if (seedsUsed < seedsPerRow) {
+      seed = jump(seed, seedsPerRow - seedsUsed);
+    }
+    seedsUsed = 0;
+  }
+
+  /** Returns the next number in the stream, between 1 and
+   * 2<sup>31</sup> &minus; 2. */
+  public int next() {
+    seed = seed * MULTIPLIER % MODULUS;
+    ++seedsUsed;
+    return (int) seed;
+  }
+
+  /** Returns a uniformly distributed integer between {@code min} and
+   * {@code max}, inclusive. (dsdgen's {@code genrand_integer} with
+   * {@code DIST_UNIFORM}.) */
+  public int nextInt(int min, int max) {
+    return min + (int) (next() % ((long) max - min + 1));
+  }
+
+  /** Fills {@code count} elements of an array with uniformly distributed
+   * integers between {@code min} and {@code max}, one per row.
+   *
+   * <p>Equivalent to calling {@link #nextInt(int, int)} then
+   * {@link #rowStop()} {@code count} times; only valid if the stream
+   * consumes one seed per row and is at the start of a row. */
+  public void fillInts(int[] values, int offset, int count, int min,
+      int max) {
+    if (seedsPerRow != 1 || seedsUsed != 0) {
+      throw new IllegalStateException();
+    }
+    final long range = (long) max - min + 1;
+    long z = seed;
+    for (int i = offset; i < offset + count; i++) {
+      z = z * MULTIPLIER % MODULUS;
+      values[i] = min + (int) (z % range);
+    }
+    seed = z;
+  }
+
+  /** Returns a uniformly distributed double between 0 (inclusive) and 1
+   * (exclusive). */
+  public double nextDouble() {
+    return (next() - 1) / (double) (MODULUS - 1);
+  }
+}
+
+// End RandomNumberStream.java
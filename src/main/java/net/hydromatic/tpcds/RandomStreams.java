@@ -0,0 +1,63 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * The random number streams of one table, one per column.
+ *
+ * <p>Stream {@code i} belongs to the column whose ordinal (within the table)
+ * is {@code i}; its seed is derived from the global column number
+ * {@code firstColumn + i}.
+ */
+public class RandomStreams {
+  private final RandomNumberStream[] streams;
+
+  /** Creates the streams for a table.
+   *
+   * @param firstColumn Global number of the table's first column
+   * @param seedsPerRow Number of seeds each column consumes per row
+   */
+  public RandomStreams(int firstColumn, int... seedsPerRow) {
+    streams = new RandomNumberStream[seedsPerRow.length];
+    for (int i = 0; i < seedsPerRow.length; i++) {
+      streams[i] =
+          RandomNumberStream.forColumn(firstColumn + i, seedsPerRow[i]);
+    }
+  }
+
+  /** Returns the stream for the column with a given ordinal. */
+  public RandomNumberStream get(int ordinal) {
+    return streams[ordinal];
+  }
+
+  /** Positions every stream at the start of a given row. */
+  public void skipRows(long row) {
+    for (RandomNumberStream stream : streams) {
+      stream.skipRows(row);
+    }
+  }
+
+  /** Finishes a row; see {@link RandomNumberStream#rowStop()}. */
+  public void rowStop() {
+    for (RandomNumberStream stream : streams) {
+      stream.rowStop();
+    }
+  }
+}
+
+// End RandomStreams.java
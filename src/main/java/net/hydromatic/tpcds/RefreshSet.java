@@ -0,0 +1,298 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Range;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Data set for one run of the data maintenance (refresh) functions; the
+ * equivalent of running dsdgen with {@code -UPDATE n}.
+ *
+ * <p>A refresh set consists of:
+ * <ul>
+ *   <li>line items to insert into each sales table, and the returns derived
+ *   from them (dsdgen's {@code s_purchase_lineitem},
+ *   {@code s_store_returns}, {@code s_catalog_order_lineitem},
+ *   {@code s_catalog_returns}, {@code s_web_order_lineitem} and
+ *   {@code s_web_returns});</li>
+ *   <li>a week of inventory to insert ({@code s_inventory});</li>
+ *   <li>rows to insert into the dimension tables that have generators
+ *   ({@code s_item}, {@code s_web_page}, {@code s_customer_address} and
+ *   {@code s_warehouse});</li>
+ *   <li>ranges of dates whose sales and returns are to be deleted
+ *   ({@code delete_n.dat}), and a range of dates whose inventory is to be
+ *   deleted ({@code inventory_delete_n.dat}).</li>
+ * </ul>
+ *
+ * <p>The inserted rows continue the base tables: refresh set <i>n</i>
+ * consists of the rows that a generator produces after the end of the
+ * table and after refresh sets 1 to <i>n</i> &minus; 1. So ticket numbers
+ * do not clash with the base tables or with other refresh sets, and no
+ * refresh data needs to be staged: each part of a refresh set can be
+ * generated, in parallel, when it is needed.
+ *
+ * <p>Inserted line items are sold within the date ranges that the refresh
+ * set deletes (see {@link #getDeleteRanges()}), so that, after its deletes
+ * and inserts, each of those ranges holds that refresh set's sales.
+ * Inserted rows of slowly changing dimensions such as {@code item} are
+ * whole revision chains of new business keys.
+ *
+ * <p>Rows have the layout of the warehouse tables (with surrogate keys),
+ * not of dsdgen's flat source files.
+ */
+public class RefreshSet {
+  /** Each refresh set inserts about one line item for every this many in
+   * the sales table. */
+  public static final int REFRESH_RATIO = 1000;
+
+  /** Number of date ranges deleted by each refresh set. */
+  public static final int DELETE_RANGE_COUNT = 3;
+
+  /** Number of days in each deleted date range. */
+  public static final int DELETE_DAYS = 7;
+
+  /** Global column number of the stream that chooses the deleted date
+   * ranges. Column 0 does not belong to any table. */
+  private static final int DELETE_COLUMN = 0;
+
+  private static final ImmutableMap<TpcdsTable<?>, TpcdsTable<?>> RETURNS =
+      ImmutableMap.<TpcdsTable<?>, TpcdsTable<?>>of(
+          TpcdsTable.STORE_SALES, TpcdsTable.STORE_RETURNS,
+          TpcdsTable.CATALOG_SALES, TpcdsTable.CATALOG_RETURNS,
+          TpcdsTable.WEB_SALES, TpcdsTable.WEB_RETURNS);
+
+  /** Dimension tables that a refresh set inserts into, and dsdgen's names
+   * for their source files. */
+  private static final ImmutableMap<TpcdsTable<?>, String> DIMENSIONS =
+      ImmutableMap.<TpcdsTable<?>, String>of(
+          TpcdsTable.ITEM, "s_item",
+          TpcdsTable.WEB_PAGE, "s_web_page",
+          TpcdsTable.CUSTOMER_ADDRESS, "s_customer_address",
+          TpcdsTable.WAREHOUSE, "s_warehouse");
+
+  public final double scaleFactor;
+  public final int update;
+
+  private RefreshSet(double scaleFactor, int update) {
+    checkArgument(update >= 1, "update must be positive: %s", update);
+    this.scaleFactor = scaleFactor;
+    this.update = update;
+  }
+
+  /** Creates the refresh set with a given number, from 1, at a given scale
+   * factor. */
+  public static RefreshSet of(double scaleFactor, int update) {
+    return new RefreshSet(scaleFactor, update);
+  }
+
+  private static SalesGenerator<?> salesGenerator(TpcdsTable<?> salesTable,
+      double scaleFactor, long firstRow, long rowCount) {
+    checkArgument(RETURNS.containsKey(salesTable), "not a sales table: %s",
+        salesTable.name);
+    return (SalesGenerator<?>) salesTable.rowGenerator(scaleFactor,
+        firstRow, rowCount);
+  }
+
+  /** Returns the number of rows by which the start and size of a sales
+   * refresh set are aligned, so that it consists of whole tickets and whole
+   * blocks of returns. */
+  private static long alignment(SalesGenerator<?> generator) {
+    final long rowsPerBlock = generator.tickets.rowsPerBlock;
+    long a = rowsPerBlock;
+    long b = SalesGenerator.RETURN_INTERVAL;
+    while (b != 0) {
+      final long t = a % b;
+      a = b;
+      b = t;
+    }
+    return rowsPerBlock / a * SalesGenerator.RETURN_INTERVAL;
+  }
+
+  private static long roundUp(long n, long multiple) {
+    return (n + multiple - 1) / multiple * multiple;
+  }
+
+  /** Returns the number of line items that this refresh set inserts into a
+   * sales table. */
+  public long getRowCount(TpcdsTable<?> salesTable) {
+    final long alignment =
+        alignment(salesGenerator(salesTable, scaleFactor, 0, 0));
+    return roundUp(salesTable.getRowCount(scaleFactor) / REFRESH_RATIO,
+        alignment);
+  }
+
+  /** Returns the number of returns that this refresh set inserts into the
+   * returns table of a sales table. */
+  public long getReturnCount(TpcdsTable<?> salesTable) {
+    return getRowCount(salesTable) / SalesGenerator.RETURN_INTERVAL;
+  }
+
+  /** Returns the row of the (extended) sales table at which this refresh
+   * set starts. */
+  private long firstRow(TpcdsTable<?> salesTable) {
+    final long alignment =
+        alignment(salesGenerator(salesTable, scaleFactor, 0, 0));
+    return roundUp(salesTable.getRowCount(scaleFactor), alignment)
+        + (update - 1) * getRowCount(salesTable);
+  }
+
+  /** Generates one part of the line items that this refresh set inserts
+   * into a sales table, and the returns derived from them.
+   *
+   * <p>Parts are numbered as in {@link TpcdsTable#createGenerator}. Row
+   * numbers passed to the sinks are relative to the start of the refresh
+   * set. */
+  public void generateSales(TpcdsTable<?> salesTable, int part,
+      int partCount, final RowSink salesSink, final RowSink returnsSink) {
+    final long rowCount = getRowCount(salesTable);
+    final long firstRow = firstRow(salesTable);
+    final SalesGenerator<?> generator = salesGenerator(salesTable,
+        scaleFactor,
+        firstRow + Scaling.partFirstRow(rowCount, part, partCount),
+        Scaling.partRowCount(rowCount, part, partCount));
+    generator.withSoldDates(getDeleteRanges());
+    final long firstBlock = firstRow / SalesGenerator.RETURN_INTERVAL;
+    generator.generate(
+        new RowSink() {
+          public void row(long row, RowBuffer buffer) {
+            salesSink.row(row - firstRow, buffer);
+          }
+        },
+        new RowSink() {
+          public void row(long row, RowBuffer buffer) {
+            returnsSink.row(row - firstBlock, buffer);
+          }
+        },
+        (firstRow + rowCount) / SalesGenerator.RETURN_INTERVAL);
+  }
+
+  /** Returns the number of inventory rows that this refresh set inserts:
+   * one week, for each item and warehouse. */
+  public long getInventoryRowCount() {
+    return TpcdsTable.INVENTORY.getRowCount(scaleFactor)
+        / Scaling.INVENTORY_WEEKS;
+  }
+
+  /** Creates a cursor over one part of the inventory rows that this refresh
+   * set inserts. They are the inventory for the week after the base table
+   * and the previous refresh sets. */
+  public RowCursor createInventoryCursor(int part, int partCount) {
+    final long rowCount = getInventoryRowCount();
+    final long firstRow =
+        (Scaling.INVENTORY_WEEKS + update - 1) * rowCount;
+    return TpcdsTable.INVENTORY.createCursor(scaleFactor,
+        firstRow + Scaling.partFirstRow(rowCount, part, partCount),
+        Scaling.partRowCount(rowCount, part, partCount));
+  }
+
+  /** Returns the dimension tables that a refresh set inserts into. */
+  public static ImmutableList<TpcdsTable<?>> getDimensionTables() {
+    return DIMENSIONS.keySet().asList();
+  }
+
+  /** Returns dsdgen's name for the source file of a dimension table's
+   * refresh data; for example, {@code s_item}. */
+  public static String getSourceName(TpcdsTable<?> dimensionTable) {
+    final String name = DIMENSIONS.get(dimensionTable);
+    checkArgument(name != null, "not a refreshed dimension table: %s",
+        dimensionTable.name);
+    return name;
+  }
+
+  /** Returns the number of rows by which the start and size of a dimension
+   * refresh set are aligned: whole revision chains of a slowly changing
+   * dimension, otherwise single rows. */
+  private static long dimensionAlignment(TpcdsTable<?> dimensionTable) {
+    checkArgument(DIMENSIONS.containsKey(dimensionTable),
+        "not a refreshed dimension table: %s", dimensionTable.name);
+    return dimensionTable.rowGenerator(1d, 0, 0) instanceof ScdGenerator
+        ? ScdGenerator.BLOCK_ROWS
+        : 1;
+  }
+
+  /** Returns the number of rows that this refresh set inserts into a
+   * dimension table; at least one. */
+  public long getDimensionRowCount(TpcdsTable<?> dimensionTable) {
+    return roundUp(
+        Math.max(1,
+            dimensionTable.getRowCount(scaleFactor) / REFRESH_RATIO),
+        dimensionAlignment(dimensionTable));
+  }
+
+  /** Creates a cursor over one part of the rows that this refresh set
+   * inserts into a dimension table. They follow the rows of the base table
+   * and of the previous refresh sets. */
+  public RowCursor createDimensionCursor(TpcdsTable<?> dimensionTable,
+      int part, int partCount) {
+    final long rowCount = getDimensionRowCount(dimensionTable);
+    final long firstRow =
+        roundUp(dimensionTable.getRowCount(scaleFactor),
+            dimensionAlignment(dimensionTable))
+        + (update - 1) * rowCount;
+    return dimensionTable.createCursor(scaleFactor,
+        firstRow + Scaling.partFirstRow(rowCount, part, partCount),
+        Scaling.partRowCount(rowCount, part, partCount));
+  }
+
+  /** Returns the ranges of dates ({@code d_date_sk} values, inclusive)
+   * whose sales and returns this refresh set deletes.
+   *
+   * <p>The sales period is divided into {@link #DELETE_RANGE_COUNT} equal
+   * periods, and one range of {@link #DELETE_DAYS} days is chosen at random
+   * from each, so the ranges never overlap. */
+  public ImmutableList<Range<Integer>> getDeleteRanges() {
+    final RandomNumberStream stream = deleteStream();
+    final int days = SalesGenerator.LAST_SALES_DATE_SK
+        - SalesGenerator.FIRST_SALES_DATE_SK + 1;
+    final int period = days / DELETE_RANGE_COUNT;
+    final ImmutableList.Builder<Range<Integer>> ranges =
+        ImmutableList.builder();
+    for (int i = 0; i < DELETE_RANGE_COUNT; i++) {
+      final int start = SalesGenerator.FIRST_SALES_DATE_SK + i * period
+          + stream.nextInt(0, period - DELETE_DAYS);
+      ranges.add(Range.closed(start, start + DELETE_DAYS - 1));
+    }
+    return ranges.build();
+  }
+
+  /** Returns the range of dates ({@code inv_date_sk} values, inclusive)
+   * whose inventory this refresh set deletes: one week of the base
+   * table. */
+  public Range<Integer> getInventoryDeleteRange() {
+    final RandomNumberStream stream = deleteStream();
+    for (int i = 0; i < DELETE_RANGE_COUNT; i++) {
+      stream.next();
+    }
+    final int week = stream.nextInt(0, Scaling.INVENTORY_WEEKS - 1);
+    final int start = Inventory.Generator.FIRST_DATE_SK + week * 7;
+    return Range.closed(start, start + 6);
+  }
+
+  private RandomNumberStream deleteStream() {
+    final RandomNumberStream stream =
+        RandomNumberStream.forColumn(DELETE_COLUMN, DELETE_RANGE_COUNT + 1);
+    stream.skipRows(update - 1);
+    return stream;
+  }
+}
+
+// End RefreshSet.java
@@ -0,0 +1,78 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Generator for a returns table ({@code store_returns},
+ * {@code catalog_returns} or {@code web_returns}).
+ *
+ * <p>Each row is derived from a line item of the corresponding sales table;
+ * see {@link SalesGenerator}. To generate a returns row on its own, this
+ * generator regenerates the line item, positioning the sales streams at
+ * its row. It is cheaper to generate the sales and returns tables together,
+ * using {@link SalesGenerator#generate(RowSink, RowSink)}.
+ *
+ * @param <E> Element type
+ */
+public abstract class ReturnsGenerator<E> extends RowGenerator<E> {
+  private final SalesGenerator<?> sales;
+
+  /** Creates a returns generator.
+   *
+   * @param sales Generator for the whole of the sales table
+   * @param firstRow First row of the returns table to generate
+   * @param rowCount Number of rows to generate
+   */
+  protected ReturnsGenerator(SalesGenerator<?> sales, long firstRow,
+      long rowCount) {
+    super(sales.scaleFactor, firstRow, rowCount,
+        sales.getReturnColumnCount());
+    this.sales = sales;
+  }
+
+  protected RandomStreams createStreams() {
+    return new ReturnStreams(sales);
+  }
+
+  protected void generateRow(long row, RandomStreams streams,
+      RowBuffer buffer) {
+    final ReturnStreams returnStreams = (ReturnStreams) streams;
+    final long saleRow = row * SalesGenerator.RETURN_INTERVAL
+        + SalesGenerator.returnedLine(returnStreams);
+    returnStreams.salesStreams.skipRows(saleRow);
+    returnStreams.sale.clear();
+    sales.generateRow(saleRow, returnStreams.salesStreams,
+        returnStreams.sale);
+    sales.generateReturn(returnStreams.sale, returnStreams, buffer);
+  }
+
+  /** Streams of a returns table. Also holds the streams of the sales table
+   * and a buffer for the line item that is being returned. */
+  private static class ReturnStreams extends RandomStreams {
+    final RandomStreams salesStreams;
+    final RowBuffer sale;
+
+    ReturnStreams(SalesGenerator<?> sales) {
+      super(sales.returnsFirstColumn(), sales.returnSeeds());
+      this.salesStreams = sales.createStreams();
+      this.sale = new RowBuffer(sales.columnCount);
+    }
+  }
+}
+
+// End ReturnsGenerator.java
@@ -0,0 +1,144 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Mutable buffer that holds one row while it is being generated.
+ *
+ * <p>Integer, date and decimal columns are held in a {@code long} slot
+ * (decimals unscaled, in hundredths); character columns hold a
+ * {@link CharSequence}. Nulls are bits in a {@code long} mask, so a table
+ * may have at most 64 columns.
+ */
+public class RowBuffer {
+  private final long[] longs;
+  private final CharSequence[] strings;
+  private long nulls;
+
+  /** Creates a buffer for a table with a given number of columns. */
+  public RowBuffer(int columnCount) {
+    checkArgument(columnCount <= 64, "too many columns: %s", columnCount);
+    this.longs = new long[columnCount];
+    this.strings = new CharSequence[columnCount];
+  }
+
+  /** Returns the number of columns. */
+  public int getColumnCount() {
+    return longs.length;
+  }
+
+  /** Sets every column to null. */
+  public void clear() {
+    nulls = -1L;
+  }
+
+  /** Copies the values and nulls of another buffer, which must have the
+   * same number of columns. */
+  public void copyFrom(RowBuffer buffer) {
+    System.arraycopy(buffer.longs, 0, longs, 0, longs.length);
+    System.arraycopy(buffer.strings, 0, strings, 0, strings.length);
+    nulls = buffer.nulls;
+  }
+
+  /** Copies the values and nulls of the columns in a mask from another
+   * buffer, which must have the same number of columns. */
+  public void copyFrom(RowBuffer buffer, long columnMask) {
+    for (long m = columnMask; m != 0; m &= m - 1) {
+      final int i = Long.numberOfTrailingZeros(m);
+      longs[i] = buffer.longs[i];
+      strings[i] = buffer.strings[i];
+    }
+    nulls = nulls & ~columnMask | buffer.nulls & columnMask;
+  }
+
+  /** Returns the null mask; bit {@code i} is set if column {@code i} is
+   * null. */
+  public long getNullMask() {
+    return nulls;
+  }
+
+  public boolean isNull(int column) {
+    return (nulls & (1L << column)) != 0;
+  }
+
+  public void setNull(int column) {
+    nulls |= 1L << column;
+  }
+
+  /** Makes null each column whose bit is set in a mask. */
+  public void setNulls(long columnMask) {
+    nulls |= columnMask;
+  }
+
+  public void setInt(int column, int value) {
+    longs[column] = value;
+    nulls &= ~(1L << column);
+  }
+
+  public void setLong(int column, long value) {
+    longs[column] = value;
+    nulls &= ~(1L << column);
+  }
+
+  /** Sets a decimal column from its unscaled value (in hundredths). */
+  public void setDecimal(int column, long unscaledValue) {
+    longs[column] = unscaledValue;
+    nulls &= ~(1L << column);
+  }
+
+  public void setString(int column, CharSequence value) {
+    strings[column] = value;
+    if (value == null) {
+      nulls |= 1L << column;
+    } else {
+      nulls &= ~(1L << column);
+    }
+  }
+
+  public int getInt(int column) {
+    return isNull(column) ? 0 : (int) longs[column];
+  }
+
+  public long getLong(int column) {
+    return isNull(column) ? 0L : longs[column];
+  }
+
+  public long getDecimal(int column) {
+    return isNull(column) ? 0L : longs[column];
+  }
+
+  public CharSequence getString(int column) {
+    return isNull(column) ? null : strings[column];
+  }
+
+  /** Returns the value of an integer column as an {@link Integer}, or null.
+   * For building entities. */
+  public Integer getInteger(int column) {
+    return isNull(column) ? null : (int) longs[column];
+  }
+
+  /** Returns the value of a decimal column as a {@link Float}, or null.
+   * For building entities. */
+  public Float getFloat(int column) {
+    return isNull(column) ? null : longs[column] / 100f;
+  }
+}
+
+// End RowBuffer.java
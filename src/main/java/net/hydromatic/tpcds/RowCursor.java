@@ -0,0 +1,57 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Cursor over the rows of a table.
+ *
+ * <p>Unlike the iterator of a generator, a cursor does not create an object
+ * per row. It writes each row into one buffer, which the next call to
+ * {@link #advance()} overwrites. Columns are identified by their ordinal
+ * in {@link TpcdsTable#getColumns()}.
+ *
+ * <p>A cursor is not thread-safe; each thread should use its own cursor.
+ */
+public interface RowCursor {
+  /** Moves to the next row; returns false if there are no more rows. */
+  boolean advance();
+
+  /** Returns the number of the current row, starting from 0. */
+  long getRowNumber();
+
+  /** Returns whether a column of the current row is null. */
+  boolean isNull(int column);
+
+  /** Returns the value of an integer column, or 0 if it is null. */
+  int getInt(int column);
+
+  /** Returns the value of an integer column as a {@code long}, or 0 if it is
+   * null. */
+  long getLong(int column);
+
+  /** Returns the unscaled value of a decimal column, or 0 if it is null.
+   * All decimal columns in TPC-DS have scale 2, so this is the value in
+   * hundredths; for example, 12.34 is returned as 1234. */
+  long getDecimal(int column);
+
+  /** Returns the value of a character column, or null. The value is only
+   * valid until the next call to {@link #advance()}. */
+  CharSequence getString(int column);
+}
+
+// End RowCursor.java
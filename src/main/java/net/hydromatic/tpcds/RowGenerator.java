@@ -0,0 +1,196 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.Iterator;
+
+/**
+ * Generator for a contiguous range of rows of a table.
+ *
+ * <p>A row is a function of its row number and of the random number
+ * streams, and each row consumes a fixed number of seeds from each stream.
+ * So the generator can start at any row: it positions the streams using
+ * {@link RandomStreams#skipRows(long)} rather than generating the rows
+ * before it.
+ *
+ * <p>Rows are generated into a {@link RowBuffer}. {@link #cursor()} returns
+ * the buffer's contents without creating an object per row;
+ * {@link #iterator()} converts each row to an entity;
+ * {@link #batchCursor()} fills column vectors. All three inject nulls into
+ * the generated rows, if the table that created the generator has any; see
+ * {@link Nulls}.
+ *
+ * @param <E> Element type
+ */
+public abstract class RowGenerator<E> implements Iterable<E> {
+  protected final double scaleFactor;
+  protected final long firstRow;
+  protected final long rowCount;
+  protected final int columnCount;
+  private Nulls nulls = Nulls.NONE;
+
+  protected RowGenerator(double scaleFactor, long firstRow, long rowCount,
+      int columnCount) {
+    this.scaleFactor = scaleFactor;
+    this.firstRow = firstRow;
+    this.rowCount = rowCount;
+    this.columnCount = columnCount;
+  }
+
+  /** Sets the nulls that this generator injects into the rows it returns,
+   * and returns this. A table calls it when it creates the generator. */
+  RowGenerator<E> withNulls(Nulls nulls) {
+    this.nulls = nulls;
+    return this;
+  }
+
+  /** Returns the nulls that this generator injects. */
+  Nulls getNulls() {
+    return nulls;
+  }
+
+  /** Creates the random number streams for a table, positioned at row 0. */
+  protected abstract RandomStreams createStreams();
+
+  /** Generates a row into a buffer. Must not depend on any state other than
+   * the row number and the streams. The buffer's columns are all null on
+   * entry. */
+  protected abstract void generateRow(long row, RandomStreams streams,
+      RowBuffer buffer);
+
+  /** Converts the contents of a buffer to an entity. */
+  protected abstract E toEntity(RowBuffer buffer);
+
+  /** Returns the value of a character column as a {@link String}, or null.
+   * For building entities. */
+  protected static String string(RowBuffer buffer, int column) {
+    final CharSequence value = buffer.getString(column);
+    return value == null ? null : value.toString();
+  }
+
+  /** Generates {@code count} rows, starting at {@code row}, into positions
+   * 0 to {@code count - 1} of a batch. The batch has been reset, and the
+   * streams are positioned at the start of {@code row}; on return they must
+   * be positioned at the start of row {@code row + count}.
+   *
+   * <p>The default implementation generates each row into a buffer and
+   * copies it into the batch. Tables on the critical path should override
+   * it with loops that write directly into the vectors. */
+  protected void generateBatch(long row, int count, RandomStreams streams,
+      ColumnBatch batch) {
+    final RowBuffer buffer = new RowBuffer(columnCount);
+    for (int i = 0; i < count; i++) {
+      buffer.clear();
+      generateRow(row + i, streams, buffer);
+      streams.rowStop();
+      batch.set(i, buffer);
+    }
+  }
+
+  /** Creates a cursor over the rows. */
+  public RowCursor cursor() {
+    return new Cursor();
+  }
+
+  /** Creates a cursor that fills batches of rows. */
+  public BatchCursor batchCursor() {
+    final RandomStreams streams = createStreams();
+    streams.skipRows(firstRow);
+    final RandomNumberStream nullStream = nulls.createStream(firstRow);
+    return new BatchCursor() {
+      long row = firstRow;
+
+      public boolean next(ColumnBatch batch) {
+        final int count =
+            (int) Math.min(batch.capacity, firstRow + rowCount - row);
+        batch.reset(row, Math.max(count, 0));
+        if (count <= 0) {
+          return false;
+        }
+        generateBatch(row, count, streams, batch);
+        nulls.apply(nullStream, batch);
+        row += count;
+        return true;
+      }
+    };
+  }
+
+  public Iterator<E> iterator() {
+    final Cursor cursor = new Cursor();
+    return new AbstractIterator<E>() {
+      protected E computeNext() {
+        if (!cursor.advance()) {
+          return endOfData();
+        }
+        return toEntity(cursor.buffer);
+      }
+    };
+  }
+
+  /** Cursor that generates each row into the same buffer. */
+  private class Cursor implements RowCursor {
+    final RandomStreams streams = createStreams();
+    final RowBuffer buffer = new RowBuffer(columnCount);
+    final RandomNumberStream nullStream = nulls.createStream(firstRow);
+    long row = firstRow - 1;
+
+    Cursor() {
+      streams.skipRows(firstRow);
+    }
+
+    public boolean advance() {
+      if (row + 1 >= firstRow + rowCount) {
+        return false;
+      }
+      ++row;
+      buffer.clear();
+      generateRow(row, streams, buffer);
+      streams.rowStop();
+      nulls.apply(nullStream, buffer);
+      return true;
+    }
+
+    public long getRowNumber() {
+      return row;
+    }
+
+    public boolean isNull(int column) {
+      return buffer.isNull(column);
+    }
+
+    public int getInt(int column) {
+      return buffer.getInt(column);
+    }
+
+    public long getLong(int column) {
+      return buffer.getLong(column);
+    }
+
+    public long getDecimal(int column) {
+      return buffer.getDecimal(column);
+    }
+
+    public CharSequence getString(int column) {
+      return buffer.getString(column);
+    }
+  }
+}
+
+// End RowGenerator.java
@@ -0,0 +1,37 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Consumer of generated rows.
+ *
+ * <p>Allows a generator that produces several tables in one pass, such as
+ * {@link SalesGenerator}, to send each table's rows to a different
+ * destination.
+ */
+public interface RowSink {
+  /** Receives a row. The buffer is reused for the next row, so the sink
+   * must copy any values that it wishes to keep.
+   *
+   * @param row Row number, from 0
+   * @param buffer Values of the row's columns
+   */
+  void row(long row, RowBuffer buffer);
+}
+
+// End RowSink.java
@@ -0,0 +1,735 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.Range;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generator for a sales table ({@code store_sales}, {@code catalog_sales}
+ * or {@code web_sales}) that can also generate the corresponding returns
+ * table.
+ *
+ * <p>Each row is a line item of a ticket (or order); see {@link Tickets}.
+ * Columns that describe the ticket, such as the date and the customer, are
+ * generated once per ticket, from streams that are positioned by ticket
+ * number; columns that describe the line item, such as the item and the
+ * price, are generated from streams positioned by row number.
+ *
+ * <p>One line item in {@link #RETURN_INTERVAL} is returned: the sales rows
+ * are divided into blocks of that size, and row <i>j</i> of the returns
+ * table is derived from a line item chosen at random from block <i>j</i>.
+ * {@link #generate(RowSink, RowSink)} generates a range of sales rows and
+ * the returns derived from them in a single pass. {@link ReturnsGenerator}
+ * generates the returns table on its own, but has to regenerate each
+ * returned line item to do so.
+ *
+ * @param <E> Element type
+ */
+public abstract class SalesGenerator<E> extends RowGenerator<E> {
+  /** One line item in this many is returned. */
+  public static final int RETURN_INTERVAL = 10;
+
+  /** Julian day number of 1998-01-02, the first day of sales. */
+  static final int FIRST_SALES_DATE_SK = 2450816;
+  /** Julian day number of 2003-01-02, the last day of sales. */
+  static final int LAST_SALES_DATE_SK = 2452642;
+  static final int LAST_TIME_SK = 86399;
+
+  /** Number of seeds used by {@link #generatePricing}. */
+  static final int PRICING_SEEDS = 8;
+  /** Number of columns written by {@link #generatePricing}, if not
+   * shipping; shipping adds three more. */
+  private static final int PRICING_COLUMNS = 13;
+  /** Number of seeds used by {@link #generateReturnPricing}. */
+  static final int RETURN_PRICING_SEEDS = 5;
+
+  /** Percentage of orders that are shipped to a different customer than the
+   * one who pays for them. */
+  private static final int GIFT_PERCENT = 50;
+
+  protected final Tickets tickets;
+  private final TpcdsTable<E> salesTable;
+  private final TpcdsTable<?> returnsTable;
+  private final long returnCount;
+  private Nulls returnNulls = Nulls.NONE;
+
+  protected final int itemCount;
+  /** Cache from which line items read the prices of their items. */
+  private final DimensionCache itemCache = DimensionCache.shared();
+  private final Permutation itemPermutation;
+  protected final int customerCount;
+  protected final int customerDemographicsCount;
+  protected final int householdDemographicsCount;
+  protected final int addressCount;
+  protected final int promotionCount;
+  protected final int reasonCount;
+
+  /** Column that holds the item of a line item. */
+  private final int itemColumn;
+  /** First column of the pricing columns; see {@link #generatePricing}. */
+  private final int pricingColumn;
+  /** Whether the pricing columns include shipping costs. */
+  private final boolean shipping;
+  /** Bit mask of the pricing columns. */
+  private final long pricingMask;
+  /** Days on which tickets may be sold, or null if any day of the sales
+   * period; see {@link #withSoldDates}. */
+  private int[] soldDates;
+
+  /** Creates a sales generator.
+   *
+   * @param itemColumn Column that holds the item of a line item, whose
+   *   prices the pricing columns start from
+   * @param pricingColumn First of the pricing columns, which this class
+   *   generates; see {@link #generatePricing}
+   * @param shipping Whether the pricing columns include shipping costs
+   */
+  protected SalesGenerator(double scaleFactor, long firstRow, long rowCount,
+      TpcdsTable<E> salesTable, TpcdsTable<?> returnsTable,
+      Tickets tickets, int itemColumn, int pricingColumn, boolean shipping) {
+    super(scaleFactor, firstRow, rowCount, salesTable.columns.size());
+    this.tickets = tickets;
+    this.itemColumn = itemColumn;
+    this.pricingColumn = pricingColumn;
+    this.shipping = shipping;
+    this.pricingMask =
+        ((1L << (shipping ? PRICING_COLUMNS + 3 : PRICING_COLUMNS)) - 1)
+            << pricingColumn;
+    this.salesTable = salesTable;
+    this.returnsTable = returnsTable;
+    this.returnCount =
+        salesTable.getRowCount(scaleFactor) / RETURN_INTERVAL;
+    this.itemCount = count("item");
+    this.itemPermutation =
+        Permutation.of(Math.max(itemCount, 1), salesTable.nFirstColumn);
+    this.customerCount = count("customer");
+    this.customerDemographicsCount = count("customer_demographics");
+    this.householdDemographicsCount = count("household_demographics");
+    this.addressCount = count("customer_address");
+    this.promotionCount = count("promotion");
+    this.reasonCount = count("reason");
+  }
+
+  /** {@inheritDoc}
+   *
+   * <p>A sales generator that injects nulls also injects the returns
+   * table's nulls into the returns rows that {@link #generate} derives. */
+  @Override RowGenerator<E> withNulls(Nulls nulls) {
+    this.returnNulls = nulls == Nulls.NONE ? nulls : Nulls.of(returnsTable);
+    return super.withNulls(nulls);
+  }
+
+  /** Restricts the days on which tickets are sold to the given ranges of
+   * dates ({@code d_date_sk} values), and returns this. A refresh set calls
+   * it so that the line items it inserts fall inside its update window. */
+  SalesGenerator<E> withSoldDates(List<Range<Integer>> ranges) {
+    int n = 0;
+    for (Range<Integer> range : ranges) {
+      n += range.upperEndpoint() - range.lowerEndpoint() + 1;
+    }
+    final int[] dates = new int[n];
+    n = 0;
+    for (Range<Integer> range : ranges) {
+      for (int d = range.lowerEndpoint(); d <= range.upperEndpoint(); d++) {
+        dates[n++] = d;
+      }
+    }
+    this.soldDates = dates;
+    return this;
+  }
+
+  /** Draws the date on which a ticket is sold, consuming one seed. */
+  protected int soldDateSk(RandomNumberStream stream) {
+    return soldDates == null
+        ? stream.nextInt(FIRST_SALES_DATE_SK, LAST_SALES_DATE_SK)
+        : soldDates[stream.nextInt(0, soldDates.length - 1)];
+  }
+
+  /** Returns the number of rows in a table at this generator's scale
+   * factor. */
+  protected int count(String tableName) {
+    return (int) Scaling.rowCount(tableName, scaleFactor);
+  }
+
+  /** Returns the number of seeds that each column consumes per ticket.
+   * Zero for columns that are not generated per ticket. */
+  protected abstract int[] ticketSeeds();
+
+  /** Returns the number of seeds that each column consumes per line item.
+   * Zero for columns that are generated per ticket. */
+  protected abstract int[] lineSeeds();
+
+  /** Returns the number of seeds that each column of the returns table
+   * consumes per row. Column 0 must reserve one seed more than it uses,
+   * to choose which line item of a block is returned. */
+  protected abstract int[] returnSeeds();
+
+  /** Generates the columns that describe a ticket. */
+  protected abstract void generateTicket(long ticket, RandomStreams streams,
+      RowBuffer buffer);
+
+  /** Generates the columns that describe a line item, except the pricing
+   * columns, which this class generates. On entry, the buffer contains the
+   * columns of the line item's ticket. */
+  protected abstract void generateLine(long row, int line,
+      RandomStreams streams, RowBuffer buffer);
+
+  /** Generates a row of the returns table from the line item that is
+   * returned. */
+  protected abstract void generateReturn(RowBuffer sale,
+      RandomStreams streams, RowBuffer buffer);
+
+  protected RandomStreams createStreams() {
+    return new SalesStreams(salesTable.nFirstColumn, ticketSeeds(),
+        lineSeeds(), columnCount,
+        (itemCount + itemCache.pageSize - 1) / itemCache.pageSize);
+  }
+
+  /** Creates the streams of the returns table, positioned at row 0. */
+  RandomStreams createReturnStreams() {
+    return new RandomStreams(returnsFirstColumn(), returnSeeds());
+  }
+
+  /** Returns the global number of the first column of the returns
+   * table. */
+  int returnsFirstColumn() {
+    return returnsTable.nFirstColumn;
+  }
+
+  /** Returns the number of rows in the returns table. */
+  public long getReturnCount() {
+    return returnCount;
+  }
+
+  /** Returns the number of columns in the returns table. */
+  int getReturnColumnCount() {
+    return returnsTable.columns.size();
+  }
+
+  /** Returns a bit mask of the columns that {@link #generateLine} sets.
+   * The other columns are set by {@link #generateTicket}, and have the same
+   * value in every line item of a ticket. */
+  protected abstract long lineColumnMask();
+
+  /** Returns a bit mask of the given columns. */
+  protected static long mask(int... columns) {
+    long mask = 0;
+    for (int column : columns) {
+      mask |= 1L << column;
+    }
+    return mask;
+  }
+
+  /** Returns a bit mask of the columns from {@code column} to the last. */
+  protected long maskFrom(int column) {
+    return (-1L << column) & ((1L << columnCount) - 1);
+  }
+
+  protected void generateRow(long row, RandomStreams streams,
+      RowBuffer buffer) {
+    final SalesStreams salesStreams = (SalesStreams) streams;
+    startTicket(salesStreams, row);
+    buffer.copyFrom(salesStreams.ticketBuffer);
+    generateLine(row, (int) (row - salesStreams.ticketFirstRow), streams,
+        buffer);
+    final int itemSk = buffer.getInt(itemColumn);
+    final ColumnBatch items = itemPage(salesStreams, itemSk);
+    final int item = (int) (itemSk - 1 - items.getFirstRow());
+    generatePricing(streams.get(pricingColumn), buffer, pricingColumn,
+        shipping, itemDecimal(items, Item.Generator.WHOLESALE_COST, item),
+        itemDecimal(items, Item.Generator.CURRENT_PRICE, item));
+  }
+
+  /** Returns the page of the {@code item} table that contains an item.
+   * The streams hold on to each page that they have used, so the cache is
+   * consulted only the first time. */
+  private ColumnBatch itemPage(SalesStreams streams, int itemSk) {
+    final int page = (itemSk - 1) / itemCache.pageSize;
+    ColumnBatch items = streams.itemPages[page];
+    if (items == null) {
+      items = itemCache.getPage(TpcdsTable.ITEM, scaleFactor, itemSk);
+      streams.itemPages[page] = items;
+    }
+    return items;
+  }
+
+  /** Returns the value, in cents, of a decimal column of row {@code i} of
+   * a page of the {@code item} table, or -1 if it is null. */
+  private static long itemDecimal(ColumnBatch items, int column, int i) {
+    return items.isNull(column, i) ? -1 : items.getDecimals(column)[i];
+  }
+
+  /** Makes sure that the streams hold the ticket that contains a row,
+   * generating the ticket's columns if it is not the current ticket. */
+  private void startTicket(SalesStreams salesStreams, long row) {
+    if (row >= salesStreams.ticketFirstRow
+        && row < salesStreams.ticketEndRow) {
+      return;
+    }
+    final long ticket;
+    if (row == salesStreams.ticketEndRow) {
+      // The next ticket; no need to search for it.
+      ticket = salesStreams.ticket + 1;
+      salesStreams.ticketFirstRow = row;
+    } else {
+      ticket = tickets.ticketOf(row);
+      salesStreams.ticketFirstRow = tickets.firstRowOf(ticket);
+    }
+    salesStreams.ticketEndRow =
+        salesStreams.ticketFirstRow + tickets.lineCount(ticket);
+    if (ticket != salesStreams.ticket + 1) {
+      salesStreams.ticketStreams.skipRows(ticket - 1);
+    }
+    salesStreams.ticketBuffer.clear();
+    generateTicket(ticket, salesStreams.ticketStreams,
+        salesStreams.ticketBuffer);
+    salesStreams.ticketStreams.rowStop();
+    salesStreams.ticket = ticket;
+  }
+
+  /** {@inheritDoc}
+   *
+   * <p>Generates a ticket at a time. The ticket's columns are generated
+   * once and filled into the vectors for all of its line items; then only
+   * the columns in {@link #lineColumnMask()} are generated for each line
+   * item.
+   *
+   * <p>Pricing is generated in two passes. For each line item,
+   * {@link #drawPricing} draws the random inputs into the batch; then
+   * {@link #computePricing} derives the amounts in element-wise loops over
+   * the whole batch. */
+  @Override protected void generateBatch(long row, int count,
+      RandomStreams streams, ColumnBatch batch) {
+    final SalesStreams salesStreams = (SalesStreams) streams;
+    final RowBuffer buffer = salesStreams.lineBuffer;
+    final long lineMask = lineColumnMask();
+    int i = 0;
+    while (i < count) {
+      startTicket(salesStreams, row + i);
+      final int end =
+          (int) Math.min(count, salesStreams.ticketEndRow - row);
+      fill(batch, salesStreams.ticketBuffer, ~lineMask, i, end);
+      for (; i < end; i++) {
+        buffer.copyFrom(salesStreams.ticketBuffer);
+        generateLine(row + i, (int) (row + i - salesStreams.ticketFirstRow),
+            streams, buffer);
+        drawPricing(salesStreams, buffer.getInt(itemColumn), batch, i);
+        streams.rowStop();
+        set(batch, i, buffer, lineMask & ~pricingMask);
+      }
+    }
+    computePricing(batch, count);
+  }
+
+  /** Draws the random inputs of the pricing of line item {@code i} of a
+   * batch, consuming the same seeds as {@link #generatePricing}. Quantity,
+   * wholesale cost, list price and sales price go into their own vectors;
+   * the tax, coupon and ship cost percentages go into the vectors of the
+   * amounts they determine, for {@link #computePricing} to replace. */
+  private void drawPricing(SalesStreams streams, int itemSk,
+      ColumnBatch batch, int i) {
+    final RandomNumberStream stream = streams.get(pricingColumn);
+    final ColumnBatch items = itemPage(streams, itemSk);
+    final int item = (int) (itemSk - 1 - items.getFirstRow());
+    final long itemCost =
+        itemDecimal(items, Item.Generator.WHOLESALE_COST, item);
+    final long itemPrice =
+        itemDecimal(items, Item.Generator.CURRENT_PRICE, item);
+    final int c = pricingColumn;
+    final int[] quantity = batch.getInts(c);
+    final long[] wholesaleCost = batch.getDecimals(c + 1);
+    final long[] listPrice = batch.getDecimals(c + 2);
+    final long[] salesPrice = batch.getDecimals(c + 3);
+    final long[] taxPercent = batch.getDecimals(c + 8);
+    final long[] couponPercent = batch.getDecimals(c + 9);
+    quantity[i] = stream.nextInt(1, 100);
+    final int drawnCost = stream.nextInt(100, 10000);
+    final int markup = stream.nextInt(0, 200);
+    wholesaleCost[i] = itemCost >= 0 ? itemCost : drawnCost;
+    listPrice[i] = itemPrice >= 0
+        ? itemPrice
+        : Decimals.percent(wholesaleCost[i], 100 + markup);
+    salesPrice[i] =
+        Decimals.percent(listPrice[i], 100 - stream.nextInt(0, 100));
+    taxPercent[i] = stream.nextInt(0, 9);
+    couponPercent[i] =
+        stream.nextInt(0, 99) < 20 ? stream.nextInt(0, 100) : 0;
+    if (shipping) {
+      final long[] shipPercent = batch.getDecimals(c + 10);
+      shipPercent[i] = stream.nextInt(0, 50);
+    }
+  }
+
+  /** Derives the pricing amounts of the first {@code count} line items of
+   * a batch from the inputs that {@link #drawPricing} drew. Gives the same
+   * values as {@link #generatePricing}.
+   *
+   * <p>Each loop is a pass over primitive vectors with no dependency
+   * between elements, so the JIT can unroll it and, for the additions,
+   * subtractions and multiplications, use SIMD instructions. */
+  private void computePricing(ColumnBatch batch, int count) {
+    final int c = pricingColumn;
+    final int[] quantity = batch.getInts(c);
+    final long[] wholesaleCost = batch.getDecimals(c + 1);
+    final long[] listPrice = batch.getDecimals(c + 2);
+    final long[] salesPrice = batch.getDecimals(c + 3);
+    final long[] extDiscountAmt = batch.getDecimals(c + 4);
+    final long[] extSalesPrice = batch.getDecimals(c + 5);
+    final long[] extWholesaleCost = batch.getDecimals(c + 6);
+    final long[] extListPrice = batch.getDecimals(c + 7);
+    final long[] extTax = batch.getDecimals(c + 8);
+    final long[] couponAmt = batch.getDecimals(c + 9);
+    final int n = shipping ? c + 11 : c + 10;
+    final long[] netPaid = batch.getDecimals(n);
+    final long[] netPaidIncTax = batch.getDecimals(n + 1);
+    final long[] netProfit = batch.getDecimals(shipping ? n + 4 : n + 2);
+    for (int i = 0; i < count; i++) {
+      extSalesPrice[i] = salesPrice[i] * quantity[i];
+      extWholesaleCost[i] = wholesaleCost[i] * quantity[i];
+      extListPrice[i] = listPrice[i] * quantity[i];
+    }
+    for (int i = 0; i < count; i++) {
+      extDiscountAmt[i] = extListPrice[i] - extSalesPrice[i];
+      extTax[i] = Decimals.percent(extSalesPrice[i], (int) extTax[i]);
+      couponAmt[i] = Decimals.percent(extSalesPrice[i], (int) couponAmt[i]);
+    }
+    for (int i = 0; i < count; i++) {
+      netPaid[i] = extSalesPrice[i] - couponAmt[i];
+      netPaidIncTax[i] = netPaid[i] + extTax[i];
+      netProfit[i] = netPaid[i] - extWholesaleCost[i];
+    }
+    if (shipping) {
+      final long[] extShipCost = batch.getDecimals(c + 10);
+      final long[] netPaidIncShip = batch.getDecimals(n + 2);
+      final long[] netPaidIncShipTax = batch.getDecimals(n + 3);
+      for (int i = 0; i < count; i++) {
+        extShipCost[i] =
+            Decimals.percent(extListPrice[i], (int) extShipCost[i]);
+      }
+      for (int i = 0; i < count; i++) {
+        netPaidIncShip[i] = netPaid[i] + extShipCost[i];
+        netPaidIncShipTax[i] = netPaidIncShip[i] + extTax[i];
+      }
+    }
+  }
+
+  /** Sets positions {@code start} to {@code end - 1} of the vectors of the
+   * columns in {@code mask} to the values in a buffer. */
+  private void fill(ColumnBatch batch, RowBuffer buffer, long mask,
+      int start, int end) {
+    for (int c = 0; c < columnCount; c++) {
+      if ((mask & (1L << c)) == 0) {
+        continue;
+      }
+      if (buffer.isNull(c)) {
+        for (int i = start; i < end; i++) {
+          batch.setNull(c, i);
+        }
+        continue;
+      }
+      switch (batch.kinds.get(c)) {
+      case INT:
+        Arrays.fill(batch.getInts(c), start, end, buffer.getInt(c));
+        break;
+      case LONG:
+      case DECIMAL:
+        Arrays.fill(batch.getLongs(c), start, end, buffer.getLong(c));
+        break;
+      default:
+        Arrays.fill(batch.getStrings(c), start, end,
+            buffer.getString(c).toString());
+      }
+    }
+  }
+
+  /** Copies the columns in {@code mask} from a buffer into position
+   * {@code i} of a batch. */
+  private static void set(ColumnBatch batch, int i, RowBuffer buffer,
+      long mask) {
+    for (long m = mask; m != 0; m &= m - 1) {
+      final int c = Long.numberOfTrailingZeros(m);
+      if (buffer.isNull(c)) {
+        batch.setNull(c, i);
+        continue;
+      }
+      switch (batch.kinds.get(c)) {
+      case INT:
+        final int[] ints = batch.getInts(c);
+        ints[i] = buffer.getInt(c);
+        break;
+      case LONG:
+      case DECIMAL:
+        final long[] longs = batch.getLongs(c);
+        longs[i] = buffer.getLong(c);
+        break;
+      default:
+        final String[] strings = batch.getStrings(c);
+        strings[i] = buffer.getString(c).toString();
+      }
+    }
+  }
+
+  /** Chooses which line item of a block is returned. Consumes the first
+   * seed of the first returns stream. */
+  static int returnedLine(RandomStreams returnStreams) {
+    return returnStreams.get(0).nextInt(0, RETURN_INTERVAL - 1);
+  }
+
+  /** Generates this generator's range of sales rows, sending them to
+   * {@code salesSink}, and the returns derived from them, sending them to
+   * {@code returnsSink}.
+   *
+   * <p>Each returns row is generated by the range that contains the line
+   * item it returns. So if a sales table is generated in several parts,
+   * each returns row is generated exactly once, by one of the parts. */
+  public void generate(RowSink salesSink, RowSink returnsSink) {
+    generate(salesSink, returnsSink, returnCount);
+  }
+
+  /** Generates sales and returns, generating returns only for blocks
+   * before {@code returnLimit}. Rows beyond the end of the table continue
+   * it, and are used as refresh data; see {@link RefreshSet}. */
+  void generate(RowSink salesSink, RowSink returnsSink, long returnLimit) {
+    final RandomStreams streams = createStreams();
+    streams.skipRows(firstRow);
+    final RandomStreams returnStreams = createReturnStreams();
+    final RowBuffer buffer = new RowBuffer(columnCount);
+    final RowBuffer returnBuffer = new RowBuffer(getReturnColumnCount());
+    final Nulls nulls = getNulls();
+    final RandomNumberStream nullStream = nulls.createStream(firstRow);
+    final RandomNumberStream returnNullStream = returnNulls.createStream(0);
+    long block = -1;
+    int returnedLine = -1;
+    for (long row = firstRow; row < firstRow + rowCount; row++) {
+      buffer.clear();
+      generateRow(row, streams, buffer);
+      streams.rowStop();
+      final long b = row / RETURN_INTERVAL;
+      if (b >= returnLimit) {
+        nulls.apply(nullStream, buffer);
+        salesSink.row(row, buffer);
+        continue;
+      }
+      if (b != block) {
+        if (block < 0) {
+          returnStreams.skipRows(b);
+        } else {
+          returnStreams.rowStop();
+        }
+        block = b;
+        returnedLine = returnedLine(returnStreams);
+      }
+      // Derive the return before injecting nulls into the line item.
+      final boolean returned = row % RETURN_INTERVAL == returnedLine;
+      if (returned) {
+        returnBuffer.clear();
+        generateReturn(buffer, returnStreams, returnBuffer);
+      }
+      nulls.apply(nullStream, buffer);
+      salesSink.row(row, buffer);
+      if (returned) {
+        if (returnNullStream != null) {
+          returnNullStream.skipRows(b);
+          returnNulls.apply(returnNullStream, returnBuffer);
+        }
+        returnsSink.row(b, returnBuffer);
+      }
+    }
+  }
+
+  /** Returns the surrogate key of the item of a line item. As in dsdgen,
+   * the ticket holds a random base, and its line items are consecutive
+   * entries, starting from the base, of a permutation of the items; so no
+   * item occurs twice in a ticket, and a ticket's items are scattered. */
+  protected int itemSk(int base, int line) {
+    return (int) itemPermutation.get((base + (long) line) % itemCount) + 1;
+  }
+
+  /** Generates a customer and their demographics and address into four
+   * consecutive columns, starting at {@code column}. */
+  protected void generateCustomer(RandomStreams streams, RowBuffer buffer,
+      int column) {
+    buffer.setInt(column, streams.get(column).nextInt(1, customerCount));
+    buffer.setInt(column + 1,
+        streams.get(column + 1).nextInt(1, customerDemographicsCount));
+    buffer.setInt(column + 2,
+        streams.get(column + 2).nextInt(1, householdDemographicsCount));
+    buffer.setInt(column + 3,
+        streams.get(column + 3).nextInt(1, addressCount));
+  }
+
+  /** Generates the customer to whom an order is shipped: usually the
+   * customer who paid for it (whose columns start at {@code billColumn}),
+   * but sometimes, if the order is a gift, another customer. The stream of
+   * {@code shipColumn} consumes two seeds. */
+  protected void generateShipCustomer(RandomStreams streams,
+      RowBuffer buffer, int billColumn, int shipColumn) {
+    if (streams.get(shipColumn).nextInt(0, 99) < GIFT_PERCENT) {
+      generateCustomer(streams, buffer, shipColumn);
+    } else {
+      for (int i = 0; i < 4; i++) {
+        buffer.setInt(shipColumn + i, buffer.getInt(billColumn + i));
+      }
+    }
+  }
+
+  /** Generates the quantity and prices of a line item into consecutive
+   * columns, starting at {@code column}: quantity, wholesale cost, list
+   * price, sales price, ext discount amt, ext sales price, ext wholesale
+   * cost, ext list price, ext tax, coupon amt, ext ship cost (only if
+   * {@code shipping}), net paid, net paid inc tax, net paid inc ship and
+   * net paid inc ship tax (only if {@code shipping}), net profit.
+   *
+   * <p>The wholesale cost and list price are the item's wholesale cost and
+   * current price; if either is null (-1), it is drawn at random, as is the
+   * discount from the list price to the sales price.
+   *
+   * <p>Amounts are in cents, and the arithmetic is exact; see
+   * {@link Decimals}. Consumes up to {@link #PRICING_SEEDS}
+   * seeds, whether or not the item's prices are known. */
+  static void generatePricing(RandomNumberStream stream, RowBuffer buffer,
+      int column, boolean shipping, long itemCost, long itemPrice) {
+    final int quantity = stream.nextInt(1, 100);
+    final int drawnCost = stream.nextInt(100, 10000);
+    final int markup = stream.nextInt(0, 200);
+    final long wholesaleCost = itemCost >= 0 ? itemCost : drawnCost;
+    final long listPrice = itemPrice >= 0
+        ? itemPrice
+        : Decimals.percent(wholesaleCost, 100 + markup);
+    final long salesPrice =
+        Decimals.percent(listPrice, 100 - stream.nextInt(0, 100));
+    final long extSalesPrice = salesPrice * quantity;
+    final long extWholesaleCost = wholesaleCost * quantity;
+    final long extListPrice = listPrice * quantity;
+    final long extTax =
+        Decimals.percent(extSalesPrice, stream.nextInt(0, 9));
+    final long couponAmt = stream.nextInt(0, 99) < 20
+        ? Decimals.percent(extSalesPrice, stream.nextInt(0, 100))
+        : 0;
+    final long netPaid = extSalesPrice - couponAmt;
+    int c = column;
+    buffer.setInt(c++, quantity);
+    buffer.setDecimal(c++, wholesaleCost);
+    buffer.setDecimal(c++, listPrice);
+    buffer.setDecimal(c++, salesPrice);
+    buffer.setDecimal(c++, extListPrice - extSalesPrice);
+    buffer.setDecimal(c++, extSalesPrice);
+    buffer.setDecimal(c++, extWholesaleCost);
+    buffer.setDecimal(c++, extListPrice);
+    buffer.setDecimal(c++, extTax);
+    buffer.setDecimal(c++, couponAmt);
+    if (shipping) {
+      final long extShipCost =
+          Decimals.percent(extListPrice, stream.nextInt(0, 50));
+      buffer.setDecimal(c++, extShipCost);
+      buffer.setDecimal(c++, netPaid);
+      buffer.setDecimal(c++, netPaid + extTax);
+      buffer.setDecimal(c++, netPaid + extShipCost);
+      buffer.setDecimal(c++, netPaid + extShipCost + extTax);
+    } else {
+      buffer.setDecimal(c++, netPaid);
+      buffer.setDecimal(c++, netPaid + extTax);
+    }
+    buffer.setDecimal(c, netPaid - extWholesaleCost);
+  }
+
+  /** Generates the quantity and amounts of a return into consecutive
+   * columns, starting at {@code column}: return quantity, return amount,
+   * return tax, return amount inc tax, fee, return ship cost, refunded
+   * cash, reversed charge, store (or account) credit, net loss.
+   *
+   * <p>{@code saleColumn} is the quantity column of the sale, as written by
+   * {@link #generatePricing}. Consumes {@link #RETURN_PRICING_SEEDS}
+   * seeds. */
+  static void generateReturnPricing(RandomNumberStream stream,
+      RowBuffer sale, int saleColumn, boolean shipping, RowBuffer buffer,
+      int column) {
+    final int quantity = sale.getInt(saleColumn);
+    final long listPrice = sale.getDecimal(saleColumn + 2);
+    final long extTax = sale.getDecimal(saleColumn + 8);
+    final long netPaid = sale.getDecimal(saleColumn + (shipping ? 11 : 10));
+    final int returnQuantity = stream.nextInt(1, quantity);
+    final long returnAmt =
+        Decimals.fraction(netPaid, returnQuantity, quantity);
+    final long returnTax =
+        Decimals.fraction(extTax, returnQuantity, quantity);
+    final long returnAmtIncTax = returnAmt + returnTax;
+    final long fee = stream.nextInt(50, 10000);
+    final long returnShipCost =
+        Decimals.percent(listPrice * returnQuantity,
+            stream.nextInt(0, 50));
+    final long refundedCash =
+        Decimals.percent(returnAmtIncTax, stream.nextInt(0, 100));
+    final long reversedCharge =
+        Decimals.percent(returnAmtIncTax - refundedCash,
+            stream.nextInt(0, 100));
+    int c = column;
+    buffer.setInt(c++, returnQuantity);
+    buffer.setDecimal(c++, returnAmt);
+    buffer.setDecimal(c++, returnTax);
+    buffer.setDecimal(c++, returnAmtIncTax);
+    buffer.setDecimal(c++, fee);
+    buffer.setDecimal(c++, returnShipCost);
+    buffer.setDecimal(c++, refundedCash);
+    buffer.setDecimal(c++, reversedCharge);
+    buffer.setDecimal(c++,
+        returnAmtIncTax - refundedCash - reversedCharge);
+    buffer.setDecimal(c, returnShipCost + fee + returnTax);
+  }
+
+  /** Random number streams of a sales table. Columns that are generated
+   * per line item are positioned by row, as usual; columns that are
+   * generated per ticket have streams of their own, positioned by ticket.
+   * Also holds the columns of the current ticket. */
+  private static class SalesStreams extends RandomStreams {
+    final RandomStreams ticketStreams;
+    final RowBuffer ticketBuffer;
+    /** Buffer for line items in {@link SalesGenerator#generateBatch}. */
+    final RowBuffer lineBuffer;
+    /** Ticket whose columns are in {@link #ticketBuffer}; -1 if none. */
+    long ticket = -1;
+    /** First row of {@link #ticket}. */
+    long ticketFirstRow = -1;
+    /** Row after the last row of {@link #ticket}. */
+    long ticketEndRow = -1;
+    /** Pages of the {@code item} table, by page number, that line items
+     * have used; null if not yet used. */
+    final ColumnBatch[] itemPages;
+
+    SalesStreams(int firstColumn, int[] ticketSeeds, int[] lineSeeds,
+        int columnCount, int itemPageCount) {
+      super(firstColumn, lineSeeds);
+      this.itemPages = new ColumnBatch[itemPageCount];
+      this.ticketStreams = new RandomStreams(firstColumn, ticketSeeds);
+      this.ticketBuffer = new RowBuffer(columnCount);
+      this.lineBuffer = new RowBuffer(columnCount);
+    }
+
+    @Override public void skipRows(long row) {
+      super.skipRows(row);
+      ticket = -1;
+      ticketFirstRow = -1;
+      ticketEndRow = -1;
+    }
+  }
+}
+
+// End SalesGenerator.java
@@ -0,0 +1,214 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Number of rows in each TPC-DS table as a function of scale factor.
+ *
+ * <p>The counts at the official scale factors (1, 10, 100, 300, 1000, 3000,
+ * 10000, 30000, 100000) are those of dsdgen's {@code rowcounts}
+ * distribution. Between two official scale factors, counts are interpolated
+ * linearly; below scale factor 1, they are scaled down linearly, but a table
+ * that is not empty at scale factor 1 always has at least one row.
+ *
+ * <p>The counts of the {@code inventory} table and of the returns tables
+ * are derived from the counts of other tables.
+ */
+public final class Scaling {
+  private static final double[] SCALE_FACTORS = {
+    1, 10, 100, 300, 1000, 3000, 10000, 30000, 100000
+  };
+
+  private static final ImmutableMap<String, long[]> ROW_COUNTS =
+      ImmutableMap.<String, long[]>builder()
+          .put("call_center",
+              counts(6, 24, 30, 36, 42, 48, 54, 60, 60))
+          .put("catalog_page",
+              counts(11718, 12000, 20400, 26000, 30000, 36000, 40000, 46000,
+                  50000))
+          .put("catalog_sales",
+              counts(1441548L, 14401261L, 143997065L, 260014080L,
+                  1439980416L, 4320078880L, 14399964710L, 43200404822L,
+                  143999334399L))
+          .put("customer",
+              counts(100000, 500000, 2000000, 5000000, 12000000, 30000000,
+                  65000000, 80000000, 100000000))
+          .put("customer_address",
+              counts(50000, 250000, 1000000, 2500000, 6000000, 15000000,
+                  32500000, 40000000, 50000000))
+          .put("customer_demographics", fixed(1920800))
+          .put("date_dim", fixed(73049))
+          .put("dbgen_version", fixed(1))
+          .put("household_demographics", fixed(7200))
+          .put("income_band", fixed(20))
+          .put("item",
+              counts(18000, 102000, 204000, 264000, 300000, 360000, 402000,
+                  462000, 502000))
+          .put("promotion",
+              counts(300, 500, 1000, 1300, 1500, 1800, 2000, 2300, 2500))
+          .put("reason",
+              counts(35, 45, 55, 60, 65, 67, 70, 72, 75))
+          .put("ship_mode", fixed(20))
+          .put("store",
+              counts(12, 102, 402, 804, 1002, 1350, 1500, 1704, 1902))
+          .put("store_sales",
+              counts(2880404L, 28800991L, 287997024L, 864001869L,
+                  2879987999L, 8639936081L, 28799983563L, 86399341874L,
+                  287997818084L))
+          .put("time_dim", fixed(86400))
+          .put("warehouse",
+              counts(5, 10, 15, 17, 20, 22, 25, 27, 30))
+          .put("web_page",
+              counts(60, 200, 2040, 2460, 3000, 3600, 4002, 4602, 5004))
+          .put("web_sales",
+              counts(719384L, 7197566L, 72001237L, 216009853L, 720000376L,
+                  2159968881L, 7199963324L, 21600036511L, 71999670164L))
+          .put("web_site",
+              counts(30, 42, 24, 36, 54, 66, 78, 84, 96))
+          .build();
+
+  /** Average width, in bytes, of a row of each table in a {@code .dat}
+   * file, including separators and line terminator, as measured in dsdgen's
+   * output at scale factor 1. */
+  private static final ImmutableMap<String, Integer> ROW_WIDTHS =
+      ImmutableMap.<String, Integer>builder()
+          .put("call_center", 317)
+          .put("catalog_page", 139)
+          .put("catalog_returns", 146)
+          .put("catalog_sales", 204)
+          .put("customer", 131)
+          .put("customer_address", 109)
+          .put("customer_demographics", 42)
+          .put("date_dim", 141)
+          .put("dbgen_version", 57)
+          .put("household_demographics", 21)
+          .put("income_band", 16)
+          .put("inventory", 20)
+          .put("item", 281)
+          .put("promotion", 121)
+          .put("reason", 38)
+          .put("ship_mode", 56)
+          .put("store", 263)
+          .put("store_returns", 112)
+          .put("store_sales", 135)
+          .put("time_dim", 59)
+          .put("warehouse", 117)
+          .put("web_page", 94)
+          .put("web_returns", 133)
+          .put("web_sales", 204)
+          .put("web_site", 292)
+          .build();
+
+  /** Number of weeks covered by the {@code inventory} table. */
+  static final int INVENTORY_WEEKS = 261;
+
+  private Scaling() {}
+
+  private static long[] counts(long... counts) {
+    assert counts.length == SCALE_FACTORS.length;
+    return counts;
+  }
+
+  private static long[] fixed(long count) {
+    final long[] counts = new long[SCALE_FACTORS.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = count;
+    }
+    return counts;
+  }
+
+  /** Returns the number of rows in a table at a given scale factor. */
+  public static long rowCount(String tableName, double scaleFactor) {
+    if (tableName.equals("inventory")) {
+      // One row per week, per item id, per warehouse. Each item id has on
+      // average two revisions in the item table.
+      return INVENTORY_WEEKS
+          * (rowCount("item", scaleFactor) / 2)
+          * rowCount("warehouse", scaleFactor);
+    }
+    if (tableName.endsWith("_returns")) {
+      // One line item in RETURN_INTERVAL is returned. (dsdgen's published
+      // counts are within 0.2% of this.)
+      final String salesTableName =
+          tableName.substring(0, tableName.length() - "_returns".length())
+          + "_sales";
+      return rowCount(salesTableName, scaleFactor)
+          / SalesGenerator.RETURN_INTERVAL;
+    }
+    final long[] counts = ROW_COUNTS.get(tableName);
+    checkArgument(counts != null, "unknown table %s", tableName);
+    checkArgument(scaleFactor >= 0, "negative scale factor %s", scaleFactor);
+    if (scaleFactor < SCALE_FACTORS[0]) {
+      if (counts[0] == counts[counts.length - 1]) {
+        return counts[0];
+      }
+      return Math.max(1L, (long) (counts[0] * scaleFactor));
+    }
+    for (int i = 0; i < SCALE_FACTORS.length - 1; i++) {
+      if (scaleFactor < SCALE_FACTORS[i + 1]) {
+        final double fraction = (scaleFactor - SCALE_FACTORS[i])
+            / (SCALE_FACTORS[i + 1] - SCALE_FACTORS[i]);
+        return counts[i] + (long) ((counts[i + 1] - counts[i]) * fraction);
+      }
+    }
+    final int last = SCALE_FACTORS.length - 1;
+    return (long) (counts[last] * (scaleFactor / SCALE_FACTORS[last]));
+  }
+
+  /** Returns the average width, in bytes, of a line of a table's
+   * {@code .dat} file, including its terminator.
+   *
+   * <p>It does not allow for keys that grow wider at large scale
+   * factors. */
+  public static int rowWidth(String tableName) {
+    final Integer width = ROW_WIDTHS.get(tableName);
+    checkArgument(width != null, "unknown table %s", tableName);
+    return width;
+  }
+
+  /** Returns the first row (numbered from 0) of a part of a table.
+   *
+   * <p>Parts are numbered from 1 to {@code partCount}. If {@code partCount}
+   * is 1 or less, there is one part, containing the whole table. */
+  static long partFirstRow(long rowCount, int part, int partCount) {
+    if (partCount <= 1) {
+      return 0;
+    }
+    checkArgument(part >= 1 && part <= partCount,
+        "part %s out of range 1..%s", part, partCount);
+    return rowCount / partCount * (part - 1)
+        + Math.min(part - 1, rowCount % partCount);
+  }
+
+  /** Returns the number of rows in a part of a table. */
+  static long partRowCount(long rowCount, int part, int partCount) {
+    if (partCount <= 1) {
+      return rowCount;
+    }
+    final long end = part == partCount
+        ? rowCount
+        : partFirstRow(rowCount, part + 1, partCount);
+    return end - partFirstRow(rowCount, part, partCount);
+  }
+}
+
+// End Scaling.java
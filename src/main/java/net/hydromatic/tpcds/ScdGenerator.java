@@ -0,0 +1,287 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import java.sql.Date;
+
+/**
+ * Generator for a slowly changing dimension: a table, such as {@code item}
+ * or {@code web_page}, in which a business key has a history of revisions,
+ * each a row with its own surrogate key and the range of dates
+ * ({@code rec_start_date} and {@code rec_end_date}) in which it was
+ * current.
+ *
+ * <p>Columns 0 to 3 of such a table are always the surrogate key, the
+ * business key, the start date and the end date; this class generates
+ * them, and subclasses generate the rest.
+ *
+ * <p>As in dsdgen, rows are grouped in blocks of 6 that hold 3 business
+ * keys, with 1, 2 and 3 revisions. So the business key and revision of any
+ * row can be computed in constant time. Each revision is generated afresh,
+ * then keeps the previous revision's values, except in the groups of
+ * columns whose bit in a random change mask is set; columns in no group
+ * never change. The previous revision is the only state: the generator
+ * keeps it in its streams, and does not hold the history of any other
+ * key.
+ *
+ * <p>A generator that starts in the middle of a revision chain first
+ * regenerates the earlier revisions of the key (at most two rows). Parts of
+ * a table start at a business key boundary (see {@link #keyFirstRow} and
+ * {@link TpcdsTable#getPartFirstRow}), so that no chain spans two parts.
+ *
+ * @param <E> Element type
+ */
+public abstract class ScdGenerator<E> extends RowGenerator<E> {
+  static final int SK = 0;
+  static final int ID = 1;
+  static final int REC_START_DATE = 2;
+  static final int REC_END_DATE = 3;
+
+  /** Number of rows in a block. */
+  static final int BLOCK_ROWS = 6;
+
+  /** Number of business keys in a block. */
+  static final int BLOCK_KEYS = 3;
+
+  /** Business key within a block, from 1, of each row of the block. */
+  private static final int[] KEY_OFFSETS = {1, 2, 2, 3, 3, 3};
+
+  /** First row of the chain, within a block, of each row of the block. */
+  private static final int[] FIRST_ROWS = {0, 1, 1, 3, 3, 3};
+
+  /** Julian day number of 1998-01-01, the start of the revision dates. */
+  private static final int DATA_START_DATE = 2450815;
+
+  /** Number of days covered by revisions (1998-01-01 to 2003-12-31). */
+  private static final int DATA_DAYS = 2190;
+
+  private final int firstColumn;
+  private final int[] seedsPerRow;
+  private final long[] changeGroups;
+  /** Start date of each row of a block. */
+  private final int[] startDates;
+  /** End date of each row of a block, or 0 if it is the current
+   * revision. */
+  private final int[] endDates;
+
+  /** Creates a generator.
+   *
+   * @param firstColumn Global number of the table's first column
+   * @param tableNumber dsdgen's number for the table; as in dsdgen, each
+   *    table's revision dates are 6 days per table number earlier
+   * @param seedsPerRow Seeds per row of each column; stream
+   *    {@link #ID} is reserved for the change mask
+   * @param changeGroups Groups of columns that may change between
+   *    revisions; each is a bit mask of columns that change together (at
+   *    most 31 groups)
+   */
+  protected ScdGenerator(double scaleFactor, long firstRow, long rowCount,
+      int firstColumn, int tableNumber, int[] seedsPerRow,
+      long... changeGroups) {
+    super(scaleFactor, firstRow, rowCount, seedsPerRow.length);
+    this.firstColumn = firstColumn;
+    this.seedsPerRow = seedsPerRow.clone();
+    this.seedsPerRow[ID] = 1;
+    this.changeGroups = changeGroups;
+    this.startDates = startDates(tableNumber);
+    this.endDates = new int[BLOCK_ROWS];
+    for (int i = 0; i < BLOCK_ROWS - 1; i++) {
+      if (FIRST_ROWS[i + 1] == FIRST_ROWS[i]) {
+        endDates[i] = startDates[i + 1] - 1;
+      }
+    }
+  }
+
+  /** Returns the start date of each row of a block of a table.
+   *
+   * @param tableNumber dsdgen's number for the table
+   */
+  static int[] startDates(int tableNumber) {
+    final int d0 = DATA_START_DATE - 6 * tableNumber;
+    final int third = d0 + DATA_DAYS / 3 + 1;
+    final int half = d0 + DATA_DAYS / 2 + 1;
+    final int twoThirds = d0 + DATA_DAYS * 2 / 3 + 1;
+    return new int[] {d0, d0, half, d0, third, twoThirds};
+  }
+
+  /** Returns the first row of the revision chain that contains a row. */
+  public static long keyFirstRow(long row) {
+    return row - row % BLOCK_ROWS + FIRST_ROWS[(int) (row % BLOCK_ROWS)];
+  }
+
+  /** Returns the business key number, from 1, of a row. */
+  public static long businessKey(long row) {
+    return row / BLOCK_ROWS * BLOCK_KEYS
+        + KEY_OFFSETS[(int) (row % BLOCK_ROWS)];
+  }
+
+  /** Returns the row of the first revision of a business key. */
+  public static long firstRowOfKey(long key) {
+    final long block = (key - 1) / BLOCK_KEYS;
+    final int i = (int) ((key - 1) % BLOCK_KEYS);
+    return block * BLOCK_ROWS + (i == 2 ? 3 : i);
+  }
+
+  /** Returns the row of the revision of a business key that is current on
+   * a date; before the first revision starts, returns the first revision.
+   *
+   * @param key Business key number, from 1
+   * @param date Julian day number
+   * @param startDates Start date of each row of a block; see
+   *    {@link #startDates(int)}
+   */
+  static long currentRowOfKey(long key, int date, int[] startDates) {
+    long row = firstRowOfKey(key);
+    for (int n = revisionCount(key); n > 1; n--) {
+      if (startDates[(int) ((row + 1) % BLOCK_ROWS)] > date) {
+        break;
+      }
+      ++row;
+    }
+    return row;
+  }
+
+  /** Returns the number of revisions of a business key. */
+  public static int revisionCount(long key) {
+    return (int) ((key - 1) % BLOCK_KEYS) + 1;
+  }
+
+  /** Returns the start date of the first revision of every key. */
+  protected int getFirstStartDate() {
+    return startDates[0];
+  }
+
+  /** Returns a reusable buffer for the text of a column of a row.
+   *
+   * <p>Each column has three buffers, one for each revision of a chain, so
+   * that a revision can keep text that an earlier revision generated. */
+  Text.Buffer textBuffer(RandomStreams streams, int column, long row,
+      int capacity) {
+    final Text.Buffer[] texts = ((ScdStreams) streams).texts;
+    final int i = column * BLOCK_KEYS + (int) (row % BLOCK_KEYS);
+    if (texts[i] == null) {
+      texts[i] = new Text.Buffer(capacity);
+    }
+    return texts[i];
+  }
+
+  /** Returns a bit mask of columns. */
+  protected static long mask(int... columns) {
+    long mask = 0;
+    for (int column : columns) {
+      mask |= 1L << column;
+    }
+    return mask;
+  }
+
+  /** Returns the value of a date column as a {@link Date}, or null. For
+   * building entities. */
+  protected static Date date(RowBuffer buffer, int column) {
+    return buffer.isNull(column)
+        ? null
+        : DateDim.Generator.toDate(buffer.getInt(column));
+  }
+
+  protected final RandomStreams createStreams() {
+    return new ScdStreams(firstColumn, seedsPerRow, columnCount,
+        new Text.Buffer[columnCount * BLOCK_KEYS]);
+  }
+
+  protected final void generateRow(long row, RandomStreams streams,
+      RowBuffer buffer) {
+    final ScdStreams scdStreams = (ScdStreams) streams;
+    final long first = keyFirstRow(row);
+    if (row > first && scdStreams.previousRow != row - 1) {
+      // We are starting in the middle of a chain. Regenerate the earlier
+      // revisions of this key, using a second set of streams that shares
+      // the text buffers.
+      final RandomStreams history = new ScdStreams(firstColumn, seedsPerRow,
+          columnCount, scdStreams.texts);
+      history.skipRows(first);
+      final RowBuffer scratch = new RowBuffer(columnCount);
+      for (long r = first; r < row; r++) {
+        scratch.clear();
+        generateRevision(r, first, history, scratch, scdStreams);
+        history.rowStop();
+      }
+    }
+    generateRevision(row, first, streams, buffer, scdStreams);
+  }
+
+  private void generateRevision(long row, long first, RandomStreams streams,
+      RowBuffer buffer, ScdStreams scdStreams) {
+    final int i = (int) (row % BLOCK_ROWS);
+    final long key = businessKey(row);
+    buffer.setInt(SK, (int) (row + 1));
+    buffer.setString(ID, scdStreams.id.set(key));
+    buffer.setInt(REC_START_DATE, startDates[i]);
+    if (endDates[i] != 0) {
+      buffer.setInt(REC_END_DATE, endDates[i]);
+    }
+    final int changes = streams.get(ID).next();
+    generateColumns(row, key, streams, buffer);
+    if (row > first) {
+      long keep = (-1L << (REC_END_DATE + 1)) & ((1L << columnCount) - 1);
+      for (int g = 0; g < changeGroups.length; g++) {
+        if ((changes & (1 << g)) != 0) {
+          keep &= ~changeGroups[g];
+        }
+      }
+      buffer.copyFrom(scdStreams.previous, keep);
+    }
+    scdStreams.previous.copyFrom(buffer);
+    scdStreams.previousRow = row;
+  }
+
+  /** Generates the columns after {@link #REC_END_DATE} of a revision. Every
+   * revision must consume the same seeds, whether or not its values are
+   * kept, and character values must not be modified after they are
+   * generated, because a later revision may keep them.
+   *
+   * @param row Row number
+   * @param key Business key number, from 1
+   * @param streams Random number streams
+   * @param buffer Buffer
+   */
+  protected abstract void generateColumns(long row, long key,
+      RandomStreams streams, RowBuffer buffer);
+
+  /** Streams of a revision generator; they also hold the previous
+   * revision, and a business key and text buffers that are reused for
+   * every row. */
+  private static class ScdStreams extends RandomStreams {
+    final RowBuffer previous;
+    final BusinessKey.Buffer id = new BusinessKey.Buffer();
+    final Text.Buffer[] texts;
+    long previousRow = -1;
+
+    ScdStreams(int firstColumn, int[] seedsPerRow, int columnCount,
+        Text.Buffer[] texts) {
+      super(firstColumn, seedsPerRow);
+      this.previous = new RowBuffer(columnCount);
+      this.texts = texts;
+    }
+
+    @Override public void skipRows(long row) {
+      super.skipRows(row);
+      previousRow = -1;
+    }
+  }
+}
+
+// End ScdGenerator.java
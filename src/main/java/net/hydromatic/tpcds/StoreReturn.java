@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code store_returns} TPC-DS table. */
 public class StoreReturn implements TpcdsEntity {
@@ -40,8 +38,8 @@ public class StoreReturn implements TpcdsEntity {
   public final Integer storeSk;
   // sr_reason_sk              integer
   public final Integer reasonSk;
-  // sr_ticket_number          integer               not null
-  public final int ticketNumber;
+  // sr_ticket_number          bigint                not null
+  public final long ticketNumber;
   // sr_return_quantity        integer
   public final Integer returnQuantity;
   // sr_return_amt             decimal(7,2)
@@ -67,7 +65,7 @@ public class StoreReturn implements TpcdsEntity {
 
   public StoreReturn(Integer returnedDateSk, Integer returnTimeSk, int itemSk,
       Integer customerSk, Integer cdemoSk, Integer hdemoSk, Integer addrSk,
-      Integer storeSk, Integer reasonSk, int ticketNumber,
+      Integer storeSk, Integer reasonSk, long ticketNumber,
       Integer returnQuantity, Float returnAmt, Float returnTax,
       Float returnAmtIncTax, Float fee, Float returnShipCost,
       Float refundedCash, Float reversedCharge, Float storeCredit,
@@ -96,8 +94,31 @@ public class StoreReturn implements TpcdsEntity {
 
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(returnedDateSk, returnTimeSk, itemSk, customerSk, cdemoSk,
+        hdemoSk, addrSk, storeSk, reasonSk, ticketNumber, returnQuantity,
+        returnAmt, returnTax, returnAmtIncTax, fee, returnShipCost,
+        refundedCash, reversedCharge, storeCredit, netLoss);
+  }
+
+  /** Value generator. Each row is derived from a row of
+   * {@code store_sales}. */
+  public static class Generator extends ReturnsGenerator<StoreReturn> {
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(
+          new StoreSale.Generator(scaleFactor, 0,
+              TpcdsTable.STORE_SALES.getRowCount(scaleFactor)),
+          firstRow, rowCount);
+    }
+
+    protected StoreReturn toEntity(RowBuffer buffer) {
+      return new StoreReturn(buffer.getInteger(0), buffer.getInteger(1),
+          buffer.getInt(2), buffer.getInteger(3), buffer.getInteger(4),
+          buffer.getInteger(5), buffer.getInteger(6), buffer.getInteger(7),
+          buffer.getInteger(8), buffer.getLong(9), buffer.getInteger(10),
+          buffer.getFloat(11), buffer.getFloat(12), buffer.getFloat(13),
+          buffer.getFloat(14), buffer.getFloat(15), buffer.getFloat(16),
+          buffer.getFloat(17), buffer.getFloat(18), buffer.getFloat(19));
+    }
   }
 }
 
@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code store_sales} TPC-DS table. */
 public class StoreSale implements TpcdsEntity {
@@ -40,8 +38,8 @@ public class StoreSale implements TpcdsEntity {
   public final Integer storeSk;
   // ss_promo_sk               integer
   public final Integer promoSk;
-  // ss_ticket_number          integer               not null
-  public final int ticketNumber;
+  // ss_ticket_number          bigint                not null
+  public final long ticketNumber;
   // ss_quantity               integer
   public final Integer quantity;
   // ss_wholesale_cost         decimal(7,2)
@@ -73,7 +71,7 @@ public class StoreSale implements TpcdsEntity {
 
   public StoreSale(Integer soldDateSk, Integer soldTimeSk, int itemSk,
       Integer customerSk, Integer cdemoSk, Integer hdemoSk, Integer addrSk,
-      Integer storeSk, Integer promoSk, int ticketNumber, Integer quantity,
+      Integer storeSk, Integer promoSk, long ticketNumber, Integer quantity,
       Float wholesaleCost, Float listPrice, Float salesPrice,
       Float extDiscountAmt, Float extSalesPrice, Float extWholesaleCost,
       Float extListPrice, Float extTax, Float couponAmt, Float netPaid,
@@ -104,8 +102,113 @@ public class StoreSale implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(soldDateSk, soldTimeSk, itemSk, customerSk, cdemoSk,
+        hdemoSk, addrSk, storeSk, promoSk, ticketNumber, quantity,
+        wholesaleCost, listPrice, salesPrice, extDiscountAmt, extSalesPrice,
+        extWholesaleCost, extListPrice, extTax, couponAmt, netPaid,
+        netPaidIncTax, netProfit);
+  }
+
+  /** Value generator.
+   *
+   * <p>Each ticket has between 8 and 16 line items, all sold at the same
+   * store, at the same time, to the same customer. */
+  public static class Generator extends SalesGenerator<StoreSale> {
+    static final Tickets TICKETS = new Tickets(8, 16);
+
+    private static final int SOLD_DATE_SK = 0;
+    private static final int SOLD_TIME_SK = 1;
+    private static final int ITEM_SK = 2;
+    private static final int CUSTOMER_SK = 3;
+    private static final int STORE_SK = 7;
+    private static final int PROMO_SK = 8;
+    private static final int TICKET_NUMBER = 9;
+    private static final int QUANTITY = 10;
+
+    private static final int RETURNED_DATE_SK = 0;
+    private static final int RETURN_TIME_SK = 1;
+    private static final int REASON_SK = 8;
+    private static final int RETURN_QUANTITY = 10;
+
+    private final int storeCount;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, TpcdsTable.STORE_SALES,
+          TpcdsTable.STORE_RETURNS, TICKETS, ITEM_SK, QUANTITY, false);
+      this.storeCount = count("store");
+    }
+
+    protected int[] ticketSeeds() {
+      return new int[] {
+        1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
+      };
+    }
+
+    protected int[] lineSeeds() {
+      return new int[] {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 0, PRICING_SEEDS, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0
+      };
+    }
+
+    protected int[] returnSeeds() {
+      return new int[] {
+        2, 1, 0, 0, 0, 0, 0, 0, 1, 0, RETURN_PRICING_SEEDS, 0, 0, 0, 0, 0, 0,
+        0, 0, 0
+      };
+    }
+
+    protected long lineColumnMask() {
+      return mask(ITEM_SK, PROMO_SK) | maskFrom(QUANTITY);
+    }
+
+    protected void generateTicket(long ticket, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(SOLD_DATE_SK, soldDateSk(streams.get(SOLD_DATE_SK)));
+      buffer.setInt(SOLD_TIME_SK,
+          streams.get(SOLD_TIME_SK).nextInt(0, LAST_TIME_SK));
+      // The item column holds the ticket's base item until generateLine
+      // replaces it.
+      buffer.setInt(ITEM_SK, streams.get(ITEM_SK).nextInt(0, itemCount - 1));
+      generateCustomer(streams, buffer, CUSTOMER_SK);
+      buffer.setInt(STORE_SK, streams.get(STORE_SK).nextInt(1, storeCount));
+      buffer.setLong(TICKET_NUMBER, ticket);
+    }
+
+    protected void generateLine(long row, int line, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(ITEM_SK, itemSk(buffer.getInt(ITEM_SK), line));
+      buffer.setInt(PROMO_SK,
+          streams.get(PROMO_SK).nextInt(1, promotionCount));
+    }
+
+    protected void generateReturn(RowBuffer sale, RandomStreams streams,
+        RowBuffer buffer) {
+      buffer.setInt(RETURNED_DATE_SK, sale.getInt(SOLD_DATE_SK)
+          + streams.get(RETURNED_DATE_SK).nextInt(1, 90));
+      buffer.setInt(RETURN_TIME_SK,
+          streams.get(RETURN_TIME_SK).nextInt(0, LAST_TIME_SK));
+      // Item, customer, demographics, address and store are those of the
+      // sale.
+      for (int i = ITEM_SK; i <= STORE_SK; i++) {
+        buffer.setInt(i, sale.getInt(i));
+      }
+      buffer.setInt(REASON_SK, streams.get(REASON_SK).nextInt(1, reasonCount));
+      buffer.setLong(TICKET_NUMBER, sale.getLong(TICKET_NUMBER));
+      generateReturnPricing(streams.get(RETURN_QUANTITY), sale, QUANTITY,
+          false, buffer, RETURN_QUANTITY);
+    }
+
+    protected StoreSale toEntity(RowBuffer buffer) {
+      return new StoreSale(buffer.getInteger(0), buffer.getInteger(1),
+          buffer.getInt(2), buffer.getInteger(3), buffer.getInteger(4),
+          buffer.getInteger(5), buffer.getInteger(6), buffer.getInteger(7),
+          buffer.getInteger(8), buffer.getLong(9), buffer.getInteger(10),
+          buffer.getFloat(11), buffer.getFloat(12), buffer.getFloat(13),
+          buffer.getFloat(14), buffer.getFloat(15), buffer.getFloat(16),
+          buffer.getFloat(17), buffer.getFloat(18), buffer.getFloat(19),
+          buffer.getFloat(20), buffer.getFloat(21), buffer.getFloat(22));
+    }
   }
 }
 
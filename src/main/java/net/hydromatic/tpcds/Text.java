@@ -0,0 +1,159 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Generator of free text, such as {@code i_item_desc}, from a sentence
+ * grammar, in the manner of dsdgen's {@code gen_text}.
+ *
+ * <p>The grammar is in {@code english.dst}. When this class is initialized,
+ * it is compiled into index tables: each sentence template becomes an array
+ * of tokens (a character to copy, or a part of speech), and each word
+ * becomes a {@code char[]}. Text is assembled in a reusable {@link Buffer},
+ * by appends that stop at the text's length, so generating a value
+ * allocates nothing.
+ *
+ * <p>Like dsdgen, the generator chooses a length between the minimum and
+ * maximum, then appends sentences until the text is that long, truncating
+ * the last one.
+ */
+final class Text {
+  /** Letters that stand for parts of speech in a sentence template, in the
+   * order of {@link #PARTS}. */
+  private static final String LETTERS = "AJNDPVXT";
+
+  private static final Distribution[] PARTS = {
+    Distribution.get("adverbs"), Distribution.get("adjectives"),
+    Distribution.get("nouns"), Distribution.get("articles"),
+    Distribution.get("prepositions"), Distribution.get("verbs"),
+    Distribution.get("auxiliaries"), Distribution.get("terminators"),
+  };
+
+  private static final Distribution SENTENCES =
+      Distribution.get("sentences");
+
+  /** Words of each part of speech, indexed by part then by row. */
+  private static final char[][][] WORDS = new char[PARTS.length][][];
+
+  /** Tokens of each sentence template. A token {@code t >= 0} is a
+   * character to copy; {@code t < 0} is part of speech {@code -t - 1}. */
+  private static final int[][] TEMPLATES = new int[SENTENCES.size()][];
+
+  static {
+    for (int p = 0; p < PARTS.length; p++) {
+      WORDS[p] = new char[PARTS[p].size()][];
+      for (int i = 0; i < WORDS[p].length; i++) {
+        WORDS[p][i] = PARTS[p].getValue(i + 1, 1).toCharArray();
+      }
+    }
+    for (int s = 0; s < TEMPLATES.length; s++) {
+      final String template = SENTENCES.getValue(s + 1, 1);
+      final int[] tokens = new int[template.length()];
+      for (int i = 0; i < tokens.length; i++) {
+        final char c = template.charAt(i);
+        final int p = LETTERS.indexOf(c);
+        tokens[i] = p >= 0 ? -p - 1 : c;
+      }
+      TEMPLATES[s] = tokens;
+    }
+  }
+
+  private Text() {}
+
+  /** Returns the number of seeds that {@link #generate} consumes, at most,
+   * for text up to {@code maxLength} characters long. Every draw except
+   * the first is followed by at least one character, and a sentence's first
+   * word follows its template. */
+  static int seeds(int maxLength) {
+    return maxLength + 2;
+  }
+
+  /** Generates text whose length is chosen uniformly between
+   * {@code minLength} and {@code maxLength} into a buffer, replacing its
+   * contents. */
+  static void generate(RandomNumberStream stream, int minLength,
+      int maxLength, Buffer buffer) {
+    buffer.length = 0;
+    final int limit = stream.nextInt(minLength, maxLength);
+    while (buffer.length < limit) {
+      if (buffer.length > 0) {
+        buffer.append(' ', limit);
+      }
+      final int[] tokens = TEMPLATES[SENTENCES.pick(1, stream) - 1];
+      for (int i = 0; i < tokens.length && buffer.length < limit; i++) {
+        final int token = tokens[i];
+        if (token >= 0) {
+          buffer.append((char) token, limit);
+        } else {
+          final int p = -token - 1;
+          buffer.append(WORDS[p][PARTS[p].pick(1, stream) - 1], i == 0,
+              limit);
+        }
+      }
+    }
+  }
+
+  /** Reusable buffer that holds generated text. */
+  static final class Buffer implements CharSequence {
+    private final char[] chars;
+    private int length;
+
+    Buffer(int capacity) {
+      this.chars = new char[capacity];
+    }
+
+    /** Appends a character, unless the text has reached {@code limit}. */
+    void append(char c, int limit) {
+      if (length < limit) {
+        chars[length++] = c;
+      }
+    }
+
+    /** Appends as much of a word as fits before {@code limit}, optionally
+     * capitalizing its first letter. */
+    void append(char[] word, boolean capitalize, int limit) {
+      final int n = Math.min(word.length, limit - length);
+      if (n <= 0) {
+        return;
+      }
+      System.arraycopy(word, 0, chars, length, n);
+      if (capitalize) {
+        chars[length] = Character.toUpperCase(chars[length]);
+      }
+      length += n;
+    }
+
+    public int length() {
+      return length;
+    }
+
+    public char charAt(int index) {
+      return chars[index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+      return new String(chars, start, end - start);
+    }
+
+    @Override public String toString() {
+      return new String(chars, 0, length);
+    }
+  }
+}
+
+// End Text.java
@@ -0,0 +1,105 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Assignment of the rows of a sales table to tickets (or orders).
+ *
+ * <p>Each ticket has between {@code minLines} and {@code maxLines} line
+ * items, and each line item is a row. Tickets are stratified into blocks of
+ * {@code n = maxLines - minLines + 1} tickets; within a block, each line
+ * count occurs exactly once, in an order that varies from block to block.
+ * So every block has the same number of rows, and the ticket that contains a
+ * given row can be computed in constant time, which allows a sales table to
+ * be generated starting at any row.
+ *
+ * <p>Tickets are numbered from 1, lines within a ticket from 0.
+ */
+final class Tickets {
+  final int minLines;
+  final int maxLines;
+  final int ticketsPerBlock;
+  final int rowsPerBlock;
+  /** Multipliers that are relatively prime to {@link #ticketsPerBlock};
+   * each defines a permutation of the line counts in a block. */
+  private final int[] multipliers;
+
+  Tickets(int minLines, int maxLines) {
+    checkArgument(minLines >= 1 && maxLines >= minLines);
+    this.minLines = minLines;
+    this.maxLines = maxLines;
+    this.ticketsPerBlock = maxLines - minLines + 1;
+    this.rowsPerBlock = (minLines + maxLines) * ticketsPerBlock / 2;
+    int count = 0;
+    final int[] multipliers = new int[ticketsPerBlock];
+    for (int a = 1; a <= ticketsPerBlock; a++) {
+      if (gcd(a, ticketsPerBlock) == 1) {
+        multipliers[count++] = a;
+      }
+    }
+    this.multipliers = new int[count];
+    System.arraycopy(multipliers, 0, this.multipliers, 0, count);
+  }
+
+  private static int gcd(int a, int b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+  /** Returns the number of lines of a ticket. */
+  int lineCount(long ticket) {
+    final long block = (ticket - 1) / ticketsPerBlock;
+    return lineCount(block, (int) ((ticket - 1) % ticketsPerBlock));
+  }
+
+  private int lineCount(long block, int i) {
+    // Scramble the block number (a 64-bit finalizer, as in SplitMix64),
+    // then use it to choose one of the permutations.
+    final long h = Permutation.mix(block * 0x9E3779B97F4A7C15L) >>> 1;
+    final int a = multipliers[(int) (h % multipliers.length)];
+    final int r = (int) (h / multipliers.length % ticketsPerBlock);
+    return minLines + (a * i + r) % ticketsPerBlock;
+  }
+
+  /** Returns the ticket that contains a row. */
+  long ticketOf(long row) {
+    final long block = row / rowsPerBlock;
+    int offset = (int) (row % rowsPerBlock);
+    for (int i = 0;; i++) {
+      final int lineCount = lineCount(block, i);
+      if (offset < lineCount) {
+        return block * ticketsPerBlock + i + 1;
+      }
+      offset -= lineCount;
+    }
+  }
+
+  /** Returns the first row of a ticket. */
+  long firstRowOf(long ticket) {
+    final long block = (ticket - 1) / ticketsPerBlock;
+    final int i = (int) ((ticket - 1) % ticketsPerBlock);
+    long row = block * rowsPerBlock;
+    for (int j = 0; j < i; j++) {
+      row += lineCount(block, j);
+    }
+    return row;
+  }
+}
+
+// End Tickets.java
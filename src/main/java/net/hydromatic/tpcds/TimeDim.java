@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code time_dim} TPC-DS table. */
 public class TimeDim implements TpcdsEntity {
@@ -60,8 +58,130 @@ public class TimeDim implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(timeSk, timeId, time, hour, minute, second, amPm,
+        shift, subShift, mealTime);
+  }
+
+  /** Value generator.
+   *
+   * <p>The table is the same at every scale factor: one row per second of
+   * the day, whose surrogate key is the number of seconds since midnight.
+   * As with {@link DateDim.Generator}, the whole table is computed once per
+   * JVM into one array per column, so generating a batch is a copy. */
+  public static class Generator extends RowGenerator<TimeDim> {
+    /** Number of rows. */
+    public static final int ROW_COUNT = 86400;
+
+    static final int COLUMN_COUNT = 10;
+    static final int TIME_SK = 0;
+    static final int TIME_ID = 1;
+    static final int TIME = 2;
+    public static final int HOUR = 3;
+    public static final int MINUTE = 4;
+    public static final int SECOND = 5;
+    static final int AM_PM = 6;
+    static final int SHIFT = 7;
+    static final int SUB_SHIFT = 8;
+    static final int MEAL_TIME = 9;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, COLUMN_COUNT);
+    }
+
+    protected RandomStreams createStreams() {
+      return new RandomStreams(TpcdsTable.TIME_DIM.nFirstColumn,
+          new int[COLUMN_COUNT]);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      final int r = (int) row;
+      for (int i = 0; i < COLUMN_COUNT; i++) {
+        final int[] ints = Data.INTS[i];
+        if (ints != null) {
+          buffer.setInt(i, ints[r]);
+        } else if (Data.STRINGS[i][r] != null) {
+          buffer.setString(i, Data.STRINGS[i][r]);
+        }
+      }
+    }
+
+    @Override protected void generateBatch(long row, int count,
+        RandomStreams streams, ColumnBatch batch) {
+      for (int i = 0; i < COLUMN_COUNT; i++) {
+        final int[] ints = Data.INTS[i];
+        if (ints != null) {
+          System.arraycopy(ints, (int) row, batch.getInts(i), 0, count);
+        } else {
+          final String[] strings = Data.STRINGS[i];
+          System.arraycopy(strings, (int) row, batch.getStrings(i), 0,
+              count);
+          if (i == MEAL_TIME) {
+            for (int j = 0; j < count; j++) {
+              if (strings[(int) row + j] == null) {
+                batch.setNull(i, j);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    protected TimeDim toEntity(RowBuffer buffer) {
+      return new TimeDim(buffer.getInt(TIME_SK),
+          buffer.getString(TIME_ID).toString(), buffer.getInteger(TIME),
+          buffer.getInteger(HOUR), buffer.getInteger(MINUTE),
+          buffer.getInteger(SECOND), buffer.getString(AM_PM).toString(),
+          buffer.getString(SHIFT).toString(),
+          buffer.getString(SUB_SHIFT).toString(),
+          buffer.isNull(MEAL_TIME)
+              ? null
+              : buffer.getString(MEAL_TIME).toString());
+    }
+
+    /** Returns the value of an integer column, such as {@link #HOUR}, for a
+     * time, in constant time. */
+    public static int getInt(int column, int timeSk) {
+      return Data.INTS[column][timeSk];
+    }
+
+    /** Holds the contents of the table; computed when first used. */
+    private static class Data {
+      static final int[][] INTS = new int[COLUMN_COUNT][];
+      static final String[][] STRINGS = new String[COLUMN_COUNT][];
+
+      static {
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+          if (c == TIME_SK || c == TIME || c == HOUR || c == MINUTE
+              || c == SECOND) {
+            INTS[c] = new int[ROW_COUNT];
+          } else {
+            STRINGS[c] = new String[ROW_COUNT];
+          }
+        }
+        for (int r = 0; r < ROW_COUNT; r++) {
+          final int hour = r / 3600;
+          INTS[TIME_SK][r] = r;
+          INTS[TIME][r] = r;
+          INTS[HOUR][r] = hour;
+          INTS[MINUTE][r] = r / 60 % 60;
+          INTS[SECOND][r] = r % 60;
+          STRINGS[TIME_ID][r] = BusinessKey.of(r);
+          STRINGS[AM_PM][r] = hour < 12 ? "AM" : "PM";
+          STRINGS[SHIFT][r] =
+              hour < 8 ? "third" : hour < 16 ? "first" : "second";
+          STRINGS[SUB_SHIFT][r] = hour < 6 ? "night"
+              : hour < 12 ? "morning"
+              : hour < 18 ? "afternoon"
+              : hour < 22 ? "evening"
+              : "night";
+          STRINGS[MEAL_TIME][r] = hour >= 6 && hour < 9 ? "breakfast"
+              : hour >= 11 && hour < 14 ? "lunch"
+              : hour >= 17 && hour < 20 ? "dinner"
+              : null;
+        }
+      }
+    }
   }
 }
 
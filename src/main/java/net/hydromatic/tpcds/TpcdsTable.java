@@ -19,10 +19,15 @@ package net.hydromatic.tpcds;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -34,12 +39,36 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @param <E> Element type
  */
 public abstract class TpcdsTable<E> {
+  /** For each table, dsdgen's {@code nNullPct} and {@code kNotNullBitMap}.
+   * Declared before the tables, because their constructors use it. */
+  private static final ImmutableMap<String, long[]> NULLS =
+      ImmutableMap.<String, long[]>builder()
+          .put("call_center", nulls(100, 0x0B))
+          .put("catalog_page", nulls(200, 0x03))
+          .put("catalog_returns", nulls(400, 0x10007))
+          .put("catalog_sales", nulls(100, 0x28000))
+          .put("customer", nulls(700, 0x13))
+          .put("customer_address", nulls(600, 0x03))
+          .put("inventory", nulls(1000, 0x07))
+          .put("item", nulls(50, 0x0B))
+          .put("promotion", nulls(200, 0x03))
+          .put("store", nulls(100, 0x0B))
+          .put("store_returns", nulls(700, 0x204))
+          .put("store_sales", nulls(900, 0x204))
+          .put("web_page", nulls(250, 0x0B))
+          .put("web_returns", nulls(900, 0x2004))
+          .put("web_sales", nulls(5, 0x20008))
+          .put("web_site", nulls(100, 0x0B))
+          .build();
+
   public static final TpcdsTable<CallCenter> CALL_CENTER =
-      new TpcdsTable<CallCenter>("call_center", "cc",
+      new TpcdsTable<CallCenter>("call_center", "cc", 1, 31,
           ImmutableList.copyOf(CallCenter.Column.values())) {
-        public Iterable<CallCenter> createGenerator(double scaleFactor,
-            int part, int partCount) {
-          return new CallCenter.Generator(scaleFactor, part, partCount);
+        // Not generated yet; like the other dummy tables, every range is
+        // empty.
+        @Override public Iterable<CallCenter> createRangeGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return ImmutableList.of();
         }
 
         public void builder(Dsgen dsgen) {
@@ -51,99 +80,353 @@ public abstract class TpcdsTable<E> {
 
         public void loader2() {
         }
-
-        public void validate(int nTable, long kRow, int[] permutation) {
-        }
       };
 
   public static final TpcdsTable<CatalogPage> CATALOG_PAGE =
-      dummy("catalog_page", "cp", CatalogPage.class);
+      dummy("catalog_page", "cp", 32, CatalogPage.class);
 
   public static final TpcdsTable<CatalogReturn> CATALOG_RETURNS =
-      dummy("catalog_returns", "cr", CatalogReturn.class);
+      new TpcdsTable<CatalogReturn>("catalog_returns", "cr", 41, 67,
+          fieldColumns("cr", CatalogReturn.class)) {
+        protected RowGenerator<CatalogReturn> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new CatalogReturn.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<CatalogSale> CATALOG_SALES =
-      dummy("catalog_sales", "cs", CatalogSale.class);
+      new TpcdsTable<CatalogSale>("catalog_sales", "cs", 68, 101,
+          fieldColumns("cs", CatalogSale.class)) {
+        protected RowGenerator<CatalogSale> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new CatalogSale.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<Customer> CUSTOMER =
-      dummy("customer", "c", Customer.class);
+      dummy("customer", "c", 102, Customer.class);
 
   public static final TpcdsTable<CustomerAddress> CUSTOMER_ADDRESS =
-      dummy("customer_address", "ca", CustomerAddress.class);
+      new TpcdsTable<CustomerAddress>("customer_address", "ca", 120, 132,
+          fieldColumns("ca", CustomerAddress.class)) {
+        protected RowGenerator<CustomerAddress> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new CustomerAddress.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<CustomerDemographic> CUSTOMER_DEMOGRAPHICS =
-      dummy("customer_demographics", "cd", CustomerDemographic.class);
+      new TpcdsTable<CustomerDemographic>("customer_demographics", "cd",
+          133, 141,
+          fieldColumns("cd", CustomerDemographic.class)) {
+        protected RowGenerator<CustomerDemographic> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new CustomerDemographic.Generator(scaleFactor, firstRow,
+              rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<DateDim> DATE_DIM =
-      dummy("date_dim", "d", DateDim.class);
+      new TpcdsTable<DateDim>("date_dim", "d", 142, 169,
+          fieldColumns("d", DateDim.class)) {
+        protected RowGenerator<DateDim> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new DateDim.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        // The surrogate key of a date is its julian day number.
+        @Override public long getKeyOffset() {
+          return DateDim.Generator.FIRST_DATE_SK;
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<DbgenVersion> DBGEN_VERSION =
-      dummy("dbgen_version", "dv", DbgenVersion.class);
+      dummy("dbgen_version", "dv", 170, DbgenVersion.class);
 
   public static final TpcdsTable<HouseholdDemographic> HOUSEHOLD_DEMOGRAPHICS =
-      dummy("household_demographics", "hd", HouseholdDemographic.class);
+      new TpcdsTable<HouseholdDemographic>("household_demographics", "hd",
+          174, 178,
+          fieldColumns("hd", HouseholdDemographic.class)) {
+        protected RowGenerator<HouseholdDemographic> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new HouseholdDemographic.Generator(scaleFactor, firstRow,
+              rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<IncomeBand> INCOME_BAND =
-      dummy("income_band", "ib", IncomeBand.class);
+      dummy("income_band", "ib", 179, IncomeBand.class);
 
   public static final TpcdsTable<Inventory> INVENTORY =
-      dummy("inventory", "inv", Inventory.class);
+      new TpcdsTable<Inventory>("inventory", "inv", 182, 185,
+          ImmutableList.copyOf(Inventory.Column.values())) {
+        protected RowGenerator<Inventory> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new Inventory.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<Item> ITEM =
-      dummy("item", "i", Item.class);
+      new TpcdsTable<Item>("item", "i", 186, 207,
+          fieldColumns("i", Item.class)) {
+        protected RowGenerator<Item> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new Item.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        @Override protected long alignPartStart(long row) {
+          return ScdGenerator.keyFirstRow(row);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<Promotion> PROMOTION =
-      dummy("promotion", "p", Promotion.class);
+      dummy("promotion", "p", 208, Promotion.class);
 
   public static final TpcdsTable<Reason> REASON =
-      dummy("reason", "r", Reason.class);
+      dummy("reason", "r", 227, Reason.class);
 
   public static final TpcdsTable<ShipMode> SHIP_MODE =
-      dummy("ship_mode", "sm", ShipMode.class);
+      dummy("ship_mode", "sm", 230, ShipMode.class);
 
   public static final TpcdsTable<Store> STORE =
-      dummy("store", "s", Store.class);
+      dummy("store", "s", 236, Store.class);
 
   public static final TpcdsTable<StoreReturn> STORE_RETURNS =
-      dummy("store_returns", "sr", StoreReturn.class);
+      new TpcdsTable<StoreReturn>("store_returns", "sr", 265, 284,
+          fieldColumns("sr", StoreReturn.class)) {
+        protected RowGenerator<StoreReturn> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new StoreReturn.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<StoreSale> STORE_SALES =
-      dummy("store_sales", "ss", StoreSale.class);
+      new TpcdsTable<StoreSale>("store_sales", "ss", 285, 307,
+          fieldColumns("ss", StoreSale.class)) {
+        protected RowGenerator<StoreSale> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new StoreSale.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<TimeDim> TIME_DIM =
-      dummy("time_dim", "t", TimeDim.class);
+      new TpcdsTable<TimeDim>("time_dim", "t", 308, 317,
+          fieldColumns("t", TimeDim.class)) {
+        protected RowGenerator<TimeDim> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new TimeDim.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        // The surrogate key of a time is its second of the day, from 0.
+        @Override public long getKeyOffset() {
+          return 0;
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<Warehouse> WAREHOUSE =
-      dummy("warehouse", "w", Warehouse.class);
+      new TpcdsTable<Warehouse>("warehouse", "w", 318, 331,
+          fieldColumns("w", Warehouse.class)) {
+        protected RowGenerator<Warehouse> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new Warehouse.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<WebPage> WEB_PAGE =
-      dummy("web_page", "wp", WebPage.class);
+      new TpcdsTable<WebPage>("web_page", "wp", 332, 345,
+          fieldColumns("wp", WebPage.class)) {
+        protected RowGenerator<WebPage> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new WebPage.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        @Override protected long alignPartStart(long row) {
+          return ScdGenerator.keyFirstRow(row);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<WebReturn> WEB_RETURNS =
-      dummy("web_returns", "wr", WebReturn.class);
+      new TpcdsTable<WebReturn>("web_returns", "wr", 346, 369,
+          fieldColumns("wr", WebReturn.class)) {
+        protected RowGenerator<WebReturn> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new WebReturn.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<WebSale> WEB_SALES =
-      dummy("web_sales", "ws", WebSale.class);
+      new TpcdsTable<WebSale>("web_sales", "ws", 370, 403,
+          fieldColumns("ws", WebSale.class)) {
+        protected RowGenerator<WebSale> createRowGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return new WebSale.Generator(scaleFactor, firstRow, rowCount);
+        }
+
+        public void builder(Dsgen dsgen) {
+        }
+
+        public void loader1() {
+        }
+
+        public void loader2() {
+        }
+      };
 
   public static final TpcdsTable<WebSite> WEB_SITE =
-      dummy("web_site", "web", WebSite.class);
+      dummy("web_site", "web", 404, WebSite.class);
 
-  private static <E extends TpcdsEntity> TpcdsTable<E> dummy(String name,
-        final String prefix, Class<E> clazz) {
-    ImmutableList.Builder<TpcdsColumn> columns = ImmutableList.builder();
+  /** Creates a column for each public field of an entity class. */
+  private static List<TpcdsColumn> fieldColumns(final String prefix,
+      Class<?> clazz) {
+    final ImmutableList.Builder<TpcdsColumn> columns = ImmutableList.builder();
     for (final Field field : clazz.getFields()) {
       columns.add(
           new TpcdsColumn() {
+            private Object get(Object o) {
+              try {
+                return field.get(o);
+              } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+              }
+            }
+
             public String getString(Object o) {
-              throw new UnsupportedOperationException();
+              final Object value = get(o);
+              return value == null ? null : value.toString();
             }
 
             public double getDouble(Object o) {
-              throw new UnsupportedOperationException();
+              return ((Number) get(o)).doubleValue();
             }
 
             public long getLong(Object o) {
-              throw new UnsupportedOperationException();
+              return ((Number) get(o)).longValue();
             }
 
             public String getColumnName() {
@@ -158,9 +441,16 @@ public abstract class TpcdsTable<E> {
             }
           });
     }
-    return new TpcdsTable<E>(name, prefix, columns.build()) {
-      @Override public Iterable<E> createGenerator(double scaleFactor, int part,
-          int partCount) {
+    return columns.build();
+  }
+
+  private static <E extends TpcdsEntity> TpcdsTable<E> dummy(String name,
+        String prefix, int firstColumn, Class<E> clazz) {
+    final List<TpcdsColumn> columns = fieldColumns(prefix, clazz);
+    return new TpcdsTable<E>(name, prefix, firstColumn,
+        firstColumn + columns.size() - 1, columns) {
+      @Override public Iterable<E> createRangeGenerator(double scaleFactor,
+          long firstRow, long rowCount) {
         return ImmutableList.of();
       }
 
@@ -169,9 +459,6 @@ public abstract class TpcdsTable<E> {
       @Override public void loader1() {}
 
       @Override public void loader2() {}
-
-      @Override public void validate(int nTable, long kRow, int[] permutation) {
-      }
     };
   }
 
@@ -179,11 +466,19 @@ public abstract class TpcdsTable<E> {
   public final String prefix;
   public final ImmutableList<TpcdsColumn<E>> columns;
   public final int nParam = 0; // TODO:
-  public final int nFirstColumn = 0; // TODO:
-  public final int nLastColumn = 0; // TODO:
-  public long kNullBitMap; // TODO:
-  public final int nNullPct = 0; // TODO:
-  public long kNotNullBitMap; // TODO:
+  /** Global number of this table's first column. Each column has its own
+   * random number stream, whose seed derives from this number. */
+  public final int nFirstColumn;
+  /** Global number of this table's last column. */
+  public final int nLastColumn;
+  /** Columns into which nulls may be injected; bit {@code i} is column
+   * {@code i}. All columns except those in {@link #kNotNullBitMap}. */
+  public final long kNullBitMap;
+  /** Proportion of rows that have nulls, in hundredths of a percent. */
+  public final int nNullPct;
+  /** Columns that are never null: those that dsdgen declares not null, and
+   * those whose Java type is primitive. */
+  public final long kNotNullBitMap;
 
 
   private static final List<TpcdsTable<?>> TABLES =
@@ -218,10 +513,34 @@ public abstract class TpcdsTable<E> {
     Maps.uniqueIndex(TABLES, tableNameGetter());
 
   public TpcdsTable(String name, String prefix, List columns) {
+    this(name, prefix, 0, -1, columns);
+  }
+
+  public TpcdsTable(String name, String prefix, int firstColumn,
+      int lastColumn, List columns) {
     this.name = checkNotNull(name);
     this.prefix = checkNotNull(prefix);
+    this.nFirstColumn = firstColumn;
+    this.nLastColumn = lastColumn;
     //noinspection unchecked
     this.columns = ImmutableList.copyOf(columns);
+    final long[] nulls = NULLS.get(name);
+    long notNull = nulls == null ? 0L : nulls[1];
+    for (int i = 0; i < this.columns.size(); i++) {
+      if (this.columns.get(i).getType().isPrimitive()) {
+        notNull |= 1L << i;
+      }
+    }
+    final long all = this.columns.size() >= 64
+        ? -1L
+        : (1L << this.columns.size()) - 1;
+    this.nNullPct = nulls == null ? 0 : (int) nulls[0];
+    this.kNotNullBitMap = notNull & all;
+    this.kNullBitMap = all & ~notNull;
+  }
+
+  private static long[] nulls(int nullPct, long notNullBitMap) {
+    return new long[] {nullPct, notNullBitMap};
   }
 
   public static TpcdsTable[] getTables() {
@@ -232,8 +551,193 @@ public abstract class TpcdsTable<E> {
     return name;
   }
 
-  public abstract Iterable<E> createGenerator(double scaleFactor, int part,
-      int partCount);
+  /** Returns the number of rows in this table at a given scale factor. */
+  public long getRowCount(double scaleFactor) {
+    return Scaling.rowCount(name, scaleFactor);
+  }
+
+  /** Returns the range of surrogate keys in one part of this table at a
+   * given scale factor, without generating it.
+   *
+   * <p>The surrogate key of a row is its row number plus
+   * {@link #getKeyOffset()}. (Tables that have no surrogate key, such as
+   * sales tables, have no such column, but the range still identifies the
+   * part's rows.) Parts are numbered as in {@link #createGenerator}; the
+   * ranges of the parts are contiguous and do not overlap. */
+  public Range<Long> getKeyRange(double scaleFactor, int part,
+      int partCount) {
+    final long firstKey =
+        getPartFirstRow(scaleFactor, part, partCount) + getKeyOffset();
+    return Range.closedOpen(firstKey,
+        firstKey + getPartRowCount(scaleFactor, part, partCount));
+  }
+
+  /** Returns the surrogate key of row 0 of this table. Usually 1, so that
+   * the surrogate key of a row is its row number plus one. */
+  public long getKeyOffset() {
+    return 1;
+  }
+
+  /** Returns the first row (numbered from 0) of one part of this table.
+   *
+   * <p>Parts are numbered as in {@link #createGenerator}. Rows are divided
+   * as evenly as possible, except that a part never starts in the middle of
+   * a revision chain; see {@link #alignPartStart}. */
+  public long getPartFirstRow(double scaleFactor, int part, int partCount) {
+    final long rowCount = getRowCount(scaleFactor);
+    return alignPartStart(Scaling.partFirstRow(rowCount, part, partCount));
+  }
+
+  /** Returns the number of rows in one part of this table. */
+  public long getPartRowCount(double scaleFactor, int part, int partCount) {
+    final long end = partCount <= 1 || part == partCount
+        ? getRowCount(scaleFactor)
+        : getPartFirstRow(scaleFactor, part + 1, partCount);
+    return end - getPartFirstRow(scaleFactor, part, partCount);
+  }
+
+  /** Returns the row at which a part that would otherwise start at
+   * {@code row} starts. The default is {@code row}; a slowly changing
+   * dimension rounds down to the first revision of the row's business key,
+   * so that each revision chain lies within one part. */
+  protected long alignPartStart(long row) {
+    return row;
+  }
+
+  /** Returns the expected size, in bytes, of this table's {@code .dat}
+   * file at a given scale factor, without generating it. */
+  public long getByteCount(double scaleFactor) {
+    return getByteCount(scaleFactor, 1, 1);
+  }
+
+  /** Returns the expected size, in bytes, of one part of this table's
+   * {@code .dat} file at a given scale factor, without generating it: the
+   * part's row count (see {@link #getPartRowCount}) times the average row
+   * width. */
+  public long getByteCount(double scaleFactor, int part, int partCount) {
+    return Scaling.rowWidth(name)
+        * getPartRowCount(scaleFactor, part, partCount);
+  }
+
+  /** Creates a generator for one part of this table.
+   *
+   * <p>Parts are numbered from 1 to {@code partCount}, as in dsdgen's
+   * {@code -CHILD} and {@code -PARALLEL} options. If {@code partCount} is 1
+   * or less, the generator returns the whole table. */
+  public Iterable<E> createGenerator(double scaleFactor, int part,
+      int partCount) {
+    return createRangeGenerator(scaleFactor,
+        getPartFirstRow(scaleFactor, part, partCount),
+        getPartRowCount(scaleFactor, part, partCount));
+  }
+
+  /** Creates a generator for a contiguous range of rows of this table.
+   *
+   * <p>Rows are numbered from 0. Generating a table as several ranges and
+   * concatenating the results gives the same rows as generating it in one
+   * go; {@link ParallelGenerator} relies on this. */
+  public Iterable<E> createRangeGenerator(double scaleFactor, long firstRow,
+      long rowCount) {
+    return rowGenerator(scaleFactor, firstRow, rowCount);
+  }
+
+  /** Creates a cursor over a contiguous range of rows of this table.
+   *
+   * <p>The cursor reuses one buffer for all rows, so it does not allocate an
+   * entity per row. */
+  public RowCursor createCursor(double scaleFactor, long firstRow,
+      long rowCount) {
+    return rowGenerator(scaleFactor, firstRow, rowCount).cursor();
+  }
+
+  /** Creates a generator for a contiguous range of rows of this table,
+   * as {@link PackedRow}s rather than entities. A packed row holds its
+   * values as primitives plus a null mask, so it takes much less heap than
+   * an entity with boxed fields. */
+  public Iterable<PackedRow> createPackedGenerator(final double scaleFactor,
+      final long firstRow, final long rowCount) {
+    final PackedRow.Layout layout = new PackedRow.Layout(columns);
+    return new Iterable<PackedRow>() {
+      public Iterator<PackedRow> iterator() {
+        final RowCursor cursor =
+            createCursor(scaleFactor, firstRow, rowCount);
+        return new AbstractIterator<PackedRow>() {
+          protected PackedRow computeNext() {
+            if (!cursor.advance()) {
+              return endOfData();
+            }
+            return PackedRow.of(layout, cursor);
+          }
+        };
+      }
+    };
+  }
+
+  /** Generates a contiguous range of rows of this table into off-heap
+   * memory, which consumers read through flyweight views. */
+  public OffHeapTable materialize(double scaleFactor, long firstRow,
+      long rowCount) {
+    return OffHeapTable.of(this, scaleFactor, firstRow, rowCount);
+  }
+
+  /** Creates a cursor that generates a contiguous range of rows of this
+   * table into column vectors, a batch at a time. */
+  public BatchCursor createBatchCursor(double scaleFactor, long firstRow,
+      long rowCount) {
+    return rowGenerator(scaleFactor, firstRow, rowCount).batchCursor();
+  }
+
+  /** Generates one part of this sales table and, in the same pass, the rows
+   * of the corresponding returns table that are derived from it.
+   *
+   * <p>Cheaper than generating the sales and returns tables separately,
+   * because each line item is generated only once. Generating every part
+   * generates every row of both tables exactly once.
+   *
+   * @throws UnsupportedOperationException if this is not a sales table
+   */
+  public void generateSalesAndReturns(double scaleFactor, int part,
+      int partCount, RowSink salesSink, RowSink returnsSink) {
+    final RowGenerator<E> generator = rowGenerator(scaleFactor,
+        getPartFirstRow(scaleFactor, part, partCount),
+        getPartRowCount(scaleFactor, part, partCount));
+    if (!(generator instanceof SalesGenerator)) {
+      throw new UnsupportedOperationException("table " + name
+          + " is not a sales table");
+    }
+    ((SalesGenerator<E>) generator).generate(salesSink, returnsSink);
+  }
+
+  /** Creates a validator that checks that a {@code .dat} file contains this
+   * table, by generating the rows afresh. */
+  public Validator<E> createValidator(double scaleFactor, File file) {
+    return Validator.of(this, scaleFactor, file);
+  }
+
+  /** Creates an empty batch with a vector for each column of this table. */
+  public ColumnBatch createBatch(int capacity) {
+    return ColumnBatch.of(columns, capacity);
+  }
+
+  /** Creates the generator for a range of rows, which injects this
+   * table's nulls. */
+  RowGenerator<E> rowGenerator(double scaleFactor, long firstRow,
+      long rowCount) {
+    final RowGenerator<E> generator =
+        createRowGenerator(scaleFactor, firstRow, rowCount);
+    if (generator == null) {
+      throw new UnsupportedOperationException("table " + name
+          + " is not generated yet");
+    }
+    return generator.withNulls(Nulls.of(this));
+  }
+
+  /** Creates the generator that underlies {@link #createRangeGenerator} and
+   * {@link #createCursor}, or returns null if this table has none. */
+  protected RowGenerator<E> createRowGenerator(double scaleFactor,
+      long firstRow, long rowCount) {
+    return null;
+  }
 
   /** To prep output. */
   public abstract void builder(Dsgen dsgen);
@@ -244,7 +748,20 @@ public abstract class TpcdsTable<E> {
   /** To present output 2. */
   public abstract void loader2();
 
-  public abstract void validate(int nTable, long kRow, int[] permutation);
+  /** Validates a row, like dsdgen's {@code -validate} option.
+   *
+   * @deprecated Does nothing; use {@link #createValidator} or
+   * {@link Validator#validateDirectory}, which check {@code .dat} files
+   * against rows generated afresh */
+  @Deprecated // to be removed before 1.0
+  public void validate(int nTable, long kRow, Permutation permutation) {
+  }
+
+  /** Returns whether this table has a generator. Tables that do not yet
+   * have one generate no rows. */
+  public boolean isGenerated() {
+    return createRowGenerator(1d, 0, 0) != null;
+  }
 
   public List<TpcdsColumn<E>> getColumns() {
     return columns;
@@ -0,0 +1,512 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Checks a {@code .dat} file against rows generated afresh, using several
+ * threads.
+ *
+ * <p>The file is split into partitions of about {@link #chunkSize} bytes.
+ * Validation makes two passes over the file, each of which processes the
+ * partitions in parallel:
+ *
+ * <ol>
+ *   <li>Count the lines in each partition. A running total gives the row
+ *   number of each partition's first line, so each partition can be checked
+ *   independently of the others.</li>
+ *   <li>For each partition (or, if {@link #sampleRate} is less than 1, a
+ *   sample of the partitions), regenerate its rows from their row number
+ *   (see {@link TpcdsTable#createRangeGenerator}) and compare them, byte for
+ *   byte, with the lines in the file.</li>
+ * </ol>
+ *
+ * <p>The first pass only reads the file, and costs far less than the second;
+ * so a sampled validation of a large file costs about as much as reading it
+ * once. Neither pass needs a second copy of the data on disk.
+ *
+ * @param <E> Element type
+ */
+public class Validator<E> {
+  /** Default number of bytes in a partition. */
+  public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+  public final TpcdsTable<E> table;
+  public final double scaleFactor;
+  public final File file;
+  public final long firstRow;
+  public final long rowCount;
+  public final int chunkSize;
+  public final double sampleRate;
+  private final ForkJoinPool pool;
+
+  private Validator(TpcdsTable<E> table, double scaleFactor, File file,
+      long firstRow, long rowCount, int chunkSize, double sampleRate,
+      ForkJoinPool pool) {
+    checkArgument(chunkSize > 0, "chunk size must be positive");
+    checkArgument(sampleRate > 0 && sampleRate <= 1,
+        "sample rate must be in (0, 1]");
+    this.table = checkNotNull(table);
+    this.scaleFactor = scaleFactor;
+    this.file = checkNotNull(file);
+    this.firstRow = firstRow;
+    this.rowCount = rowCount;
+    this.chunkSize = chunkSize;
+    this.sampleRate = sampleRate;
+    this.pool = checkNotNull(pool);
+  }
+
+  /** Creates a validator that checks that a file contains the whole of a
+   * table. */
+  public static <E> Validator<E> of(TpcdsTable<E> table, double scaleFactor,
+      File file) {
+    return new Validator<E>(table, scaleFactor, file, 0,
+        table.getRowCount(scaleFactor), DEFAULT_CHUNK_SIZE, 1d,
+        ParallelGenerator.DefaultPool.INSTANCE);
+  }
+
+  /** Returns the name of the file that dsdgen writes for a part of a table:
+   * {@code store_sales.dat} if there is one part, otherwise
+   * {@code store_sales_2_4.dat}. */
+  public static String fileName(TpcdsTable<?> table, int part,
+      int partCount) {
+    return partCount <= 1
+        ? table.name + ".dat"
+        : table.name + "_" + part + "_" + partCount + ".dat";
+  }
+
+  /** Validates every {@code .dat} file in a directory whose name is that of
+   * a table or of a part of a table (see {@link #fileName}), and returns the
+   * results, ordered by file name.
+   *
+   * <p>Files of tables that are not generated yet (see
+   * {@link TpcdsTable#isGenerated()}) are skipped, because there are no rows
+   * to compare them with. */
+  public static List<Result> validateDirectory(File directory,
+      double scaleFactor, double sampleRate) throws IOException {
+    final String[] names = directory.list();
+    if (names == null) {
+      throw new IOException("not a directory: " + directory);
+    }
+    Arrays.sort(names);
+    final List<TpcdsTable<?>> tables = new ArrayList<TpcdsTable<?>>();
+    final List<Pattern> patterns = new ArrayList<Pattern>();
+    for (TpcdsTable<?> table : TpcdsTable.getTables()) {
+      if (table.isGenerated()) {
+        tables.add(table);
+        patterns.add(
+            Pattern.compile(Pattern.quote(table.name)
+                + "(_([0-9]+)_([0-9]+))?\\.dat"));
+      }
+    }
+    final List<Result> results = new ArrayList<Result>();
+    for (String name : names) {
+      for (int i = 0; i < tables.size(); i++) {
+        final Matcher matcher = patterns.get(i).matcher(name);
+        if (matcher.matches()) {
+          Validator<?> validator = of(tables.get(i), scaleFactor,
+              new File(directory, name)).withSampleRate(sampleRate);
+          if (matcher.group(1) != null) {
+            validator = validator.withPart(
+                Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)));
+          }
+          results.add(validator.validate());
+        }
+      }
+    }
+    return results;
+  }
+
+  /** Returns a validator that is the same as this but expects the file to
+   * contain the {@code part}th of {@code partCount} parts of the table. */
+  public Validator<E> withPart(int part, int partCount) {
+    return new Validator<E>(table, scaleFactor, file,
+        table.getPartFirstRow(scaleFactor, part, partCount),
+        table.getPartRowCount(scaleFactor, part, partCount), chunkSize,
+        sampleRate, pool);
+  }
+
+  /** Returns a validator that is the same as this but with partitions of
+   * a given number of bytes. */
+  public Validator<E> withChunkSize(int chunkSize) {
+    return new Validator<E>(table, scaleFactor, file, firstRow, rowCount,
+        chunkSize, sampleRate, pool);
+  }
+
+  /** Returns a validator that is the same as this but checks only a given
+   * fraction of the partitions, spread evenly through the file. */
+  public Validator<E> withSampleRate(double sampleRate) {
+    return new Validator<E>(table, scaleFactor, file, firstRow, rowCount,
+        chunkSize, sampleRate, pool);
+  }
+
+  /** Returns a validator that is the same as this but runs its tasks in a
+   * given pool. */
+  public Validator<E> withPool(ForkJoinPool pool) {
+    return new Validator<E>(table, scaleFactor, file, firstRow, rowCount,
+        chunkSize, sampleRate, pool);
+  }
+
+  /** Validates the file, and returns the results. */
+  public Result validate() throws IOException {
+    final long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      final FileChannel channel = raf.getChannel();
+      final long length = channel.size();
+      final int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+
+      // Pass 1. Count lines, and find the first line that starts in each
+      // chunk.
+      final List<ForkJoinTask<long[]>> countTasks =
+          new ArrayList<ForkJoinTask<long[]>>();
+      for (int i = 0; i < chunkCount; i++) {
+        countTasks.add(
+            pool.submit(new CountTask(channel, (long) i * chunkSize,
+                Math.min(length, (long) (i + 1) * chunkSize))));
+      }
+      final List<Partition> partitions = new ArrayList<Partition>();
+      long lines = 0;
+      for (int i = 0; i < chunkCount; i++) {
+        final long[] count = join(countTasks.get(i));
+        if (i == 0) {
+          partitions.add(new Partition(0, 0));
+        } else if (count[1] >= 0) {
+          // The chunk's first line starts after its first newline.
+          partitions.add(new Partition(count[1] + 1, lines + 1));
+        }
+        lines += count[0];
+      }
+      if (!endsWithNewline(channel, length)) {
+        ++lines; // last line has no terminator
+      }
+      final List<Partition> checked = new ArrayList<Partition>();
+      for (int i = 0; i < partitions.size(); i++) {
+        final Partition partition = partitions.get(i);
+        final boolean last = i + 1 == partitions.size();
+        partition.end = last ? length : partitions.get(i + 1).offset;
+        partition.lineCount =
+            (last ? lines : partitions.get(i + 1).firstLine)
+            - partition.firstLine;
+        if (Math.floor((i + 1) * sampleRate) > Math.floor(i * sampleRate)) {
+          checked.add(partition);
+        }
+      }
+
+      // Pass 2. Regenerate and compare.
+      final List<ForkJoinTask<PartitionResult>> checkTasks =
+          new ArrayList<ForkJoinTask<PartitionResult>>();
+      for (Partition partition : checked) {
+        checkTasks.add(pool.submit(new CheckTask(channel, partition)));
+      }
+      final ImmutableList.Builder<PartitionResult> results =
+          ImmutableList.builder();
+      for (ForkJoinTask<PartitionResult> task : checkTasks) {
+        results.add(join(task));
+      }
+      return new Result(file, rowCount, lines, length, results.build(),
+          System.nanoTime() - start);
+    }
+  }
+
+  private static <T> T join(ForkJoinTask<T> task) throws IOException {
+    try {
+      return task.join();
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static boolean endsWithNewline(FileChannel channel, long length)
+      throws IOException {
+    if (length == 0) {
+      return true;
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(1);
+    channel.read(buffer, length - 1);
+    return buffer.get(0) == '\n';
+  }
+
+  private static byte[] read(FileChannel channel, long offset, long end)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate((int) (end - offset));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.array();
+  }
+
+  private static String toLine(Object e) {
+    return e instanceof TpcdsEntity
+        ? ((TpcdsEntity) e).toLine()
+        : String.valueOf(e);
+  }
+
+  /** Range of bytes in the file that starts at the beginning of a line. */
+  private static class Partition {
+    final long offset;
+    final long firstLine;
+    long end;
+    long lineCount;
+
+    Partition(long offset, long firstLine) {
+      this.offset = offset;
+      this.firstLine = firstLine;
+    }
+  }
+
+  /** Task that counts the newlines in a range of bytes, and finds the
+   * first. Returns {count, offset of first newline or -1}. */
+  private static class CountTask extends RecursiveTask<long[]> {
+    private final FileChannel channel;
+    private final long offset;
+    private final long end;
+
+    CountTask(FileChannel channel, long offset, long end) {
+      this.channel = channel;
+      this.offset = offset;
+      this.end = end;
+    }
+
+    protected long[] compute() {
+      final byte[] bytes;
+      try {
+        bytes = read(channel, offset, end);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      long count = 0;
+      long first = -1;
+      for (int i = 0; i < bytes.length; i++) {
+        if (bytes[i] == '\n') {
+          if (count++ == 0) {
+            first = offset + i;
+          }
+        }
+      }
+      return new long[] {count, first};
+    }
+  }
+
+  /** Task that regenerates the rows of a partition and compares them with
+   * its lines. */
+  private class CheckTask extends RecursiveTask<PartitionResult> {
+    private final FileChannel channel;
+    private final Partition partition;
+
+    CheckTask(FileChannel channel, Partition partition) {
+      this.channel = channel;
+      this.partition = partition;
+    }
+
+    protected PartitionResult compute() {
+      final long start = System.nanoTime();
+      final byte[] bytes;
+      try {
+        bytes = read(channel, partition.offset, partition.end);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      // Rows past the end of the table are not generated, but are counted,
+      // so that a file that is too long fails.
+      final long generated =
+          Math.max(0, Math.min(partition.lineCount,
+              rowCount - partition.firstLine));
+      final Iterator<E> rows = table.createRangeGenerator(scaleFactor,
+          firstRow + partition.firstLine, generated).iterator();
+      int lineStart = 0;
+      for (long line = 0; line < partition.lineCount; line++) {
+        int lineEnd = lineStart;
+        while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+          ++lineEnd;
+        }
+        final long row = partition.firstLine + line;
+        final byte[] actual = Arrays.copyOfRange(bytes, lineStart, lineEnd);
+        if (!rows.hasNext()) {
+          return result(row, null, actual, start);
+        }
+        final byte[] expected =
+            toLine(rows.next()).getBytes(StandardCharsets.UTF_8);
+        if (!Arrays.equals(expected, actual)) {
+          return result(row, expected, actual, start);
+        }
+        lineStart = lineEnd + 1;
+      }
+      return result(-1, null, null, start);
+    }
+
+    private PartitionResult result(long row, byte[] expected, byte[] actual,
+        long start) {
+      return new PartitionResult(partition.offset, partition.end,
+          partition.firstLine, partition.lineCount, row,
+          expected == null ? null : new String(expected,
+              StandardCharsets.UTF_8),
+          actual == null ? null : new String(actual, StandardCharsets.UTF_8),
+          System.nanoTime() - start);
+    }
+  }
+
+  /** Result of validating one partition of a file. */
+  public static class PartitionResult {
+    /** Offset of the partition's first byte in the file. */
+    public final long offset;
+    /** Offset of the byte after the partition's last byte. */
+    public final long end;
+    /** Row number of the partition's first line, relative to the start of
+     * the file. */
+    public final long firstRow;
+    /** Number of lines in the partition. */
+    public final long rowCount;
+    /** Row number of the first line that does not match, or -1 if the
+     * partition passed. */
+    public final long failedRow;
+    /** Expected contents of the failed line, or null if the line should
+     * not exist. */
+    public final String expected;
+    /** Actual contents of the failed line. */
+    public final String actual;
+    /** Time taken to check the partition, in nanoseconds. */
+    public final long nanos;
+
+    PartitionResult(long offset, long end, long firstRow, long rowCount,
+        long failedRow, String expected, String actual, long nanos) {
+      this.offset = offset;
+      this.end = end;
+      this.firstRow = firstRow;
+      this.rowCount = rowCount;
+      this.failedRow = failedRow;
+      this.expected = expected;
+      this.actual = actual;
+      this.nanos = nanos;
+    }
+
+    public boolean passed() {
+      return failedRow < 0;
+    }
+
+    @Override public String toString() {
+      final StringBuilder buf = new StringBuilder();
+      buf.append(String.format(Locale.ROOT,
+          "rows %d..%d, bytes %d..%d: %s, %.0f rows/s, %.1f MB/s",
+          firstRow, firstRow + rowCount - 1, offset, end - 1,
+          passed() ? "pass" : "FAIL", perSecond(rowCount, nanos),
+          perSecond(end - offset, nanos) / 1e6));
+      if (!passed()) {
+        buf.append("\n  row ").append(failedRow)
+            .append("\n  expected: ").append(expected)
+            .append("\n  actual:   ").append(actual);
+      }
+      return buf.toString();
+    }
+  }
+
+  /** Result of validating a file. */
+  public static class Result {
+    public final File file;
+    /** Number of rows the file should contain. */
+    public final long expectedRowCount;
+    /** Number of rows (lines) the file contains. */
+    public final long rowCount;
+    /** Number of bytes in the file. */
+    public final long byteCount;
+    /** Results of the partitions that were checked, in file order. */
+    public final ImmutableList<PartitionResult> partitions;
+    /** Elapsed time, in nanoseconds. */
+    public final long nanos;
+
+    Result(File file, long expectedRowCount, long rowCount, long byteCount,
+        ImmutableList<PartitionResult> partitions, long nanos) {
+      this.file = file;
+      this.expectedRowCount = expectedRowCount;
+      this.rowCount = rowCount;
+      this.byteCount = byteCount;
+      this.partitions = partitions;
+      this.nanos = nanos;
+    }
+
+    /** Returns whether the file has the right number of rows and every
+     * partition that was checked passed. */
+    public boolean passed() {
+      if (rowCount != expectedRowCount) {
+        return false;
+      }
+      for (PartitionResult partition : partitions) {
+        if (!partition.passed()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Returns the number of rows that were checked. */
+    public long getCheckedRowCount() {
+      long n = 0;
+      for (PartitionResult partition : partitions) {
+        n += partition.rowCount;
+      }
+      return n;
+    }
+
+    @Override public String toString() {
+      final StringBuilder buf = new StringBuilder();
+      buf.append(String.format(Locale.ROOT,
+          "%s: %s, %d of %d rows (expected %d), %d partitions checked, "
+          + "%.0f rows/s, %.1f MB/s",
+          file, passed() ? "pass" : "FAIL", getCheckedRowCount(), rowCount,
+          expectedRowCount, partitions.size(),
+          perSecond(getCheckedRowCount(), nanos),
+          perSecond(byteCount, nanos) / 1e6));
+      for (PartitionResult partition : partitions) {
+        buf.append("\n").append(partition);
+      }
+      return buf.toString();
+    }
+  }
+
+  private static double perSecond(long n, long nanos) {
+    return nanos == 0 ? 0d : n * 1e9 / nanos;
+  }
+}
+
+// End Validator.java
@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code warehouse} TPC-DS table. */
 public class Warehouse implements TpcdsEntity {
@@ -52,7 +50,6 @@ public class Warehouse implements TpcdsEntity {
   public final Float gmtOffset;
   // primary key (w_warehouse_sk)
 
-
   public Warehouse(int warehouseSk, String warehouseId, String warehouseName,
       Integer warehouseSqFt, String streetNumber, String streetName,
       String streetType, String suiteNumber, String city, String county,
@@ -74,8 +71,59 @@ public class Warehouse implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(warehouseSk, warehouseId, warehouseName, warehouseSqFt,
+        streetNumber, streetName, streetType, suiteNumber, city, county, state,
+        zip, country, gmtOffset);
+  }
+
+  /** Value generator. */
+  public static class Generator extends RowGenerator<Warehouse> {
+    private static final int NAME = 2;
+    private static final int SQ_FT = 3;
+    private static final int ADDRESS = 4;
+
+    private static final int NAME_MAX_LENGTH = 20;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount, ADDRESS + Address.COLUMN_COUNT);
+    }
+
+    protected RandomStreams createStreams() {
+      // Columns: sk, id, name, square feet, the address block.
+      return new WarehouseStreams(TpcdsTable.WAREHOUSE.nFirstColumn,
+          0, 0, Text.seeds(NAME_MAX_LENGTH), 1, 1, 1, 1, 1, 1, 1, 0, 1, 0, 0);
+    }
+
+    protected void generateRow(long row, RandomStreams streams,
+        RowBuffer buffer) {
+      final WarehouseStreams warehouseStreams = (WarehouseStreams) streams;
+      buffer.setInt(0, (int) (row + 1));
+      buffer.setString(1, warehouseStreams.id.set(row + 1));
+      Text.generate(streams.get(NAME), 10, NAME_MAX_LENGTH,
+          warehouseStreams.name);
+      buffer.setString(NAME, warehouseStreams.name);
+      buffer.setInt(SQ_FT, streams.get(SQ_FT).nextInt(50000, 1000000));
+      warehouseStreams.address.generate(streams, ADDRESS);
+      warehouseStreams.address.set(buffer, ADDRESS);
+    }
+
+    protected Warehouse toEntity(RowBuffer buffer) {
+      return new Warehouse(buffer.getInt(0), string(buffer, 1),
+          string(buffer, 2), buffer.getInteger(3), string(buffer, 4),
+          string(buffer, 5), string(buffer, 6), string(buffer, 7),
+          string(buffer, 8), string(buffer, 9), string(buffer, 10),
+          string(buffer, 11), string(buffer, 12), buffer.getFloat(13));
+    }
+
+    /** Streams of a warehouse generator; they also hold a buffer for the
+     * name. */
+    private static class WarehouseStreams extends Address.Streams {
+      final Text.Buffer name = new Text.Buffer(NAME_MAX_LENGTH);
+
+      WarehouseStreams(int firstColumn, int... seedsPerRow) {
+        super(firstColumn, seedsPerRow);
+      }
+    }
   }
 }
 
@@ -19,8 +19,6 @@ package net.hydromatic.tpcds;
 
 import java.sql.Date;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code web_page} TPC-DS table. */
 public class WebPage implements TpcdsEntity {
@@ -76,8 +74,89 @@ public class WebPage implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(webPageSk, webPageId, recStartDate, recEndDate,
+        creationDateSk, accessDateSk, autogenFlag, customerSk, url, type,
+        charCount, linkCount, imageCount, maxAdCount);
+  }
+
+  /** Value generator.
+   *
+   * <p>Pages are revisions of a business key; see {@link ScdGenerator}. A
+   * page is created in the 100 days before its first revision starts, and
+   * was last accessed in the 100 days before the current date. An
+   * automatically generated page belongs to a customer. */
+  public static class Generator extends ScdGenerator<WebPage> {
+    private static final int CREATION_DATE_SK = 4;
+    private static final int ACCESS_DATE_SK = 5;
+    private static final int AUTOGEN_FLAG = 6;
+    private static final int CUSTOMER_SK = 7;
+    private static final int URL = 8;
+    private static final int TYPE = 9;
+    private static final int CHAR_COUNT = 10;
+    private static final int LINK_COUNT = 11;
+    private static final int IMAGE_COUNT = 12;
+    private static final int MAX_AD_COUNT = 13;
+
+    /** dsdgen's number for the {@code web_page} table. */
+    private static final int TABLE_NUMBER = 20;
+
+    private static final int AUTOGEN_PCT = 30;
+    private static final int CREATION_DAYS = 100;
+    private static final int ACCESS_DAYS = 100;
+    private static final String URL_VALUE = "http://www.foo.com";
+    private static final Distribution TYPES =
+        Distribution.get("web_page_use");
+
+    private final int customerCount;
+
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(scaleFactor, firstRow, rowCount,
+          TpcdsTable.WEB_PAGE.nFirstColumn, TABLE_NUMBER,
+          new int[] {0, 1, 0, 0, 1, 1, 1, 1, 0, 1, 1, 1, 1, 1},
+          mask(AUTOGEN_FLAG, CUSTOMER_SK), mask(ACCESS_DATE_SK),
+          mask(TYPE), mask(CHAR_COUNT, LINK_COUNT, IMAGE_COUNT),
+          mask(MAX_AD_COUNT));
+      this.customerCount =
+          (int) Scaling.rowCount("customer", scaleFactor);
+    }
+
+    protected void generateColumns(long row, long key,
+        RandomStreams streams, RowBuffer buffer) {
+      buffer.setInt(CREATION_DATE_SK, getFirstStartDate()
+          - streams.get(CREATION_DATE_SK).nextInt(1, CREATION_DAYS));
+      buffer.setInt(ACCESS_DATE_SK, DateDim.Generator.CURRENT_DATE_SK
+          - streams.get(ACCESS_DATE_SK).nextInt(0, ACCESS_DAYS));
+      final boolean autogen =
+          streams.get(AUTOGEN_FLAG).nextInt(1, 100) <= AUTOGEN_PCT;
+      buffer.setString(AUTOGEN_FLAG, autogen ? "Y" : "N");
+      final int customerSk =
+          streams.get(CUSTOMER_SK).nextInt(1, Math.max(customerCount, 1));
+      if (autogen && customerCount > 0) {
+        buffer.setInt(CUSTOMER_SK, customerSk);
+      }
+      buffer.setString(URL, URL_VALUE);
+      buffer.setString(TYPE,
+          TYPES.getValue(TYPES.pick(1, streams.get(TYPE)), 1));
+      final int linkCount = streams.get(LINK_COUNT).nextInt(2, 25);
+      final int imageCount = streams.get(IMAGE_COUNT).nextInt(1, 7);
+      buffer.setInt(LINK_COUNT, linkCount);
+      buffer.setInt(IMAGE_COUNT, imageCount);
+      buffer.setInt(CHAR_COUNT,
+          streams.get(CHAR_COUNT).nextInt(linkCount * 125 + imageCount * 50,
+              linkCount * 250 + imageCount * 100));
+      buffer.setInt(MAX_AD_COUNT, streams.get(MAX_AD_COUNT).nextInt(0, 4));
+    }
+
+    protected WebPage toEntity(RowBuffer buffer) {
+      return new WebPage(buffer.getInt(SK), buffer.getString(ID).toString(),
+          date(buffer, REC_START_DATE), date(buffer, REC_END_DATE),
+          buffer.getInteger(CREATION_DATE_SK),
+          buffer.getInteger(ACCESS_DATE_SK),
+          string(buffer, AUTOGEN_FLAG), buffer.getInteger(CUSTOMER_SK),
+          string(buffer, URL), string(buffer, TYPE),
+          buffer.getInteger(CHAR_COUNT), buffer.getInteger(LINK_COUNT),
+          buffer.getInteger(IMAGE_COUNT), buffer.getInteger(MAX_AD_COUNT));
+    }
   }
 }
 
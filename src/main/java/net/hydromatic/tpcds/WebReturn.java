@@ -17,8 +17,6 @@
 */
 package net.hydromatic.tpcds;
 
-import static java.util.Locale.ENGLISH;
-
 /** Entity corresponding to a row in the
  * {@code web_returns} TPC-DS table. */
 public class WebReturn implements TpcdsEntity {
@@ -48,8 +46,8 @@ public class WebReturn implements TpcdsEntity {
   public final Integer webPageSk;
   // wr_reason_sk              integer
   public final Integer reasonSk;
-  // wr_order_number           integer               not null
-  public final int orderNumber;
+  // wr_order_number           bigint                not null
+  public final long orderNumber;
   // wr_return_quantity        integer
   public final Integer returnQuantity;
   // wr_return_amt             decimal(7,2)
@@ -78,7 +76,7 @@ public class WebReturn implements TpcdsEntity {
       Integer refundedHdemoSk, Integer refundedAddrSk,
       Integer returningCustomerSk, Integer returningCdemoSk,
       Integer returningHdemoSk, Integer returningAddrSk, Integer webPageSk,
-      Integer reasonSk, int orderNumber, Integer returnQuantity,
+      Integer reasonSk, long orderNumber, Integer returnQuantity,
       Float returnAmt, Float returnTax, Float returnAmtIncTax, Float fee,
       Float returnShipCost, Float refundedCash, Float reversedCharge,
       Float accountCredit, Float netLoss) {
@@ -109,8 +107,35 @@ public class WebReturn implements TpcdsEntity {
   }
 
   public String toLine() {
-    return String.format(ENGLISH,
-        "%d|%s|%s|%d|%s|%s|%s|%s|");
+    return Lines.join(returnedDateSk, returnedTimeSk, itemSk,
+        refundedCustomerSk, refundedCdemoSk, refundedHdemoSk, refundedAddrSk,
+        returningCustomerSk, returningCdemoSk, returningHdemoSk,
+        returningAddrSk, webPageSk, reasonSk, orderNumber, returnQuantity,
+        returnAmt, returnTax, returnAmtIncTax, fee, returnShipCost,
+        refundedCash, reversedCharge, accountCredit, netLoss);
+  }
+
+  /** Value generator. Each row is derived from a row of
+   * {@code web_sales}. */
+  public static class Generator extends ReturnsGenerator<WebReturn> {
+    public Generator(double scaleFactor, long firstRow, long rowCount) {
+      super(
+          new WebSale.Generator(scaleFactor, 0,
+              TpcdsTable.WEB_SALES.getRowCount(scaleFactor)),
+          firstRow, rowCount);
+    }
+
+    protected WebReturn toEntity(RowBuffer buffer) {
+      return new WebReturn(buffer.getInteger(0), buffer.getInteger(1),
+          buffer.getInt(2), buffer.getInteger(3), buffer.getInteger(4),
+          buffer.getInteger(5), buffer.getInteger(6), buffer.getInteger(7),
+          buffer.getInteger(8), buffer.getInteger(9), buffer.getInteger(10),
+          buffer.getInteger(11), buffer.getInteger(12), buffer.getLong(13),
+          buffer.getInteger(14), buffer.getFloat(15), buffer.getFloat(16),
+          buffer.getFloat(17), buffer.getFloat(18), buffer.getFloat(19),
+          buffer.getFloat(20), buffer.getFloat(21), buffer.getFloat(22),
+          buffer.getFloat(23));
+    }
   }
 }
 
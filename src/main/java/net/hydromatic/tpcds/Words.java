@@ -0,0 +1,44 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package net.hydromatic.tpcds;
+
+/**
+ * Made-up words, such as manufacturer and product names.
+ *
+ * <p>As in dsdgen's {@code mk_word}, a word spells out the decimal digits
+ * of a number, least significant first, using the {@code syllables}
+ * distribution; for example, 12 is "ableought".
+ */
+final class Words {
+  private static final String[] SYLLABLES =
+      Distribution.get("syllables").values(1);
+
+  private Words() {}
+
+  /** Returns the word for a positive number. */
+  static String of(long n) {
+    final StringBuilder buf = new StringBuilder();
+    do {
+      buf.append(SYLLABLES[(int) (n % SYLLABLES.length)]);
+      n /= SYLLABLES.length;
+    } while (n > 0);
+    return buf.toString();
+  }
+}
+
+// End Words.java
@@ -17,6 +17,10 @@
 */
 package net.hydromatic.tpcds.query;
 
+import net.hydromatic.tpcds.AliasTable;
+import net.hydromatic.tpcds.Distribution;
+import net.hydromatic.tpcds.Scaling;
+
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -28,9 +32,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Query definition.
@@ -53,6 +62,9 @@ public enum Query {
 
   private static final Generator EMPTY = Generators.fixed("");
 
+  /** Name of the variable that holds the scale factor. */
+  static final String SCALE = "_SCALE";
+
   private static final ImmutableMap<String, Generator> BUILTIN_ARGS =
       ImmutableMap.<String, Generator>builder()
           .put("__LIMITA", EMPTY)
@@ -87,7 +99,8 @@ public enum Query {
     if (limitArg == null) {
       return Iterables.concat(BUILTIN_ARGS.entrySet(), args.entrySet());
     }
-    final String limitString = limitArg.generate(new Random(0));
+    final String limitString =
+        limitArg.generate(new Random(0), ImmutableMap.<String, String>of());
     final int limit = Integer.parseInt(limitString);
     final Function<String, String> transform =
         new Function<String, String>() {
@@ -107,15 +120,26 @@ public enum Query {
         args.entrySet());
   }
 
-  /** Returns the SQL query, by expanding all embedded variables using the
-   * given random-number generator. */
+  /** Returns the SQL query at scale factor 1, by expanding all embedded
+   * variables using the given random-number generator. */
   public String sql(Random random) {
-    String s = template;
+    return sql(random, 1d);
+  }
+
+  /** Returns the SQL query for a database of a given scale factor, by
+   * expanding all embedded variables using the given random-number
+   * generator. */
+  public String sql(Random random, double scaleFactor) {
+    // Generate variables in order of definition, so that a variable can
+    // refer to those defined before it.
+    final Map<String, String> env = new LinkedHashMap<String, String>();
+    env.put(SCALE, Double.toString(scaleFactor));
     for (Map.Entry<String, Generator> entry : allArgs()) {
-      final String key = entry.getKey();
-      final Generator generator = entry.getValue();
-      String value = generator.generate(random);
-      s = s.replace("[" + key + "]", value);
+      entry.getValue().bind(entry.getKey(), random, env);
+    }
+    String s = template;
+    for (Map.Entry<String, String> entry : env.entrySet()) {
+      s = s.replace("[" + entry.getKey() + "]", entry.getValue());
     }
     return s;
   }
@@ -143,7 +167,7 @@ public enum Query {
         if (line.matches("^ *$")) {
           continue;
         }
-        if (line.matches("^ *define .*$")) {
+        if (line.matches("(?i)^ *define .*$")) {
           line = line.trim();
           int eq = line.indexOf('=');
           assert eq >= 0;
@@ -162,12 +186,24 @@ public enum Query {
   }
 
   /** Value generator. */
-  interface Generator {
-    String generate(Random random);
+  abstract static class Generator {
+    /** Generates a value. {@code env} contains the values of the variables
+     * defined earlier in the template. */
+    abstract String generate(Random random, Map<String, String> env);
+
+    /** Generates a value and assigns it to a variable. */
+    void bind(String name, Random random, Map<String, String> env) {
+      env.put(name, generate(random, env));
+    }
   }
 
   /** Utilities for {@link Generator}. */
   static class Generators {
+    /** Matches a reference to a variable, such as "[COUNTY]" or
+     * "[COUNTYNUMBER.1]". */
+    private static final Pattern REFERENCE =
+        Pattern.compile("\\[([A-Za-z_0-9]+(\\.[0-9]+)?)\\]");
+
     /** Creates a generator that returns the same string every time. */
     public static Generator fixed(final String s) {
       return new FixedGenerator(s);
@@ -177,8 +213,8 @@ public enum Query {
     public static Generator transform(final Generator generator,
         final Function<String, String> function) {
       return new Generator() {
-        public String generate(Random random) {
-          final String s = generator.generate(random);
+        String generate(Random random, Map<String, String> env) {
+          final String s = generator.generate(random, env);
           return function.apply(s);
         }
       };
@@ -236,11 +272,11 @@ public enum Query {
 
     public static Generator parse(String s) {
       final String original = s;
-      if (s.equals("distmember(i_manager_id, [MGR_IDX], 2)")) {
-        s = "20";
-      }
-      if (s.equals("distmember(i_manager_id, [MGR_IDX], 3)")) {
-        s = "30";
+      final Matcher matcher = REFERENCE.matcher(s);
+      if (matcher.matches()) {
+        // Example:
+        //  [COUNTYNUMBER.1]
+        return new ReferenceGenerator(matcher.group(1));
       }
       if (s.startsWith("text(")) {
         List<String> args = parseArgs(s, "text(", ")");
@@ -264,17 +300,19 @@ public enum Query {
         // Example:
         //  ulist(random(10000,99999,uniform),400)
         List<String> args = parseArgs(s, "ulist(", ")");
-        return fixed(s); // TODO:
+        assert args.size() == 2 : s;
+        return new UniqueListGenerator(parse(args.get(0)),
+            Integer.parseInt(args.get(1)));
       }
-      if (s.startsWith("dist(")) {
-        // Example:
+      if (s.startsWith("dist(") || s.startsWith("DIST(")) {
+        // Examples:
         //  dist(gender, 1, 1)
-        List<String> args = parseArgs(s, "dist(", ")");
-        return fixed(s); // TODO:
-      }
-      if (s.startsWith("DIST(")) {
-        List<String> args = parseArgs(s, "DIST(", ")");
-        return fixed(s); // TODO:
+        //  dist(cities, 1, large)
+        //  DIST(distmember(categories, [IDX.1], 2), 1, 1)
+        List<String> args = parseArgs(s, s.substring(0, 5), ")");
+        assert args.size() == 3 : s;
+        return new DistGenerator(distName(args.get(0)),
+            Integer.parseInt(args.get(1)), args.get(2));
       }
       if (s.startsWith("date(")) {
         // Example:
@@ -282,17 +320,43 @@ public enum Query {
         List<String> args = parseArgs(s, "date(", ")");
         return fixed(s); // TODO:
       }
-      if (s.startsWith("rowcount(")) {
+      if (s.startsWith("rowcount(") && s.matches(".*\\)/[0-9]+")) {
         // Example:
+        //  rowcount("store_sales")/5
+        final int slash = s.lastIndexOf('/');
+        final int divisor = Integer.parseInt(s.substring(slash + 1));
+        return transform(parse(s.substring(0, slash)),
+            new Function<String, String>() {
+              public String apply(String input) {
+                return Long.toString(Long.parseLong(input) / divisor);
+              }
+            });
+      }
+      if (s.startsWith("rowcount(")) {
+        // Examples:
+        //  rowcount("categories")
         //  rowcount("active_counties", "store")
         List<String> args = parseArgs(s, "rowcount(", ")");
-        return fixed("100"); // TODO:
+        final String name = unquote(args.get(0));
+        if (args.size() == 1) {
+          final Distribution distribution = Distribution.find(name);
+          if (distribution != null) {
+            return fixed(Integer.toString(distribution.size()));
+          }
+          return new RowCountGenerator(name.toLowerCase(Locale.ROOT), null);
+        }
+        assert args.size() == 2 : s;
+        return new RowCountGenerator(
+            unquote(args.get(1)).toLowerCase(Locale.ROOT),
+            activeDistribution(name));
       }
       if (s.startsWith("distmember(")) {
         // Example:
         //  distmember(fips_county, [COUNTY], 3)
         List<String> args = parseArgs(s, "distmember(", ")");
-        return fixed(s);
+        assert args.size() == 3 : s;
+        return new DistMemberGenerator(Distribution.get(args.get(0)),
+            parse(args.get(1)), Integer.parseInt(args.get(2)));
       }
       if (s.startsWith("random(")) {
         List<String> parts = parseArgs(s, "random(", ")");
@@ -311,22 +375,45 @@ public enum Query {
       }
     }
 
-    private static Generator text(final ImmutableList<Pair> map) {
+    /** Parses the name of a distribution, which is either an identifier or
+     * an expression that generates one. */
+    private static Generator distName(String s) {
+      if (s.contains("(")) {
+        return parse(s);
+      }
+      Distribution.get(s); // fail early if the distribution does not exist
+      return fixed(s);
+    }
+
+    /** Returns the distribution whose rows are indexed by an "active"
+     * row count, such as {@code rowcount("active_counties", "store")}. */
+    private static Distribution activeDistribution(String name) {
+      switch (name) {
+      case "active_cities":
+        return Distribution.get("cities");
+      case "active_counties":
+      case "active_states":
+        return Distribution.get("fips_county");
+      default:
+        throw new IllegalArgumentException("unknown row count " + name);
+      }
+    }
+
+    private static String unquote(String s) {
+      return s.startsWith("\"") ? s.substring(1, s.length() - 1) : s;
+    }
+
+    private static Generator text(final ImmutableList<Pair> list) {
+      final String[] strings = new String[list.size()];
+      final int[] weights = new int[list.size()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = list.get(i).s;
+        weights[i] = list.get(i).i;
+      }
+      final AliasTable aliasTable = AliasTable.of(weights);
       return new Generator() {
-        public String generate(Random random) {
-          int n = 0;
-          for (Pair pair : map) {
-            n += pair.i;
-          }
-          final int r = random.nextInt(n);
-          int x = 0;
-          for (Pair pair : map) {
-            x += pair.i;
-            if (x >= r) {
-              return pair.s;
-            }
-          }
-          throw new AssertionError();
+        String generate(Random random, Map<String, String> env) {
+          return strings[aliasTable.sample(random.nextDouble())];
         }
       };
     }
@@ -340,21 +427,147 @@ public enum Query {
     }
 
     /** Generator that generates the same string every time. */
-    private static class FixedGenerator implements Generator {
+    private static class FixedGenerator extends Generator {
       private final String s;
 
       public FixedGenerator(String s) {
         this.s = s;
       }
 
-      public String generate(Random random) {
+      String generate(Random random, Map<String, String> env) {
         return s;
       }
     }
 
+    /** Generator that returns the number of rows in a table at the scale
+     * factor of the query.
+     *
+     * <p>If {@code distribution} is not null, returns the number of rows of
+     * the distribution that the table uses, for example the number of
+     * counties that have a store; that is the number of rows in the table,
+     * but no more than the number of rows in the distribution. */
+    private static class RowCountGenerator extends Generator {
+      private final String tableName;
+      private final Distribution distribution;
+
+      RowCountGenerator(String tableName, Distribution distribution) {
+        this.tableName = tableName;
+        this.distribution = distribution;
+      }
+
+      String generate(Random random, Map<String, String> env) {
+        final double scaleFactor = Double.parseDouble(env.get(SCALE));
+        long rowCount = Scaling.rowCount(tableName, scaleFactor);
+        if (distribution != null) {
+          rowCount = Math.min(rowCount, distribution.size());
+        }
+        return Long.toString(rowCount);
+      }
+    }
+
+    /** Generator that returns the value of a variable defined earlier in
+     * the template. */
+    private static class ReferenceGenerator extends Generator {
+      private final String name;
+
+      public ReferenceGenerator(String name) {
+        this.name = name;
+      }
+
+      String generate(Random random, Map<String, String> env) {
+        final String value = env.get(name);
+        if (value == null) {
+          throw new IllegalStateException("variable " + name
+              + " is not defined");
+        }
+        return value;
+      }
+    }
+
+    /** Generator that picks a value from a distribution, with probability
+     * proportional to a weight set. */
+    private static class DistGenerator extends Generator {
+      private final Generator name;
+      private final int valueSet;
+      private final String weightSet;
+
+      public DistGenerator(Generator name, int valueSet, String weightSet) {
+        this.name = name;
+        this.valueSet = valueSet;
+        this.weightSet = weightSet;
+      }
+
+      String generate(Random random, Map<String, String> env) {
+        final Distribution distribution =
+            Distribution.get(name.generate(random, env));
+        return distribution.pickValue(valueSet,
+            distribution.weightSet(weightSet), random.nextDouble());
+      }
+    }
+
+    /** Generator that returns a given row of a distribution. */
+    private static class DistMemberGenerator extends Generator {
+      private final Distribution distribution;
+      private final Generator row;
+      private final int valueSet;
+
+      public DistMemberGenerator(Distribution distribution, Generator row,
+          int valueSet) {
+        this.distribution = distribution;
+        this.row = row;
+        this.valueSet = valueSet;
+      }
+
+      String generate(Random random, Map<String, String> env) {
+        final int i = Integer.parseInt(row.generate(random, env));
+        return distribution.getValue(i, valueSet);
+      }
+    }
+
+    /** Generator that generates a list of distinct values. Binding it to
+     * variable {@code NAME} defines {@code NAME.1} through {@code NAME.n};
+     * {@code NAME} itself has the first value. */
+    private static class UniqueListGenerator extends Generator {
+      /** Number of consecutive duplicates after which we give up. */
+      private static final int MAX_ATTEMPTS = 1000;
+
+      private final Generator generator;
+      private final int count;
+
+      public UniqueListGenerator(Generator generator, int count) {
+        this.generator = generator;
+        this.count = count;
+      }
+
+      String generate(Random random, Map<String, String> env) {
+        return generator.generate(random, env);
+      }
+
+      @Override void bind(String name, Random random,
+          Map<String, String> env) {
+        final Set<String> values = new LinkedHashSet<String>();
+        int attempts = 0;
+        while (values.size() < count) {
+          if (values.add(generator.generate(random, env))) {
+            attempts = 0;
+          } else if (++attempts > MAX_ATTEMPTS) {
+            throw new IllegalStateException("cannot generate " + count
+                + " distinct values for " + name);
+          }
+        }
+        int i = 0;
+        for (String value : values) {
+          if (i++ == 0) {
+            env.put(name, value);
+          }
+          env.put(name + "." + i, value);
+        }
+      }
+    }
+
     /** Generator that generates uniformly distributed values over a range.
      * The start and end points of the range are defined by generators. */
-    private static class UniformGenerator implements Generator {
+    private static class UniformGenerator extends Generator {
       private final Generator end;
       private final Generator start;
 
@@ -363,10 +576,10 @@ public enum Query {
         this.start = start;
       }
 
-      public String generate(Random random) {
-        final String startValue = start.generate(random);
+      String generate(Random random, Map<String, String> env) {
+        final String startValue = start.generate(random, env);
         final int startInt = Integer.parseInt(startValue);
-        final String endValue = end.generate(random);
+        final String endValue = end.generate(random, env);
         final int endInt = Integer.parseInt(endValue);
         int range = endInt - startInt + 1;
         return Integer.toString(startInt + random.nextInt(range));
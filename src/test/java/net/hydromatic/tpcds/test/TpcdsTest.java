@@ -17,23 +17,85 @@
 */
 package net.hydromatic.tpcds.test;
 
+import net.hydromatic.tpcds.AliasTable;
+import net.hydromatic.tpcds.BatchCursor;
+import net.hydromatic.tpcds.BatchSink;
+import net.hydromatic.tpcds.BusinessKey;
 import net.hydromatic.tpcds.CallCenter;
+import net.hydromatic.tpcds.ColumnBatch;
+import net.hydromatic.tpcds.CustomerAddress;
+import net.hydromatic.tpcds.CustomerDemographic;
+import net.hydromatic.tpcds.DateDim;
+import net.hydromatic.tpcds.Decimals;
+import net.hydromatic.tpcds.DimensionCache;
+import net.hydromatic.tpcds.Distribution;
 import net.hydromatic.tpcds.Dsgen;
+import net.hydromatic.tpcds.HouseholdDemographic;
+import net.hydromatic.tpcds.Inventory;
+import net.hydromatic.tpcds.Item;
+import net.hydromatic.tpcds.OffHeapTable;
+import net.hydromatic.tpcds.PackedRow;
+import net.hydromatic.tpcds.ParallelGenerator;
+import net.hydromatic.tpcds.Permutation;
+import net.hydromatic.tpcds.RandomNumberStream;
+import net.hydromatic.tpcds.RefreshSet;
+import net.hydromatic.tpcds.RowBuffer;
+import net.hydromatic.tpcds.RowCursor;
+import net.hydromatic.tpcds.RowSink;
+import net.hydromatic.tpcds.ScdGenerator;
+import net.hydromatic.tpcds.StoreSale;
+import net.hydromatic.tpcds.TimeDim;
+import net.hydromatic.tpcds.TpcdsEntity;
 import net.hydromatic.tpcds.TpcdsTable;
+import net.hydromatic.tpcds.Validator;
+import net.hydromatic.tpcds.Warehouse;
+import net.hydromatic.tpcds.WebPage;
 import net.hydromatic.tpcds.query.Query;
 
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /** Unit test for TPC-DS. */
 public class TpcdsTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private <E> void assertRowCount(Iterable<E> generator, int expectedRowCount) {
     int rowCount = 0;
     for (E row : generator) {
@@ -42,6 +104,903 @@ public class TpcdsTest {
     assertThat(rowCount, equalTo(expectedRowCount));
   }
 
+  private static <E> List<E> toList(Iterable<E> iterable) {
+    final List<E> list = new ArrayList<E>();
+    for (E e : iterable) {
+      list.add(e);
+    }
+    return list;
+  }
+
+  /** Table whose rows are their own row numbers; 1,000 rows per unit of
+   * scale factor. */
+  private static final TpcdsTable<Long> ROW_NUMBERS =
+      new TpcdsTable<Long>("row_numbers", "rn", ImmutableList.of()) {
+        @Override public long getRowCount(double scaleFactor) {
+          return (long) (scaleFactor * 1000);
+        }
+
+        @Override public Iterable<Long> createGenerator(double scaleFactor,
+            int part, int partCount) {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override public Iterable<Long> createRangeGenerator(
+            double scaleFactor, long firstRow, long rowCount) {
+          return ContiguousSet.create(
+              Range.closedOpen(firstRow, firstRow + rowCount),
+              DiscreteDomain.longs());
+        }
+
+        @Override public void builder(Dsgen dsgen) {}
+
+        @Override public void loader1() {}
+
+        @Override public void loader2() {}
+      };
+
+  @Test public void testParallelGenerator() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final List<Long> expected =
+        toList(ROW_NUMBERS.createRangeGenerator(10d, 0, 10000));
+    for (int chunkSize : new int[] {1, 7, 1000, 100000}) {
+      final ParallelGenerator<Long> generator =
+          ParallelGenerator.of(ROW_NUMBERS, 10d)
+              .withChunkSize(chunkSize)
+              .withPool(pool);
+      assertThat(toList(generator), equalTo(expected));
+    }
+
+    // Parts, concatenated, are the same as the whole table
+    final List<Long> parts = new ArrayList<Long>();
+    for (int part = 1; part <= 3; part++) {
+      parts.addAll(
+          toList(
+              ParallelGenerator.of(ROW_NUMBERS, 10d)
+                  .withChunkSize(999)
+                  .withPool(pool)
+                  .withPart(part, 3)));
+    }
+    assertThat(parts, equalTo(expected));
+    pool.shutdown();
+  }
+
+  @Test public void testRowCount() {
+    assertThat(TpcdsTable.STORE_SALES.getRowCount(1d), equalTo(2880404L));
+    assertThat(TpcdsTable.DATE_DIM.getRowCount(100d), equalTo(73049L));
+    assertThat(TpcdsTable.INVENTORY.getRowCount(1d), equalTo(11745000L));
+    assertThat(TpcdsTable.CALL_CENTER.getRowCount(0.01d), equalTo(1L));
+  }
+
+  /** Tests key ranges and byte counts, which are computed without
+   * generating data. */
+  @Test public void testKeyRangeAndByteCount() {
+    final TpcdsTable<?> table = TpcdsTable.CUSTOMER;
+    final long rowCount = table.getRowCount(1);
+    assertThat(rowCount, equalTo(100000L));
+    long next = 1;
+    long bytes = 0;
+    for (int part = 1; part <= 7; part++) {
+      final Range<Long> range = table.getKeyRange(1, part, 7);
+      assertThat(range.lowerEndpoint(), equalTo(next));
+      next = range.upperEndpoint();
+      bytes += table.getByteCount(1, part, 7);
+    }
+    assertThat(next, equalTo(rowCount + 1));
+    assertThat(bytes, equalTo(table.getByteCount(1)));
+    assertThat(TpcdsTable.STORE_SALES.getByteCount(1) > 300000000L,
+        is(true));
+    assertThat(TpcdsTable.STORE_SALES.getByteCount(100),
+        equalTo(287997024L * 135));
+
+    // Parts of a slowly changing dimension start on whole revision chains,
+    // and their byte counts follow their row counts.
+    final TpcdsTable<?> item = TpcdsTable.ITEM;
+    long itemBytes = 0;
+    long itemRows = 0;
+    for (int part = 1; part <= 7; part++) {
+      final long partRows = item.getPartRowCount(1, part, 7);
+      assertThat(item.getByteCount(1, part, 7) * item.getRowCount(1),
+          equalTo(partRows * item.getByteCount(1)));
+      final long partFirstRow = item.getPartFirstRow(1, part, 7);
+      assertThat(ScdGenerator.keyFirstRow(partFirstRow),
+          equalTo(partFirstRow));
+      itemBytes += item.getByteCount(1, part, 7);
+      itemRows += partRows;
+    }
+    assertThat(itemRows, equalTo(item.getRowCount(1)));
+    assertThat(itemBytes, equalTo(item.getByteCount(1)));
+
+    // date_dim's keys are julian days; time_dim's are seconds from 0.
+    assertThat(TpcdsTable.DATE_DIM.getKeyRange(1, 1, 1),
+        equalTo(Range.closedOpen(2415022L, 2488071L)));
+    assertThat(TpcdsTable.TIME_DIM.getKeyRange(1, 1, 1),
+        equalTo(Range.closedOpen(0L, 86400L)));
+    for (TpcdsTable<?> t
+        : Arrays.asList(TpcdsTable.DATE_DIM, TpcdsTable.TIME_DIM)) {
+      final Range<Long> range = t.getKeyRange(1, 3, 4);
+      final RowCursor cursor = t.createCursor(1,
+          t.getPartFirstRow(1, 3, 4), t.getPartRowCount(1, 3, 4));
+      assertThat(cursor.advance(), is(true));
+      assertThat(cursor.getLong(0), equalTo(range.lowerEndpoint()));
+      long last = -1;
+      while (cursor.advance()) {
+        last = cursor.getLong(0);
+      }
+      assertThat(last, equalTo(range.upperEndpoint() - 1));
+    }
+  }
+
+  /** Tests that a stream that skips ahead to row <i>n</i> is in the same
+   * state as a stream that generates rows 0 to <i>n</i> &minus; 1. */
+  @Test public void testRandomNumberStreamSkip() {
+    final RandomNumberStream stream = RandomNumberStream.forColumn(7, 3);
+    for (int row = 0; row < 1000; row++) {
+      // Use between 0 and 3 seeds; rowStop discards the rest.
+      for (int i = 0; i < row % 4; i++) {
+        stream.next();
+      }
+      stream.rowStop();
+    }
+    final RandomNumberStream stream2 = RandomNumberStream.forColumn(7, 3);
+    stream2.skipRows(1000);
+    for (int i = 0; i < 10; i++) {
+      assertThat(stream2.next(), equalTo(stream.next()));
+    }
+  }
+
+  @Test public void testInventoryParts() {
+    final double scaleFactor = 0.01d;
+    final List<String> expected = new ArrayList<String>();
+    for (Inventory inventory
+        : TpcdsTable.INVENTORY.createGenerator(scaleFactor, 1, 1)) {
+      expected.add(inventory.toLine());
+    }
+    assertThat((long) expected.size(),
+        equalTo(TpcdsTable.INVENTORY.getRowCount(scaleFactor)));
+    assertThat(expected.get(0), equalTo("2450815|1|1|412|"));
+
+    final List<String> parts = new ArrayList<String>();
+    for (int part = 1; part <= 7; part++) {
+      for (Inventory inventory
+          : TpcdsTable.INVENTORY.createGenerator(scaleFactor, part, 7)) {
+        parts.add(inventory.toLine());
+      }
+    }
+    assertThat(parts, equalTo(expected));
+
+    final List<String> parallel = new ArrayList<String>();
+    for (Inventory inventory
+        : ParallelGenerator.of(TpcdsTable.INVENTORY, scaleFactor)
+            .withChunkSize(1000)) {
+      parallel.add(inventory.toLine());
+    }
+    assertThat(parallel, equalTo(expected));
+  }
+
+  /** Tests that a cursor returns the same values as the entities. */
+  @Test public void testInventoryCursor() {
+    final double scaleFactor = 0.01d;
+    final long firstRow = 5000;
+    final int rowCount = 3000;
+    final RowCursor cursor =
+        TpcdsTable.INVENTORY.createCursor(scaleFactor, firstRow, rowCount);
+    int n = 0;
+    for (Inventory inventory : TpcdsTable.INVENTORY.createRangeGenerator(
+        scaleFactor, firstRow, rowCount)) {
+      assertThat(cursor.advance(), equalTo(true));
+      assertThat(cursor.getRowNumber(), equalTo(firstRow + n++));
+      assertThat(cursor.getInt(Inventory.Column.DATE_SK.ordinal()),
+          equalTo(inventory.dateSk));
+      assertThat(cursor.getInt(Inventory.Column.ITEM_SK.ordinal()),
+          equalTo(inventory.itemSk));
+      assertThat(cursor.getLong(Inventory.Column.WAREHOUSE_SK.ordinal()),
+          equalTo((long) inventory.warehouseSk));
+      assertThat(cursor.isNull(Inventory.Column.QUANTITY_ON_HAND.ordinal()),
+          equalTo(inventory.quantityOnHand == null));
+      final Inventory.Column q = Inventory.Column.QUANTITY_ON_HAND;
+      if (inventory.quantityOnHand != null) {
+        assertThat(
+            cursor.getInt(Inventory.Column.QUANTITY_ON_HAND.ordinal()),
+            equalTo((int) inventory.quantityOnHand));
+        assertThat(q.getString(inventory),
+            equalTo(String.valueOf(inventory.quantityOnHand)));
+      } else {
+        assertThat(q.getString(inventory), nullValue());
+        assertThat(q.getLong(inventory), equalTo(0L));
+      }
+    }
+    assertThat(n, equalTo(rowCount));
+    assertThat(cursor.advance(), equalTo(false));
+  }
+
+  /** Tests that each inventory row refers to the revision of its item that
+   * is current on the inventory date. */
+  @Test public void testInventoryItemRevision() {
+    final double scaleFactor = 0.01d;
+    final Map<Integer, Item> items = new HashMap<Integer, Item>();
+    for (Item item : TpcdsTable.ITEM.createGenerator(scaleFactor, 1, 1)) {
+      items.put(item.itemSk, item);
+    }
+    final Set<Integer> revisionsUsed = new HashSet<Integer>();
+    for (Inventory inventory : TpcdsTable.INVENTORY.createGenerator(
+        scaleFactor, 1, 1)) {
+      final Item item = items.get(inventory.itemSk);
+      final String date = DateDim.Generator.formatDate(inventory.dateSk);
+      if (item.recStartDate != null) {
+        assertThat(item.recStartDate.toString().compareTo(date) <= 0,
+            is(true));
+      }
+      if (item.recEndDate != null) {
+        assertThat(item.recEndDate.toString().compareTo(date) >= 0,
+            is(true));
+      }
+      revisionsUsed.add(inventory.itemSk % 6);
+    }
+    // Inventory spans several years, so it refers to every revision.
+    assertThat(revisionsUsed.size(), equalTo(6));
+  }
+
+  /** Tests that batches contain the same values as a cursor. */
+  @Test public void testInventoryBatch() {
+    final double scaleFactor = 0.01d;
+    final long firstRow = 9876;
+    final int rowCount = 5000;
+    final RowCursor cursor =
+        TpcdsTable.INVENTORY.createCursor(scaleFactor, firstRow, rowCount);
+    final BatchCursor batchCursor =
+        TpcdsTable.INVENTORY.createBatchCursor(scaleFactor, firstRow,
+            rowCount);
+    final ColumnBatch batch = TpcdsTable.INVENTORY.createBatch(1000 - 1);
+    final int columnCount = TpcdsTable.INVENTORY.getColumns().size();
+    int n = 0;
+    while (batchCursor.next(batch)) {
+      assertThat(batch.getFirstRow(), equalTo(firstRow + n));
+      for (int i = 0; i < batch.getSize(); i++) {
+        assertThat(cursor.advance(), equalTo(true));
+        for (int c = 0; c < columnCount; c++) {
+          assertThat(batch.isNull(c, i), equalTo(cursor.isNull(c)));
+          if (!cursor.isNull(c)) {
+            assertThat(batch.getInts(c)[i], equalTo(cursor.getInt(c)));
+          }
+        }
+        ++n;
+      }
+    }
+    assertThat(n, equalTo(rowCount));
+    assertThat(batch.getSize(), equalTo(0));
+  }
+
+  /** Tests that the demographics tables are the cross product of their
+   * attributes, and that rows decoded directly, by cursor and in batches
+   * agree. */
+  @Test public void testDemographics() {
+    assertThat((long) CustomerDemographic.Generator.ROW_COUNT,
+        equalTo(TpcdsTable.CUSTOMER_DEMOGRAPHICS.getRowCount(1)));
+    assertThat((long) HouseholdDemographic.Generator.ROW_COUNT,
+        equalTo(TpcdsTable.HOUSEHOLD_DEMOGRAPHICS.getRowCount(1)));
+
+    assertThat(CustomerDemographic.Generator.get(1).toLine(),
+        equalTo("1|M|M|Primary|500|Good|0|0|0|"));
+    assertThat(CustomerDemographic.Generator.get(1920800).toLine(),
+        equalTo("1920800|F|U|Unknown|10000|Unknown|6|6|6|"));
+    assertThat(HouseholdDemographic.Generator.get(7200).toLine(),
+        equalTo("7200|20|Unknown|9|4|"));
+    for (int key : new int[] {0, -1, 1920801}) {
+      try {
+        final CustomerDemographic cd = CustomerDemographic.Generator.get(key);
+        fail("expected error, got " + cd);
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(),
+            equalTo("key " + key + " out of range 1..1920800"));
+      }
+    }
+    for (int key : new int[] {0, 7201}) {
+      try {
+        final HouseholdDemographic hd =
+            HouseholdDemographic.Generator.get(key);
+        fail("expected error, got " + hd);
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(),
+            equalTo("key " + key + " out of range 1..7200"));
+      }
+    }
+
+    final Set<String> distinct = new HashSet<String>();
+    int demoSk = 1234567;
+    for (CustomerDemographic cd : TpcdsTable.CUSTOMER_DEMOGRAPHICS
+        .createRangeGenerator(1, demoSk - 1, 2000)) {
+      assertThat(cd.toLine(),
+          equalTo(CustomerDemographic.Generator.get(demoSk++).toLine()));
+      distinct.add(cd.toLine().substring(cd.toLine().indexOf('|')));
+    }
+    assertThat(distinct.size(), equalTo(2000));
+
+    final BatchCursor batchCursor =
+        TpcdsTable.CUSTOMER_DEMOGRAPHICS.createBatchCursor(1, 1234566, 2000);
+    final ColumnBatch batch =
+        TpcdsTable.CUSTOMER_DEMOGRAPHICS.createBatch(300);
+    final RowCursor cursor =
+        TpcdsTable.CUSTOMER_DEMOGRAPHICS.createCursor(1, 1234566, 2000);
+    while (batchCursor.next(batch)) {
+      for (int i = 0; i < batch.getSize(); i++) {
+        assertThat(cursor.advance(), is(true));
+        assertThat(batch.getInts(0)[i], equalTo(cursor.getInt(0)));
+        assertThat(batch.getStrings(3)[i],
+            equalTo(cursor.getString(3).toString()));
+        assertThat(batch.getInts(4)[i], equalTo(cursor.getInt(4)));
+        assertThat(batch.getInts(8)[i], equalTo(cursor.getInt(8)));
+      }
+    }
+    assertThat(cursor.advance(), is(false));
+  }
+
+  /** Tests the precomputed date and time dimensions. */
+  @Test public void testDateAndTimeDim() {
+    assertThat((long) DateDim.Generator.ROW_COUNT,
+        equalTo(TpcdsTable.DATE_DIM.getRowCount(1)));
+    assertThat((long) TimeDim.Generator.ROW_COUNT,
+        equalTo(TpcdsTable.TIME_DIM.getRowCount(1)));
+    assertThat(DateDim.Generator.get(2415022).toLine(),
+        equalTo("2415022|AAAAAAAAOKJNECAA|1900-01-02|0|1|1|1900|2|1|2|1|"
+            + "1900|1|1|Tuesday|1900Q1|N|N|Y|2415021|2415051|2414657|"
+            + "2414930|N|N|N|N|N|"));
+    final DateDim today =
+        DateDim.Generator.get(DateDim.Generator.CURRENT_DATE_SK);
+    assertThat(today.date.toString(), equalTo("2003-01-08"));
+    assertThat(today.currentDay + today.currentMonth + today.currentYear,
+        equalTo("YYY"));
+    final DateDim millennium = DateDim.Generator.get(2451545);
+    assertThat(millennium.date.toString(), equalTo("2000-01-01"));
+    assertThat(millennium.dayName, equalTo("Saturday"));
+    assertThat(millennium.weekend, equalTo("Y"));
+    assertThat(millennium.holiday, equalTo("Y"));
+    assertThat(DateDim.Generator.getInt(DateDim.Generator.YEAR, 2488070),
+        equalTo(2100));
+    assertThat(DateDim.Generator.get(2451604).sameDayLy, equalTo(2451238));
+
+    assertThat(toList(TpcdsTable.TIME_DIM.createRangeGenerator(1, 45296, 1))
+        .get(0).toLine(),
+        equalTo("45296|AAAAAAAAAPALAAAA|45296|12|34|56|PM|first|afternoon|"
+            + "lunch|"));
+    assertThat(toList(TpcdsTable.TIME_DIM.createRangeGenerator(1, 0, 1))
+        .get(0).toLine(),
+        equalTo("0|AAAAAAAAAAAAAAAA|0|0|0|0|AM|third|night||"));
+
+    // Batches are the same as rows.
+    for (TpcdsTable<?> table
+        : ImmutableList.of(TpcdsTable.DATE_DIM, TpcdsTable.TIME_DIM)) {
+      final int columnCount = table.getColumns().size();
+      final RowCursor cursor = table.createCursor(1, 1000, 500);
+      final BatchCursor batchCursor = table.createBatchCursor(1, 1000, 500);
+      final ColumnBatch batch = table.createBatch(200);
+      while (batchCursor.next(batch)) {
+        for (int i = 0; i < batch.getSize(); i++) {
+          assertThat(cursor.advance(), is(true));
+          for (int c = 0; c < columnCount; c++) {
+            assertThat(batch.isNull(c, i), is(cursor.isNull(c)));
+            if (cursor.isNull(c)) {
+              continue;
+            }
+            if (batch.kinds.get(c) == ColumnBatch.Kind.STRING) {
+              assertThat(batch.getStrings(c)[i],
+                  equalTo(cursor.getString(c).toString()));
+            } else {
+              assertThat(batch.getInts(c)[i], equalTo(cursor.getInt(c)));
+            }
+          }
+        }
+      }
+      assertThat(cursor.advance(), is(false));
+    }
+  }
+
+  /** Tests the slowly changing dimensions {@code item} and
+   * {@code web_page}: revision chains, and parts that split on business
+   * keys. */
+  @Test public void testRevisions() {
+    final List<Item> items =
+        toList(TpcdsTable.ITEM.createRangeGenerator(1, 0, 6));
+    assertThat(items.get(0).itemId, equalTo("AAAAAAAABAAAAAAA"));
+    assertThat(items.get(0).productName, equalTo("ought"));
+    final String[] dates = {
+      "1997-10-27|",
+      "1997-10-27|2000-10-26",
+      "2000-10-27|",
+      "1997-10-27|1999-10-27",
+      "1999-10-28|2001-10-26",
+      "2001-10-27|",
+    };
+    final String[] ids = {
+      "AAAAAAAABAAAAAAA", "AAAAAAAACAAAAAAA", "AAAAAAAACAAAAAAA",
+      "AAAAAAAADAAAAAAA", "AAAAAAAADAAAAAAA", "AAAAAAAADAAAAAAA",
+    };
+    for (int i = 0; i < 6; i++) {
+      final Item item = items.get(i);
+      assertThat(item.itemSk, equalTo(i + 1));
+      assertThat(item.itemId, equalTo(ids[i]));
+      assertThat(item.recStartDate + "|"
+          + (item.recEndDate == null ? "" : item.recEndDate),
+          equalTo(dates[i]));
+      assertThat(item.wholesaleCost <= item.currentPrice, is(true));
+    }
+    // Revisions of a key share its product name.
+    assertThat(items.get(2).productName, equalTo(items.get(1).productName));
+    assertThat(items.get(5).productName, equalTo(items.get(3).productName));
+
+    // Starting in the middle of a chain gives the same rows as generating
+    // the chain from its start.
+    for (TpcdsTable<?> table
+        : ImmutableList.of(TpcdsTable.ITEM, TpcdsTable.WEB_PAGE)) {
+      final List<String> lines = new ArrayList<String>();
+      for (Object o : table.createRangeGenerator(1, 0, 60)) {
+        lines.add(((TpcdsEntity) o).toLine());
+      }
+      for (int first : new int[] {2, 4, 5, 13}) {
+        int i = first;
+        for (Object o : table.createRangeGenerator(1, first, 60 - first)) {
+          assertThat(((TpcdsEntity) o).toLine(), equalTo(lines.get(i++)));
+        }
+        assertThat(i, equalTo(60));
+      }
+    }
+
+    // Parts start on a business key boundary and cover the table.
+    final long rowCount = TpcdsTable.WEB_PAGE.getRowCount(10);
+    long next = 0;
+    for (int part = 1; part <= 7; part++) {
+      final long first = TpcdsTable.WEB_PAGE.getPartFirstRow(10, part, 7);
+      assertThat(first, equalTo(next));
+      assertThat(first % 6 == 0 || first % 6 == 1 || first % 6 == 3,
+          is(true));
+      next = first + TpcdsTable.WEB_PAGE.getPartRowCount(10, part, 7);
+    }
+    assertThat(next, equalTo(rowCount));
+    int count = 0;
+    for (WebPage webPage : TpcdsTable.WEB_PAGE.createGenerator(10, 3, 7)) {
+      if (count++ == 0) {
+        assertThat(webPage.recEndDate == null
+            || webPage.recStartDate.toString().equals("1997-09-03"),
+            is(true));
+      }
+      assertThat(webPage.url, equalTo("http://www.foo.com"));
+      if ("N".equals(webPage.autogenFlag)) {
+        assertThat(webPage.customerSk, nullValue());
+      }
+    }
+    assertThat((long) count,
+        equalTo(TpcdsTable.WEB_PAGE.getPartRowCount(10, 3, 7)));
+  }
+
+  /** Tests that nulls are injected into a proportion of rows, only into
+   * nullable columns, and the same way by cursors and batches. */
+  @Test public void testNulls() {
+    final TpcdsTable<?> table = TpcdsTable.STORE_SALES;
+    assertThat(table.nNullPct, equalTo(900));
+    assertThat(table.kNotNullBitMap, equalTo(0x204L));
+    assertThat(table.kNullBitMap, equalTo((1L << 23) - 1 - 0x204L));
+    assertThat(TpcdsTable.DATE_DIM.nNullPct, equalTo(0));
+    // Primitive columns are never null.
+    assertThat(TpcdsTable.ITEM.kNotNullBitMap, equalTo(0x0BL));
+
+    final int rowCount = 20000;
+    final RowCursor cursor = table.createCursor(1, 1000, rowCount);
+    final BatchCursor batchCursor = table.createBatchCursor(1, 1000, rowCount);
+    final ColumnBatch batch = table.createBatch(1024);
+    final int columnCount = table.getColumns().size();
+    int rowsWithNulls = 0;
+    while (batchCursor.next(batch)) {
+      for (int i = 0; i < batch.getSize(); i++) {
+        assertThat(cursor.advance(), is(true));
+        boolean hasNull = false;
+        for (int c = 0; c < columnCount; c++) {
+          assertThat(batch.isNull(c, i), is(cursor.isNull(c)));
+          hasNull |= cursor.isNull(c);
+        }
+        assertThat(cursor.isNull(2) || cursor.isNull(9), is(false));
+        if (hasNull) {
+          ++rowsWithNulls;
+        }
+      }
+    }
+    assertThat(cursor.advance(), is(false));
+    // About 9% of rows have nulls.
+    assertThat(rowsWithNulls > rowCount * 7 / 100, is(true));
+    assertThat(rowsWithNulls < rowCount * 11 / 100, is(true));
+  }
+
+  /** Tests that a permutation is a bijection, that {@link
+   * Permutation#indexOf} inverts it, and that it works on key spaces too
+   * large to materialize. */
+  @Test public void testPermutation() {
+    for (int size : new int[] {1, 2, 3, 7, 1000, 65537}) {
+      final Permutation permutation = Permutation.of(size, 12345L);
+      final BitSet seen = new BitSet(size);
+      int fixedPoints = 0;
+      for (int i = 0; i < size; i++) {
+        final long value = permutation.get(i);
+        assertThat(value >= 0 && value < size, is(true));
+        assertThat(seen.get((int) value), is(false));
+        seen.set((int) value);
+        assertThat(permutation.indexOf(value), equalTo((long) i));
+        if (value == i) {
+          ++fixedPoints;
+        }
+      }
+      assertThat(seen.cardinality(), equalTo(size));
+      assertThat(fixedPoints < 10 || size < 10, is(true));
+    }
+    assertThat(Permutation.of(1000, 1L).get(17),
+        not(equalTo(Permutation.of(1000, 2L).get(17))));
+
+    final long size = 300000000000L;
+    final Permutation permutation = Permutation.of(size, 42L);
+    for (long i = 0; i < size; i += size / 1000 + 7) {
+      final long value = permutation.get(i);
+      assertThat(value >= 0 && value < size, is(true));
+      assertThat(permutation.indexOf(value), equalTo(i));
+    }
+  }
+
+  /** Tests that item descriptions are sentences from the grammar, of
+   * bounded length, and that revisions which keep a description keep its
+   * text. */
+  @Test public void testText() {
+    final List<Item> items =
+        toList(TpcdsTable.ITEM.createRangeGenerator(1, 0, 600));
+    int kept = 0;
+    Item previous = null;
+    for (Item item : items) {
+      final String desc = item.itemDesc;
+      if (desc != null) {
+        assertThat(desc.length() >= 1 && desc.length() <= 200, is(true));
+        assertThat(Character.isUpperCase(desc.charAt(0)), is(true));
+        assertThat(desc, not(containsString("  ")));
+        if (previous != null
+            && previous.itemId.equals(item.itemId)
+            && desc.equals(previous.itemDesc)) {
+          ++kept;
+        }
+      }
+      previous = item;
+    }
+    assertThat(kept > 0, is(true));
+    // Generating the same rows again gives the same text.
+    final List<Item> items2 =
+        toList(TpcdsTable.ITEM.createRangeGenerator(1, 100, 50));
+    for (int i = 0; i < 50; i++) {
+      assertThat(items2.get(i).toLine(), equalTo(items.get(100 + i).toLine()));
+    }
+  }
+
+  /** Tests the address block that customer_address and warehouse share. */
+  @Test public void testAddress() {
+    final Distribution fips = Distribution.get("fips_county");
+    final List<CustomerAddress> addresses =
+        toList(TpcdsTable.CUSTOMER_ADDRESS.createRangeGenerator(1, 0, 1000));
+    assertThat(addresses.get(0).addressId, equalTo("AAAAAAAABAAAAAAA"));
+    for (CustomerAddress address : addresses) {
+      if (address.country != null) {
+        assertThat(address.country, equalTo("United States"));
+      }
+      if (address.zip != null) {
+        assertThat(address.zip.matches("[0-9]{5}"), is(true));
+      }
+      if (address.county != null && address.state != null) {
+        final int row = fips.indexOf(address.county, 2);
+        assertThat(row > 0, is(true));
+        // Some county names occur in more than one state.
+        boolean found = false;
+        for (int i = row; i <= fips.size(); i++) {
+          if (fips.getValue(i, 2).equals(address.county)
+              && fips.getValue(i, 3).equals(address.state)) {
+            found = true;
+            assertThat(address.gmtOffset == null
+                || address.gmtOffset == fips.getIntValue(i, 6), is(true));
+          }
+        }
+        assertThat(found, is(true));
+      }
+    }
+    // Starting part way through gives the same rows.
+    final List<CustomerAddress> addresses2 =
+        toList(TpcdsTable.CUSTOMER_ADDRESS.createRangeGenerator(1, 500, 10));
+    for (int i = 0; i < 10; i++) {
+      assertThat(addresses2.get(i).toLine(),
+          equalTo(addresses.get(500 + i).toLine()));
+    }
+
+    final List<Warehouse> warehouses =
+        toList(TpcdsTable.WAREHOUSE.createGenerator(1, 1, 1));
+    assertThat(warehouses.size(), equalTo(5));
+    for (Warehouse warehouse : warehouses) {
+      assertThat(warehouse.warehouseSqFt == null
+          || warehouse.warehouseSqFt >= 50000
+          && warehouse.warehouseSqFt <= 1000000, is(true));
+      assertThat(warehouse.warehouseName.length() >= 10
+          && warehouse.warehouseName.length() <= 20, is(true));
+    }
+  }
+
+  /** Tests formatting julian day numbers as ISO 8601 text, in and out of
+   * the range of date_dim. */
+  @Test public void testFormatDate() {
+    final int first = DateDim.Generator.FIRST_DATE_SK;
+    final int last = first + DateDim.Generator.ROW_COUNT - 1;
+    assertThat(DateDim.Generator.formatDate(first), equalTo("1900-01-02"));
+    assertThat(DateDim.Generator.formatDate(last), equalTo("2100-01-01"));
+    assertThat(DateDim.Generator.formatDate(first - 2),
+        equalTo("1899-12-31"));
+    assertThat(DateDim.Generator.formatDate(last + 1),
+        equalTo("2100-01-02"));
+    assertThat(DateDim.Generator.formatDate(2451604),
+        equalTo("2000-02-29"));
+
+    final byte[] bytes = new byte[DateDim.Generator.DATE_LENGTH + 2];
+    final char[] chars = new char[DateDim.Generator.DATE_LENGTH + 2];
+    for (DateDim dateDim
+        : TpcdsTable.DATE_DIM.createRangeGenerator(1, 36000, 1000)) {
+      final String expected = String.format("%04d-%02d-%02d", dateDim.year,
+          dateDim.moy, dateDim.dom);
+      assertThat(dateDim.date.toString(), equalTo(expected));
+      DateDim.Generator.formatDate(dateDim.dateSk, bytes, 1);
+      assertThat(new String(bytes, 1, DateDim.Generator.DATE_LENGTH,
+          StandardCharsets.US_ASCII), equalTo(expected));
+      DateDim.Generator.formatDate(dateDim.dateSk, chars, 2);
+      assertThat(new String(chars, 2, DateDim.Generator.DATE_LENGTH),
+          equalTo(expected));
+    }
+  }
+
+  /** Tests exact decimal arithmetic and formatting. */
+  @Test public void testDecimals() {
+    final long[] values = {
+      0, 5, -5, 34, 100, 1234, -1234, 9999999, 100000000, Long.MAX_VALUE,
+      Long.MIN_VALUE,
+    };
+    final byte[] bytes = new byte[Decimals.MAX_LENGTH + 1];
+    final char[] chars = new char[Decimals.MAX_LENGTH + 1];
+    for (long value : values) {
+      final String expected =
+          new BigDecimal(BigInteger.valueOf(value), 2).toPlainString();
+      assertThat(Decimals.toString(value), equalTo(expected));
+      final int n = Decimals.format(value, bytes, 1);
+      assertThat(new String(bytes, 1, n, StandardCharsets.US_ASCII),
+          equalTo(expected));
+      assertThat(Decimals.format(value, chars, 0), equalTo(n));
+      assertThat(new String(chars, 0, n), equalTo(expected));
+    }
+    assertThat(Decimals.percent(1999, 50), equalTo(1000L));
+    assertThat(Decimals.percent(1998, 50), equalTo(999L));
+    assertThat(Decimals.fraction(1000, 1, 3), equalTo(333L));
+
+    // Sale amounts are consistent to the cent.
+    for (StoreSale sale
+        : TpcdsTable.STORE_SALES.createRangeGenerator(1, 0, 500)) {
+      if (sale.netPaid != null && sale.extTax != null
+          && sale.netPaidIncTax != null) {
+        assertThat(Math.round(sale.netPaidIncTax * 100d),
+            equalTo(Math.round(sale.netPaid * 100d)
+                + Math.round(sale.extTax * 100d)));
+      }
+    }
+  }
+
+  /** Tests that packed rows hold the same values as entities. */
+  @Test public void testPackedRows() {
+    for (TpcdsTable<?> table : ImmutableList.of(TpcdsTable.STORE_SALES,
+        TpcdsTable.WEB_SALES, TpcdsTable.INVENTORY, TpcdsTable.ITEM,
+        TpcdsTable.DATE_DIM, TpcdsTable.CUSTOMER_ADDRESS)) {
+      final List<String> lines = new ArrayList<String>();
+      for (Object o : table.createRangeGenerator(1, 100, 300)) {
+        lines.add(((TpcdsEntity) o).toLine());
+      }
+      int i = 0;
+      for (PackedRow row : table.createPackedGenerator(1, 100, 300)) {
+        assertThat(row.getColumnCount(), equalTo(table.getColumns().size()));
+        assertThat(row.toLine(), equalTo(lines.get(i++)));
+      }
+      assertThat(i, equalTo(300));
+    }
+
+    final RowCursor cursor = TpcdsTable.STORE_SALES.createCursor(1, 0, 100);
+    for (PackedRow row : TpcdsTable.STORE_SALES.createPackedGenerator(1, 0,
+        100)) {
+      assertThat(cursor.advance(), is(true));
+      for (int c = 0; c < row.getColumnCount(); c++) {
+        assertThat(row.isNull(c), is(cursor.isNull(c)));
+        assertThat(row.getLong(c), equalTo(cursor.getLong(c)));
+      }
+    }
+  }
+
+  /** Tests materializing tables off-heap and reading them through
+   * flyweight views. */
+  @Test public void testOffHeapTable() {
+    for (TpcdsTable<?> table : ImmutableList.of(TpcdsTable.STORE_SALES,
+        TpcdsTable.CATALOG_SALES, TpcdsTable.ITEM, TpcdsTable.DATE_DIM,
+        TpcdsTable.CUSTOMER_ADDRESS, TpcdsTable.WEB_PAGE)) {
+      final List<String> lines = new ArrayList<String>();
+      for (Object o : table.createRangeGenerator(1, 50, 2000)) {
+        lines.add(((TpcdsEntity) o).toLine());
+      }
+      final OffHeapTable offHeapTable = table.materialize(1, 50, 2000);
+      assertThat(offHeapTable.getRowCount(), equalTo(2000L));
+      final OffHeapTable.View view = offHeapTable.get(0);
+      for (int i = 0; i < 2000; i++) {
+        assertThat(view.moveTo(i).toLine(), equalTo(lines.get(i)));
+      }
+      // Random access, backwards.
+      for (int i = 1999; i >= 0; i -= 7) {
+        assertThat(offHeapTable.get(i).toLine(), equalTo(lines.get(i)));
+      }
+      try {
+        view.moveTo(2000);
+        fail("expected error");
+      } catch (IndexOutOfBoundsException e) {
+        assertThat(e.getMessage(), equalTo("row 2000 out of range 0..1999"));
+      }
+    }
+
+    final List<Item> items =
+        toList(TpcdsTable.ITEM.createRangeGenerator(1, 0, 100));
+    final OffHeapTable.View view = TpcdsTable.ITEM.materialize(1, 0, 100)
+        .get(0);
+    for (int i = 0; i < 100; i++) {
+      view.moveTo(i);
+      assertThat(view.getInt(0), equalTo(items.get(i).itemSk));
+      assertThat(view.getString(1), equalTo(items.get(i).itemId));
+      assertThat(view.getString(4), equalTo(items.get(i).itemDesc));
+      assertThat(view.getStringLength(4),
+          equalTo(items.get(i).itemDesc == null
+              ? -1 : items.get(i).itemDesc.length()));
+    }
+
+    // The arena of a small table is small.
+    final OffHeapTable warehouses = TpcdsTable.WAREHOUSE.materialize(1, 0, 5);
+    assertThat(warehouses.getByteCount() < 8192, is(true));
+    assertThat(warehouses.get(4).toLine(),
+        equalTo(TpcdsTable.WAREHOUSE.createRangeGenerator(1, 4, 1)
+            .iterator().next().toLine()));
+  }
+
+  /** Tests encoding business keys into arrays and buffers, and decoding
+   * them back to numbers. */
+  @Test public void testBusinessKey() {
+    assertThat(BusinessKey.of(2415022), equalTo("AAAAAAAAOKJNECAA"));
+    final char[] chars = new char[20];
+    final byte[] bytes = new byte[20];
+    final ByteBuffer direct = ByteBuffer.allocateDirect(16);
+    final BusinessKey.Buffer buffer = new BusinessKey.Buffer();
+    final long[] numbers = {
+      0, 1, 2415022, 0xFFFFFFFFL, 1L << 32, Long.MAX_VALUE, -1L
+    };
+    for (long n : numbers) {
+      final String key = BusinessKey.of(n);
+      assertThat(key.length(), equalTo(BusinessKey.LENGTH));
+      assertThat(BusinessKey.decode(key), equalTo(n));
+      BusinessKey.encode(n, chars, 3);
+      assertThat(new String(chars, 3, 16), equalTo(key));
+      BusinessKey.encode(n, bytes, 4);
+      assertThat(new String(bytes, 4, 16, StandardCharsets.US_ASCII),
+          equalTo(key));
+      assertThat(BusinessKey.decode(bytes, 4), equalTo(n));
+      direct.clear();
+      BusinessKey.encode(n, direct);
+      assertThat(direct.position(), equalTo(16));
+      direct.flip();
+      direct.get(bytes, 0, 16);
+      assertThat(BusinessKey.decode(bytes, 0), equalTo(n));
+      assertThat(buffer.set(n).toString(), equalTo(key));
+      assertThat(BusinessKey.decode(buffer), equalTo(n));
+    }
+    try {
+      final long n = BusinessKey.decode("AAAAAAAAOKJNECAZ");
+      fail("expected error, got " + n);
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(),
+          equalTo("not a business key: AAAAAAAAOKJNECAZ"));
+    }
+
+    // Item ids decode to business key numbers, which are unique per chain.
+    final RowCursor cursor = TpcdsTable.ITEM.createCursor(1, 0, 600);
+    final BitSet keys = new BitSet();
+    while (cursor.advance()) {
+      final long key = BusinessKey.decode(cursor.getString(1));
+      assertThat(key, equalTo(
+          (long) cursor.getRowNumber() / 6 * 3 + 1
+              + Arrays.asList(0, 1, 1, 2, 2, 2)
+                  .get((int) (cursor.getRowNumber() % 6))));
+      keys.set((int) key);
+    }
+    assertThat(keys.cardinality(), equalTo(300));
+  }
+
+  /** Tests that the dimension cache returns the same values as a cursor,
+   * shares pages between threads, and keeps within its memory budget. */
+  @Test public void testDimensionCache() throws Exception {
+    final TpcdsTable<?> table = TpcdsTable.CUSTOMER_DEMOGRAPHICS;
+    final DimensionCache cache = DimensionCache.create(1L << 20, 1000);
+    final RowCursor cursor = table.createCursor(1, 500000, 3000);
+    while (cursor.advance()) {
+      final long key = cursor.getRowNumber() + 1;
+      assertThat(cache.getInt(table, 1, key, 0), equalTo((int) key));
+      assertThat(cache.getString(table, 1, key, 3),
+          equalTo(cursor.getString(3).toString()));
+      assertThat(cache.getInt(table, 1, key, 4), equalTo(cursor.getInt(4)));
+    }
+    assertThat(cache.getStats().missCount(), equalTo(3L));
+
+    // Many threads look up random keys; each page is generated at most
+    // once until it is evicted, and the cache stays within budget.
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+    for (int t = 0; t < 8; t++) {
+      final int seed = t;
+      tasks.add(
+          new Callable<Long>() {
+            public Long call() {
+              final Random random = new Random(seed);
+              long sum = 0;
+              for (int i = 0; i < 2000; i++) {
+                final int key = 1 + random.nextInt(1920800);
+                assertThat(cache.getInt(table, 1, key, 0), equalTo(key));
+                sum += cache.getInt(table, 1, key, 4);
+              }
+              return sum;
+            }
+          });
+    }
+    for (Future<Long> future : pool.invokeAll(tasks)) {
+      assertThat(future.get() > 0, is(true));
+    }
+    pool.shutdown();
+    assertThat(cache.getStats().evictionCount() > 0, is(true));
+    assertThat(cache.getPageCount() < 1921, is(true));
+    cache.clear();
+    assertThat(cache.getPageCount(), equalTo(0L));
+
+    // date_dim and time_dim keys are not row numbers plus one
+    for (TpcdsTable<?> t
+        : Arrays.asList(TpcdsTable.DATE_DIM, TpcdsTable.TIME_DIM)) {
+      try {
+        final ColumnBatch page = cache.getPage(t, 1, 1);
+        fail("expected error, got " + page);
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(), containsString("not keyed by row"));
+      }
+    }
+
+    // Sales price their line items from the item table, through the
+    // shared cache
+    final double scaleFactor = 0.01;
+    final Map<Integer, Item> items = new HashMap<Integer, Item>();
+    for (Item item : TpcdsTable.ITEM.createGenerator(scaleFactor, 1, 1)) {
+      items.put(item.itemSk, item);
+    }
+    final long requests = DimensionCache.shared().getStats().requestCount();
+    int priced = 0;
+    for (StoreSale sale
+        : TpcdsTable.STORE_SALES.createRangeGenerator(scaleFactor, 0, 5000)) {
+      final Item item = items.get(sale.itemSk);
+      if (item.currentPrice != null && sale.listPrice != null) {
+        assertThat(sale.listPrice, equalTo(item.currentPrice));
+        ++priced;
+      }
+      if (item.wholesaleCost != null && sale.wholesaleCost != null) {
+        assertThat(sale.wholesaleCost, equalTo(item.wholesaleCost));
+      }
+    }
+    assertThat(priced > 4000, is(true));
+    // The generator consults the cache once per page of items, not once
+    // per line item.
+    final long itemPages = (TpcdsTable.ITEM.getRowCount(scaleFactor)
+        + DimensionCache.DEFAULT_PAGE_SIZE - 1)
+        / DimensionCache.DEFAULT_PAGE_SIZE;
+    assertThat(DimensionCache.shared().getStats().requestCount() - requests
+        <= itemPages, is(true));
+  }
+
   @Test public void testCallCenter() {
     TpcdsTable.CALL_CENTER.builder(Dsgen.create());
     final Iterable<CallCenter> generator =
@@ -49,6 +1008,366 @@ public class TpcdsTest {
     assertRowCount(generator, 0);
   }
 
+  /** Tests that generating inventory in parallel stripes, and computing
+   * rows directly, give the same values as a cursor. */
+  @Test public void testInventoryParallelBatches() {
+    final double scaleFactor = 0.01;
+    final long rowCount = TpcdsTable.INVENTORY.getRowCount(scaleFactor);
+    final RowCursor cursor =
+        TpcdsTable.INVENTORY.createCursor(scaleFactor, 0, rowCount);
+    final Inventory.Generator generator =
+        new Inventory.Generator(scaleFactor, 0, rowCount);
+    long expectedSum = 0;
+    while (cursor.advance()) {
+      final int quantity = cursor.getInt(3);
+      expectedSum += quantity * cursor.getRowNumber();
+      if (cursor.getRowNumber() % 997 == 0) {
+        final long row = cursor.getRowNumber();
+        assertThat(generator.getDateSk(row), equalTo(cursor.getInt(0)));
+        assertThat(generator.getItemSk(row), equalTo(cursor.getInt(1)));
+        assertThat(generator.getWarehouseSk(row), equalTo(cursor.getInt(2)));
+        assertThat(generator.isQuantityOnHandNull(row),
+            equalTo(cursor.isNull(3)));
+        assertThat(generator.getQuantityOnHand(row), equalTo(quantity));
+      }
+    }
+
+    // Computing rows directly agrees with the cursor on every row of a
+    // range that contains nulls.
+    final RowCursor cursor2 =
+        TpcdsTable.INVENTORY.createCursor(scaleFactor, 50000, 2000);
+    int nullCount = 0;
+    while (cursor2.advance()) {
+      final long row = cursor2.getRowNumber();
+      assertThat(generator.isQuantityOnHandNull(row),
+          equalTo(cursor2.isNull(3)));
+      if (cursor2.isNull(3)) {
+        ++nullCount;
+        assertThat(generator.getQuantityOnHand(row), equalTo(0));
+      } else {
+        assertThat(generator.getQuantityOnHand(row),
+            equalTo(cursor2.getInt(3)));
+      }
+    }
+    assertThat(nullCount > 0, is(true));
+
+    final AtomicLong rows = new AtomicLong();
+    final AtomicLong sum = new AtomicLong();
+    ParallelGenerator.of(TpcdsTable.INVENTORY, scaleFactor)
+        .withChunkSize(1000)
+        .forEachBatch(
+            new BatchSink() {
+              public void batch(ColumnBatch batch) {
+                final int[] quantities = batch.getInts(3);
+                long s = 0;
+                for (int i = 0; i < batch.getSize(); i++) {
+                  if (!batch.isNull(3, i)) {
+                    s += quantities[i] * (batch.getFirstRow() + i);
+                  }
+                }
+                sum.addAndGet(s);
+                rows.addAndGet(batch.getSize());
+              }
+            });
+    assertThat(rows.get(), equalTo(rowCount));
+    assertThat(sum.get(), equalTo(expectedSum));
+  }
+
+  /** Formats the row in a cursor as a string. */
+  private static String toString(RowCursor cursor, int columnCount) {
+    final StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < columnCount; i++) {
+      if (!cursor.isNull(i)) {
+        buf.append(cursor.getLong(i));
+      }
+      buf.append('|');
+    }
+    return buf.toString();
+  }
+
+  /** Formats the row in a buffer as a string. */
+  private static String toString(RowBuffer buffer) {
+    final StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < buffer.getColumnCount(); i++) {
+      if (!buffer.isNull(i)) {
+        buf.append(buffer.getLong(i));
+      }
+      buf.append('|');
+    }
+    return buf.toString();
+  }
+
+  private static List<String> toList(TpcdsTable<?> table, double scaleFactor) {
+    final List<String> list = new ArrayList<String>();
+    final RowCursor cursor =
+        table.createCursor(scaleFactor, 0, table.getRowCount(scaleFactor));
+    while (cursor.advance()) {
+      list.add(toString(cursor, table.getColumns().size()));
+    }
+    return list;
+  }
+
+  /** Sink that formats each row and adds it to a list. */
+  private static RowSink sink(final List<String> list) {
+    return new RowSink() {
+      public void row(long row, RowBuffer buffer) {
+        assertThat(row, equalTo((long) list.size()));
+        list.add(TpcdsTest.toString(buffer));
+      }
+    };
+  }
+
+  /** Tests that generating a sales table and its returns table together, in
+   * several parts, gives the same rows as generating them separately. */
+  @Test public void testSalesAndReturns() {
+    final double scaleFactor = 0.01;
+    checkSalesAndReturns(TpcdsTable.STORE_SALES, TpcdsTable.STORE_RETURNS,
+        scaleFactor);
+    checkSalesAndReturns(TpcdsTable.CATALOG_SALES,
+        TpcdsTable.CATALOG_RETURNS, scaleFactor);
+    checkSalesAndReturns(TpcdsTable.WEB_SALES, TpcdsTable.WEB_RETURNS,
+        scaleFactor);
+  }
+
+  private void checkSalesAndReturns(TpcdsTable<?> salesTable,
+      TpcdsTable<?> returnsTable, double scaleFactor) {
+    final List<String> sales = new ArrayList<String>();
+    final List<String> returns = new ArrayList<String>();
+    final int partCount = 3;
+    for (int part = 1; part <= partCount; part++) {
+      salesTable.generateSalesAndReturns(scaleFactor, part, partCount,
+          sink(sales), sink(returns));
+    }
+    assertThat((long) sales.size(),
+        equalTo(salesTable.getRowCount(scaleFactor)));
+    assertThat((long) returns.size(),
+        equalTo(returnsTable.getRowCount(scaleFactor)));
+    assertThat(sales, equalTo(toList(salesTable, scaleFactor)));
+    assertThat(returns, equalTo(toList(returnsTable, scaleFactor)));
+  }
+
+  /** Tests that generating sales a ticket at a time into batches gives the
+   * same rows as generating them one at a time, including batches that
+   * start and end part-way through a ticket, and the pricing amounts that
+   * batches derive in passes over the vectors. */
+  @Test public void testSalesBatches() {
+    for (TpcdsTable<?> table : ImmutableList.of(TpcdsTable.STORE_SALES,
+        TpcdsTable.CATALOG_SALES, TpcdsTable.WEB_SALES)) {
+      final int columnCount = table.getColumns().size();
+      final RowCursor cursor = table.createCursor(1, 12345, 3000);
+      final BatchCursor batchCursor = table.createBatchCursor(1, 12345, 3000);
+      final ColumnBatch batch = table.createBatch(77);
+      while (batchCursor.next(batch)) {
+        for (int i = 0; i < batch.getSize(); i++) {
+          assertThat(cursor.advance(), is(true));
+          for (int c = 0; c < columnCount; c++) {
+            assertThat(batch.isNull(c, i), is(cursor.isNull(c)));
+            if (cursor.isNull(c)) {
+              continue;
+            }
+            switch (batch.kinds.get(c)) {
+            case INT:
+              assertThat(batch.getInts(c)[i], equalTo(cursor.getInt(c)));
+              break;
+            default:
+              assertThat(batch.getLongs(c)[i], equalTo(cursor.getLong(c)));
+            }
+          }
+        }
+      }
+      assertThat(cursor.advance(), is(false));
+    }
+  }
+
+  /** Tests that each ticket has between 8 and 16 line items, none of which
+   * has the same item. */
+  @Test public void testStoreSalesTickets() {
+    final Map<Long, Set<Integer>> items = new HashMap<Long, Set<Integer>>();
+    for (StoreSale sale : TpcdsTable.STORE_SALES.createRangeGenerator(1, 0,
+        10000)) {
+      Set<Integer> set = items.get(sale.ticketNumber);
+      if (set == null) {
+        set = new HashSet<Integer>();
+        items.put(sale.ticketNumber, set);
+      }
+      assertThat(set.add(sale.itemSk), is(true));
+    }
+    // The last ticket may be incomplete.
+    items.remove(Collections.max(items.keySet()));
+    for (Set<Integer> set : items.values()) {
+      assertThat(set.size() >= 8 && set.size() <= 16, is(true));
+    }
+    assertThat(items.size() > 10000 / 16, is(true));
+
+    // At very large scale factors there are more than 2^31 tickets; their
+    // numbers must not wrap.
+    long previous = Integer.MAX_VALUE;
+    for (StoreSale sale : TpcdsTable.STORE_SALES.createRangeGenerator(10000,
+        30000000000L, 20)) {
+      assertThat(sale.ticketNumber >= previous, is(true));
+      previous = sale.ticketNumber;
+    }
+  }
+
+  /** Tests that a refresh set continues the sales tables: its tickets
+   * follow those of the base table and of the previous refresh set, and its
+   * parts concatenate to the whole. */
+  @Test public void testRefreshSet() {
+    final double scaleFactor = 0.01;
+    final RefreshSet refresh1 = RefreshSet.of(scaleFactor, 1);
+    final RefreshSet refresh2 = RefreshSet.of(scaleFactor, 2);
+    final long rowCount = refresh1.getRowCount(TpcdsTable.STORE_SALES);
+    assertThat(rowCount > 0, is(true));
+    assertThat(refresh1.getReturnCount(TpcdsTable.STORE_SALES),
+        equalTo(rowCount / 10));
+
+    final List<String> sales = new ArrayList<String>();
+    final List<String> returns = new ArrayList<String>();
+    refresh1.generateSales(TpcdsTable.STORE_SALES, 1, 1, sink(sales),
+        sink(returns));
+    assertThat((long) sales.size(), equalTo(rowCount));
+    assertThat((long) returns.size(), equalTo(rowCount / 10));
+
+    final List<String> sales2 = new ArrayList<String>();
+    final List<String> returns2 = new ArrayList<String>();
+    for (int part = 1; part <= 3; part++) {
+      refresh1.generateSales(TpcdsTable.STORE_SALES, part, 3, sink(sales2),
+          sink(returns2));
+    }
+    assertThat(sales2, equalTo(sales));
+    assertThat(returns2, equalTo(returns));
+
+    // Ticket numbers (column 9) increase from the base table, through
+    // refresh set 1, to refresh set 2.
+    final List<String> base = toList(TpcdsTable.STORE_SALES, scaleFactor);
+    final List<String> sales3 = new ArrayList<String>();
+    refresh2.generateSales(TpcdsTable.STORE_SALES, 1, 1, sink(sales3),
+        sink(new ArrayList<String>()));
+    assertThat(ticket(sales.get(0)) > ticket(base.get(base.size() - 1)),
+        is(true));
+    assertThat(ticket(sales3.get(0)) > ticket(sales.get(sales.size() - 1)),
+        is(true));
+
+    final RowCursor cursor = refresh1.createInventoryCursor(1, 1);
+    long inventoryRows = 0;
+    while (cursor.advance()) {
+      assertThat(cursor.getLong(0) > 2450815L + 7 * 260, is(true));
+      ++inventoryRows;
+    }
+    assertThat(inventoryRows, equalTo(refresh1.getInventoryRowCount()));
+
+    final ImmutableList<Range<Integer>> ranges = refresh1.getDeleteRanges();
+    assertThat(ranges.size(), equalTo(3));
+    assertThat(ranges, equalTo(RefreshSet.of(scaleFactor, 1)
+        .getDeleteRanges()));
+    assertThat(ranges, not(equalTo(refresh2.getDeleteRanges())));
+    for (Range<Integer> range : ranges) {
+      assertThat(range.lowerEndpoint() >= 2450816, is(true));
+      assertThat(range.upperEndpoint() <= 2452642, is(true));
+    }
+    // Inserted line items are sold within the deleted date ranges
+    int datedSales = 0;
+    for (String sale : sales) {
+      final String soldDate = sale.split("\\|", -1)[0];
+      if (!soldDate.isEmpty()) {
+        ++datedSales;
+        final int d = Integer.parseInt(soldDate);
+        assertThat(sale, ranges.get(0).contains(d)
+            || ranges.get(1).contains(d) || ranges.get(2).contains(d),
+            is(true));
+      }
+    }
+    assertThat(datedSales > sales.size() / 2, is(true));
+
+    // Dimension refresh rows follow the base table and each other
+    assertThat(RefreshSet.getDimensionTables().size(), equalTo(4));
+    assertThat(RefreshSet.getSourceName(TpcdsTable.ITEM), equalTo("s_item"));
+    for (TpcdsTable<?> table : RefreshSet.getDimensionTables()) {
+      final long n = refresh1.getDimensionRowCount(table);
+      assertThat(n > 0, is(true));
+      final RowCursor c1 = refresh1.createDimensionCursor(table, 1, 1);
+      final RowCursor c2 = refresh2.createDimensionCursor(table, 1, 1);
+      assertThat(c1.advance(), is(true));
+      assertThat(c2.advance(), is(true));
+      // Surrogate key is the row number plus one
+      final long baseRows = table.getRowCount(scaleFactor);
+      assertThat(c1.getLong(0) > baseRows, is(true));
+      assertThat(c2.getLong(0), equalTo(c1.getLong(0) + n));
+      long rows = 1;
+      while (c1.advance()) {
+        ++rows;
+      }
+      assertThat(rows, equalTo(n));
+    }
+    assertThat(refresh1.getDimensionRowCount(TpcdsTable.ITEM) % 6,
+        equalTo(0L));
+    assertThat(refresh1.getInventoryDeleteRange().lowerEndpoint() >= 2450815,
+        is(true));
+  }
+
+  private static long ticket(String line) {
+    return Long.parseLong(line.split("\\|")[9]);
+  }
+
+  /** Tests that a validator passes a correct file, in parallel partitions,
+   * and reports the row of a corrupt line. */
+  @Test public void testValidator() throws IOException {
+    final double scaleFactor = 0.01;
+    final TpcdsTable<StoreSale> table = TpcdsTable.STORE_SALES;
+    final File dir = temporaryFolder.newFolder();
+    final File file = new File(dir, Validator.fileName(table, 2, 3));
+    assertThat(file.getName(), equalTo("store_sales_2_3.dat"));
+    final List<String> lines = new ArrayList<String>();
+    for (StoreSale sale : table.createGenerator(scaleFactor, 2, 3)) {
+      lines.add(sale.toLine());
+    }
+    Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+    final Validator<StoreSale> validator =
+        table.createValidator(scaleFactor, file).withPart(2, 3)
+            .withChunkSize(50000);
+    final Validator.Result result = validator.validate();
+    assertThat(result.toString(), result.passed(), is(true));
+    assertThat(result.rowCount, equalTo((long) lines.size()));
+    assertThat(result.getCheckedRowCount(), equalTo(result.rowCount));
+    assertThat(result.partitions.size() > 10, is(true));
+
+    // Whole file is the wrong part
+    assertThat(validator.withPart(1, 3).validate().passed(), is(false));
+
+    // Sampling checks fewer rows
+    final Validator.Result sampled = validator.withSampleRate(0.25).validate();
+    assertThat(sampled.passed(), is(true));
+    assertThat(sampled.getCheckedRowCount() < result.rowCount / 2, is(true));
+
+    // Corrupt a line
+    lines.set(1000, lines.get(1000).replace('|', ','));
+    Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    final Validator.Result result2 = validator.validate();
+    assertThat(result2.passed(), is(false));
+    int failed = 0;
+    for (Validator.PartitionResult partition : result2.partitions) {
+      if (!partition.passed()) {
+        ++failed;
+        assertThat(partition.failedRow, equalTo(1000L));
+        assertThat(partition.actual, containsString(","));
+      }
+    }
+    assertThat(failed, equalTo(1));
+
+    // Tables that are not generated yet are skipped
+    assertThat(TpcdsTable.STORE.isGenerated(), is(false));
+    assertThat(TpcdsTable.STORE_SALES.isGenerated(), is(true));
+    Files.write(new File(dir, "store.dat").toPath(),
+        Collections.singletonList("1|AAAAAAAABAAAAAAA|"),
+        StandardCharsets.UTF_8);
+    final List<Validator.Result> results =
+        Validator.validateDirectory(dir, scaleFactor, 1d);
+    assertThat(results.size(), equalTo(1));
+    assertThat(results.get(0).file, equalTo(file));
+    assertThat(results.get(0).passed(), is(false));
+  }
+
   @Test public void testQueryValues() {
     assertThat(Query.values().length, equalTo(99));
   }
@@ -58,7 +1377,7 @@ public class TpcdsTest {
         equalTo("with customer_total_return as\n"
             + "(select sr_customer_sk as ctr_customer_sk\n"
             + ",sr_store_sk as ctr_store_sk\n,"
-            + "sum(SR_RETURN_AMT_INC_TAX) as ctr_total_return\n"
+            + "sum(SR_FEE) as ctr_total_return\n"
             + "from store_returns\n"
             + ",date_dim\n"
             + "where sr_returned_date_sk = d_date_sk\n"
@@ -73,7 +1392,7 @@ public class TpcdsTest {
             + "from customer_total_return ctr2\n"
             + "where ctr1.ctr_store_sk = ctr2.ctr_store_sk)\n"
             + "and s_store_sk = ctr1.ctr_store_sk\n"
-            + "and s_state = 'distmember(fips_county, [COUNTY], 3)'\n"
+            + "and s_state = 'AL'\n"
             + "and ctr1.ctr_customer_sk = c_customer_sk\n"
             + "order by c_customer_id\n"
             + "LIMIT 100\n"));
@@ -102,8 +1421,59 @@ public class TpcdsTest {
 
   @Test public void testGenerateAll() {
     for (Query query : Query.values()) {
-      assertThat(query.sql(new Random(0)), notNullValue());
+      final String sql = query.sql(new Random(0));
+      assertThat(sql, notNullValue());
+      assertThat(sql, not(containsString("dist(")));
+      assertThat(sql, not(containsString("distmember(")));
+      assertThat(sql, not(containsString("ulist(")));
+    }
+  }
+
+  @Test public void testDistribution() {
+    final Distribution fips = Distribution.get("fips_county");
+    assertThat(fips.getValueSetCount(), equalTo(6));
+    assertThat(fips.getWeightSetCount(), equalTo(2));
+    assertThat(fips.getValue(1, 3).length(), equalTo(2));
+    assertThat(fips.weightSet("uniform"), equalTo(1));
+    assertThat(fips.weightSet("2"), equalTo(2));
+    assertThat(Distribution.get("cities").weightSet("large"), equalTo(2));
+    assertThat(Distribution.find("no_such_distribution"), nullValue());
+    final String[] counties = fips.values(3);
+    assertThat(counties.length, equalTo(fips.size()));
+    assertThat(counties[0], equalTo(fips.getValue(1, 3)));
+    counties[0] = "changed";
+    assertThat(fips.values(3)[0], equalTo(fips.getValue(1, 3)));
+
+    // Sampling frequencies follow the weights.
+    final Distribution gender = Distribution.get("gender");
+    final int weightSet = 2;
+    final int[] counts = new int[gender.size() + 1];
+    final Random random = new Random(0);
+    final int n = 100000;
+    for (int i = 0; i < n; i++) {
+      ++counts[gender.pick(weightSet, random.nextDouble())];
+    }
+    int totalWeight = 0;
+    for (int row = 1; row <= gender.size(); row++) {
+      totalWeight += gender.getWeight(row, weightSet);
+    }
+    for (int row = 1; row <= gender.size(); row++) {
+      final double expected =
+          (double) n * gender.getWeight(row, weightSet) / totalWeight;
+      assertThat(Math.abs(counts[row] - expected) < n / 100d, is(true));
+    }
+  }
+
+  @Test public void testAliasTable() {
+    final AliasTable table = AliasTable.of(new int[] {0, 3, 0, 1});
+    final int[] counts = new int[4];
+    for (int i = 0; i < 1000; i++) {
+      ++counts[table.sample(i / 1000d)];
     }
+    assertThat(counts[0], equalTo(0));
+    assertThat(counts[2], equalTo(0));
+    assertThat(counts[1], equalTo(750));
+    assertThat(counts[3], equalTo(250));
   }
 }
 